@@ -0,0 +1,66 @@
+package com.example.cpp_compiler_backend.benchmark;
+
+import com.example.cpp_compiler_backend.CppCompilerBackendApplication;
+import com.example.cpp_compiler_backend.cppcompiler.service.PrecompiledHeaderManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Starts the application in-process on a random port for benchmarking, with request
+ * logging turned down so it does not dominate the measurements.
+ */
+public final class BenchmarkServer {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private BenchmarkServer() {
+    }
+
+    public static ConfigurableApplicationContext start() {
+        ConfigurableApplicationContext context = SpringApplication.run(CppCompilerBackendApplication.class,
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.web=INFO",
+                "--logging.level.org.springframework=WARN");
+        awaitPrecompiledHeaders(context.getBean(PrecompiledHeaderManager.class));
+        return context;
+    }
+
+    public static URI compileUri(ConfigurableApplicationContext context) {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        return URI.create("http://localhost:" + port + "/api/compile");
+    }
+
+    // JSON body for POST /api/compile
+    public static String compileRequest(String code, String input) {
+        try {
+            return MAPPER.writeValueAsString(Map.of("code", code, "input", input));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Precompiled headers are built in the background at startup; measure with them in place
+    private static void awaitPrecompiledHeaders(PrecompiledHeaderManager pchManager) {
+        long deadline = System.nanoTime() + 180_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            boolean done = pchManager.stats().stream()
+                    .filter(stats -> !stats.getBundle().equals(PrecompiledHeaderManager.CompileStats.NO_PCH))
+                    .allMatch(stats -> stats.getBuilds() + stats.getFailedBuilds() > 0);
+            if (done) {
+                return;
+            }
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.cpp_compiler_backend.benchmark;
+
+import com.example.cpp_compiler_backend.cppcompiler.service.CompilerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency of the compile and run hot path against a running application.
+ *
+ * <ul>
+ *   <li>coldCompile: every compilation misses the binary cache</li>
+ *   <li>cachedCompile: the executable comes from the binary cache</li>
+ *   <li>runOnly: runs an already compiled program</li>
+ *   <li>httpRoundTrip: POST /api/compile through CompilerController, cache warm</li>
+ * </ul>
+ *
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec@jmh}; pass JMH options with
+ * {@code -Djmh.args="..."}, e.g. {@code -Djmh.args="cachedCompile -p program=hello"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class CompilerBenchmark {
+
+    @Param({"hello", "read-sum", "sort", "stl-heavy", "templates"})
+    public String program;
+
+    private ConfigurableApplicationContext context;
+    private CompilerService compilerService;
+    private HttpClient httpClient;
+    private HttpRequest compileRequest;
+    private String code;
+    private String input;
+    private CompilerService.CompiledProgram compiled;
+    private final AtomicLong nonce = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkServer.start();
+        compilerService = context.getBean(CompilerService.class);
+        code = Corpus.source(program);
+        input = Corpus.input(program);
+
+        compiled = compilerService.compile(code);
+        if (!compiled.isSuccess()) {
+            throw new IllegalStateException("Corpus program " + program + " does not compile:\n" + compiled.getDiagnostics());
+        }
+
+        httpClient = HttpClient.newHttpClient();
+        compileRequest = HttpRequest.newBuilder(BenchmarkServer.compileUri(context))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(BenchmarkServer.compileRequest(code, input)))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (compiled != null) {
+            compilerService.release(compiled);
+        }
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public CompilerService.CompiledProgram coldCompile() {
+        // A unique trailing comment changes the cache key without changing the program
+        CompilerService.CompiledProgram result = compilerService.compile(code + "\n// " + nonce.incrementAndGet() + "\n");
+        compilerService.release(result);
+        return result;
+    }
+
+    @Benchmark
+    public CompilerService.CompiledProgram cachedCompile() {
+        CompilerService.CompiledProgram result = compilerService.compile(code);
+        compilerService.release(result);
+        return result;
+    }
+
+    @Benchmark
+    public CompilerService.RunResult runOnly() {
+        return compilerService.run(compiled, input);
+    }
+
+    @Benchmark
+    public String httpRoundTrip() throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(compileRequest, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("HTTP " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    // Entry point for running from an IDE
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args.length > 0 ? args : new String[] {CompilerBenchmark.class.getSimpleName()});
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.cpp_compiler_backend.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Sample C++ programs used by the benchmarks, from hello-world to STL-heavy code.
+ * Sources live in src/jmh/resources/corpus; programs that read stdin have their
+ * input in corpus/inputs.properties.
+ */
+public final class Corpus {
+
+    public static final List<String> PROGRAMS = List.of("hello", "read-sum", "sort", "stl-heavy", "templates");
+
+    private static final Properties INPUTS = new Properties();
+
+    static {
+        try (InputStream stream = Corpus.class.getResourceAsStream("/corpus/inputs.properties")) {
+            if (stream != null) {
+                INPUTS.load(stream);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Corpus() {
+    }
+
+    public static String source(String program) {
+        try (InputStream stream = Corpus.class.getResourceAsStream("/corpus/" + program + ".cpp")) {
+            if (stream == null) {
+                throw new IllegalArgumentException("Unknown corpus program '" + program + "', available: " + PROGRAMS);
+            }
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static String input(String program) {
+        return INPUTS.getProperty(program, "");
+    }
+}
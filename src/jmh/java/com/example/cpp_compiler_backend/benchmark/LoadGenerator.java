@@ -0,0 +1,213 @@
+package com.example.cpp_compiler_backend.benchmark;
+
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator for POST /api/compile. For each concurrency level it keeps
+ * that many clients sending requests back to back for a fixed time, then reports
+ * throughput and latency percentiles.
+ *
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec@load}; pass options with
+ * {@code -Dload.args="..."}:
+ * <pre>
+ *   --url=http://host:8080/api/compile   target an already running server (default: start one in-process)
+ *   --program=hello                      corpus program to submit
+ *   --concurrency=1,2,4,8                concurrency levels to measure
+ *   --duration=20s --warmup=5s           time per level, and warm-up before the first level
+ *   --cold                               make every source unique so each request misses the binary cache
+ * </pre>
+ */
+public class LoadGenerator {
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final URI uri;
+    private final String code;
+    private final String input;
+    private final boolean cold;
+    private final AtomicLong nonce = new AtomicLong();
+
+    private LoadGenerator(URI uri, String code, String input, boolean cold) {
+        this.uri = uri;
+        this.code = code;
+        this.input = input;
+        this.cold = cold;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String program = options.getOrDefault("program", "hello");
+        int[] levels = Arrays.stream(options.getOrDefault("concurrency", "1,2,4,8").split(","))
+                .mapToInt(level -> Integer.parseInt(level.trim()))
+                .toArray();
+        Duration duration = parseDuration(options.getOrDefault("duration", "20s"));
+        Duration warmup = parseDuration(options.getOrDefault("warmup", "5s"));
+
+        ConfigurableApplicationContext context = null;
+        URI uri;
+        if (options.containsKey("url")) {
+            uri = URI.create(options.get("url"));
+        } else {
+            context = BenchmarkServer.start();
+            uri = BenchmarkServer.compileUri(context);
+        }
+
+        try {
+            LoadGenerator generator = new LoadGenerator(uri, Corpus.source(program), Corpus.input(program),
+                    options.containsKey("cold"));
+            System.out.println("Target " + uri + ", program " + program + (generator.cold ? " (cold)" : ""));
+            generator.runLevel(Math.max(1, levels[0]), warmup);
+
+            System.out.printf("%11s %9s %10s %9s %9s %9s %9s %7s %9s%n",
+                    "concurrency", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "errors", "rejected");
+            for (int level : levels) {
+                LevelResult result = generator.runLevel(level, duration);
+                System.out.printf("%11d %9d %10.1f %9.1f %9.1f %9.1f %9.1f %7d %9d%n",
+                        level, result.latenciesNanos.length, result.throughput(),
+                        result.percentileMs(50), result.percentileMs(90), result.percentileMs(99),
+                        result.percentileMs(100), result.errors, result.rejected);
+            }
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private LevelResult runLevel(int concurrency, Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            Client client = new Client(deadline);
+            clients.add(client);
+            client.start();
+        }
+
+        long start = System.nanoTime();
+        long errors = 0;
+        long rejected = 0;
+        List<Long> latencies = new ArrayList<>();
+        for (Client client : clients) {
+            client.join();
+            latencies.addAll(client.latencies);
+            errors += client.errors;
+            rejected += client.rejected;
+        }
+        long elapsed = System.nanoTime() - start;
+        return new LevelResult(latencies.stream().mapToLong(Long::longValue).sorted().toArray(), elapsed, errors, rejected);
+    }
+
+    private HttpRequest nextRequest() {
+        String source = cold ? code + "\n// " + nonce.incrementAndGet() + "\n" : code;
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofMinutes(2))
+                .POST(HttpRequest.BodyPublishers.ofString(BenchmarkServer.compileRequest(source, input)))
+                .build();
+    }
+
+    // One closed-loop client: sends the next request as soon as the previous one completes
+    private class Client extends Thread {
+        private final long deadline;
+        private final List<Long> latencies = new ArrayList<>();
+        private long errors;
+        private long rejected;
+
+        private Client(long deadline) {
+            super("load-client");
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            while (System.nanoTime() < deadline) {
+                HttpRequest request = nextRequest();
+                long start = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                    long latency = System.nanoTime() - start;
+                    if (response.statusCode() == 200) {
+                        latencies.add(latency);
+                    } else if (response.statusCode() == 429 || response.statusCode() == 503) {
+                        rejected++;
+                    } else {
+                        errors++;
+                    }
+                } catch (Exception e) {
+                    errors++;
+                }
+            }
+        }
+    }
+
+    private static class LevelResult {
+        private final long[] latenciesNanos;
+        private final long elapsedNanos;
+        private final long errors;
+        private final long rejected;
+
+        private LevelResult(long[] latenciesNanos, long elapsedNanos, long errors, long rejected) {
+            this.latenciesNanos = latenciesNanos;
+            this.elapsedNanos = elapsedNanos;
+            this.errors = errors;
+            this.rejected = rejected;
+        }
+
+        private double throughput() {
+            return latenciesNanos.length / (elapsedNanos / 1e9);
+        }
+
+        // Nearest-rank percentile of successful request latencies
+        private double percentileMs(double percentile) {
+            if (latenciesNanos.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * latenciesNanos.length);
+            return latenciesNanos[Math.max(0, rank - 1)] / 1e6;
+        }
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.isBlank()) {
+                continue;
+            }
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument '" + arg + "'");
+            }
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+        return options;
+    }
+
+    // Accepts "500ms", "20s" or "2m"
+    static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(value));
+    }
+}
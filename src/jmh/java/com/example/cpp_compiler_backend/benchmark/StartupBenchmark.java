@@ -0,0 +1,156 @@
+package com.example.cpp_compiler_backend.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold-start benchmark. Starts the packaged application as a fresh JVM several times
+ * per variant and records two moments: when /api/test first answers (serving) and when
+ * /actuator/health/readiness first reports UP (ready, after the startup warm-up).
+ *
+ * Variants:
+ * <pre>
+ *   default      java -jar target/cpp-compiler-backend-*.jar
+ *   fast-start   the AOT-processed, extracted jar with its CDS archive and the fast-start profile,
+ *                as built by mvn -Pfast-start package
+ * </pre>
+ * Build with {@code mvn -Pfast-start package}, then run
+ * {@code mvn -Pbenchmark test-compile exec:exec@startup}; pass options with
+ * {@code -Dstartup.args="..."}:
+ * <pre>
+ *   --runs=5                     starts per variant
+ *   --variants=default,fast-start
+ *   --port=18080                 port the started servers listen on
+ *   --timeout=120s               give up on a start after this long
+ * </pre>
+ */
+public class StartupBenchmark {
+
+    private static final Path TARGET = Path.of("target");
+    private static final String JAR_NAME = "cpp-compiler-backend-0.0.1-SNAPSHOT.jar";
+    private static final long POLL_MILLIS = 20;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    private final int port;
+    private final Duration timeout;
+
+    private StartupBenchmark(int port, Duration timeout) {
+        this.port = port;
+        this.timeout = timeout;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = LoadGenerator.parseOptions(args);
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        List<String> variants = Arrays.stream(options.getOrDefault("variants", "default,fast-start").split(","))
+                .map(String::trim)
+                .toList();
+        StartupBenchmark benchmark = new StartupBenchmark(Integer.parseInt(options.getOrDefault("port", "18080")),
+                LoadGenerator.parseDuration(options.getOrDefault("timeout", "120s")));
+
+        System.out.printf("%-12s %5s %14s %14s %14s %14s%n",
+                "variant", "runs", "serving p50", "serving min", "ready p50", "ready min");
+        for (String variant : variants) {
+            List<String> command = command(variant, benchmark.port);
+            if (command == null) {
+                System.out.printf("%-12s skipped, build it first with mvn -Pfast-start package%n", variant);
+                continue;
+            }
+            long[] serving = new long[runs];
+            long[] ready = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                long[] times = benchmark.measure(command);
+                serving[i] = times[0];
+                ready[i] = times[1];
+            }
+            Arrays.sort(serving);
+            Arrays.sort(ready);
+            System.out.printf("%-12s %5d %11d ms %11d ms %11d ms %11d ms%n",
+                    variant, runs, serving[runs / 2], serving[0], ready[runs / 2], ready[0]);
+        }
+    }
+
+    // Milliseconds from process start until serving and until ready
+    private long[] measure(List<String> command) throws IOException, InterruptedException {
+        Path log = Files.createTempFile("startup-benchmark", ".log");
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            long deadline = start + timeout.toNanos();
+            long serving = awaitOk(URI.create("http://localhost:" + port + "/api/test"), process, deadline, start);
+            long ready = awaitOk(URI.create("http://localhost:" + port + "/actuator/health/readiness"), process, deadline, start);
+            return new long[] {serving, ready};
+        } finally {
+            process.descendants().forEach(ProcessHandle::destroy);
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+            Files.deleteIfExists(log);
+        }
+    }
+
+    private long awaitOk(URI uri, Process process, long deadline, long start) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(5)).GET().build();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Server exited with code " + process.exitValue() + " during startup");
+            }
+            try {
+                if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return (System.nanoTime() - start) / 1_000_000;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+        throw new IllegalStateException("No answer from " + uri + " within " + timeout);
+    }
+
+    // Null when the variant's artifacts have not been built
+    private static List<String> command(String variant, int port) {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        switch (variant) {
+            case "default" -> {
+                Path jar = TARGET.resolve(JAR_NAME);
+                if (!Files.isRegularFile(jar)) {
+                    return null;
+                }
+                command.add("-jar");
+                command.add(jar.toString());
+            }
+            case "fast-start" -> {
+                Path dir = TARGET.resolve("fast-start");
+                Path archive = dir.resolve("application.jsa");
+                if (!Files.isRegularFile(dir.resolve(JAR_NAME)) || !Files.isRegularFile(archive)) {
+                    return null;
+                }
+                command.add("-XX:SharedArchiveFile=" + archive);
+                command.add("-Dspring.aot.enabled=true");
+                command.add("-Dspring.profiles.active=fast-start");
+                command.add("-jar");
+                command.add(dir.resolve(JAR_NAME).toString());
+            }
+            default -> throw new IllegalArgumentException("Unknown variant '" + variant + "'");
+        }
+        command.add("--server.port=" + port);
+        return command;
+    }
+}
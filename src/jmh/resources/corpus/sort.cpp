@@ -0,0 +1,17 @@
+#include <algorithm>
+#include <iostream>
+#include <vector>
+
+int main() {
+    std::vector<int> values;
+    int value;
+    while (std::cin >> value) {
+        values.push_back(value);
+    }
+    std::sort(values.begin(), values.end());
+    for (int v : values) {
+        std::cout << v << ' ';
+    }
+    std::cout << '\n';
+    return 0;
+}
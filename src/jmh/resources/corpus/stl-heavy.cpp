@@ -0,0 +1,48 @@
+#include <bits/stdc++.h>
+using namespace std;
+
+struct Edge {
+    int to;
+    long long weight;
+};
+
+int main() {
+    int n = 2000;
+    vector<vector<Edge>> graph(n);
+    mt19937 rng(12345);
+    for (int i = 0; i < n * 5; i++) {
+        int a = rng() % n, b = rng() % n;
+        long long w = rng() % 1000 + 1;
+        graph[a].push_back({b, w});
+        graph[b].push_back({a, w});
+    }
+
+    vector<long long> dist(n, LLONG_MAX);
+    priority_queue<pair<long long, int>, vector<pair<long long, int>>, greater<>> queue;
+    dist[0] = 0;
+    queue.push({0, 0});
+    while (!queue.empty()) {
+        auto [d, u] = queue.top();
+        queue.pop();
+        if (d > dist[u]) continue;
+        for (const Edge& e : graph[u]) {
+            if (dist[u] + e.weight < dist[e.to]) {
+                dist[e.to] = dist[u] + e.weight;
+                queue.push({dist[e.to], e.to});
+            }
+        }
+    }
+
+    map<long long, int> histogram;
+    unordered_set<long long> distinct;
+    for (long long d : dist) {
+        histogram[d / 1000]++;
+        distinct.insert(d);
+    }
+    string summary;
+    for (auto& [bucket, count] : histogram) {
+        summary += to_string(bucket) + ":" + to_string(count) + " ";
+    }
+    cout << distinct.size() << "\n" << summary.substr(0, 80) << "\n";
+    return 0;
+}
@@ -0,0 +1,36 @@
+#include <array>
+#include <iostream>
+#include <tuple>
+#include <type_traits>
+#include <utility>
+
+template <std::size_t N>
+struct Fibonacci : std::integral_constant<unsigned long long,
+        Fibonacci<N - 1>::value + Fibonacci<N - 2>::value> {};
+template <> struct Fibonacci<0> : std::integral_constant<unsigned long long, 0> {};
+template <> struct Fibonacci<1> : std::integral_constant<unsigned long long, 1> {};
+
+template <std::size_t... I>
+constexpr auto fibonacciTable(std::index_sequence<I...>) {
+    return std::array<unsigned long long, sizeof...(I)>{Fibonacci<I>::value...};
+}
+
+template <typename... Ts>
+auto sumAll(Ts... values) {
+    return (values + ...);
+}
+
+template <typename Tuple, std::size_t... I>
+void printTuple(const Tuple& tuple, std::index_sequence<I...>) {
+    ((std::cout << (I == 0 ? "" : ", ") << std::get<I>(tuple)), ...);
+    std::cout << '\n';
+}
+
+int main() {
+    constexpr auto table = fibonacciTable(std::make_index_sequence<80>{});
+    std::cout << table[79] << '\n';
+    std::cout << sumAll(1, 2.5, 3L, 4.25f) << '\n';
+    auto tuple = std::make_tuple(1, "two", 3.0, 'f');
+    printTuple(tuple, std::make_index_sequence<std::tuple_size_v<decltype(tuple)>>{});
+    return 0;
+}
@@ -23,7 +23,8 @@ public class CorsFilter implements Filter {
         // Set CORS headers for all responses
         response.setHeader("Access-Control-Allow-Origin", "http://localhost:3000");
         response.setHeader("Access-Control-Allow-Methods", "POST, GET, OPTIONS, PUT, DELETE");
-        response.setHeader("Access-Control-Allow-Headers", "Content-Type, Accept, Referer, User-Agent, sec-ch-ua, sec-ch-ua-mobile, sec-ch-ua-platform");
+        response.setHeader("Access-Control-Allow-Headers", "Content-Type, Content-Encoding, Accept, Referer, User-Agent, X-Client-Key, sec-ch-ua, sec-ch-ua-mobile, sec-ch-ua-platform");
+        response.setHeader("Access-Control-Expose-Headers", "X-Toolchain, X-Compile-Time-Ms, X-Queue-Position");
         response.setHeader("Access-Control-Allow-Credentials", "true");
         response.setHeader("Access-Control-Max-Age", "3600");
 
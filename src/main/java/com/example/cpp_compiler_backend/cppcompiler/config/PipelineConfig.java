@@ -0,0 +1,69 @@
+package com.example.cpp_compiler_backend.cppcompiler.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.cpp_compiler_backend.cppcompiler.service.VirtualThreadStageExecutor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Worker pools for the two pipeline stages. Each pool has a fixed number of threads
+ * and a bounded queue; when the queue is full new work is rejected instead of waiting.
+ *
+ * With spring.threads.virtual.enabled each task runs on its own virtual thread instead.
+ * The thread count then only limits how many tasks run at once, and max-in-flight
+ * limits how many may be admitted.
+ */
+@Configuration
+public class PipelineConfig {
+
+    // Compilation is CPU bound, so by default there is one compile worker per core
+    @Bean(name = "compileExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService compileExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${compiler.pipeline.compile.threads:0}") int threads,
+            @Value("${compiler.pipeline.compile.queue-capacity:64}") int queueCapacity,
+            @Value("${compiler.pipeline.compile.max-in-flight:1000}") int maxInFlight) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return virtualThreads
+                ? newVirtualStage("compile", size, maxInFlight)
+                : newStagePool("compile", size, queueCapacity);
+    }
+
+    // Execution is sized to how many user programs the sandbox may run at once
+    @Bean(name = "runExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService runExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${compiler.pipeline.run.threads:4}") int threads,
+            @Value("${compiler.pipeline.run.queue-capacity:128}") int queueCapacity,
+            @Value("${compiler.pipeline.run.max-in-flight:2000}") int maxInFlight) {
+        return virtualThreads
+                ? newVirtualStage("run", threads, maxInFlight)
+                : newStagePool("run", threads, queueCapacity);
+    }
+
+    private static ExecutorService newVirtualStage(String stage, int concurrency, int maxInFlight) {
+        System.out.println("Starting " + stage + " stage on virtual threads, " + concurrency
+                + " running at once and at most " + maxInFlight + " in flight");
+        return new VirtualThreadStageExecutor(stage, concurrency, maxInFlight);
+    }
+
+    private static ThreadPoolExecutor newStagePool(String stage, int threads, int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, stage + "-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        System.out.println("Starting " + stage + " stage with " + threads + " workers and queue capacity " + queueCapacity);
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.cpp_compiler_backend.cppcompiler.config;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.example.cpp_compiler_backend.cppcompiler.service.ContentCoding;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+
+/**
+ * Decodes request bodies sent with Content-Encoding gzip or zstd, so JSON endpoints
+ * read them like plain bodies. The body is decoded as it is read, never buffered whole,
+ * and may expand to at most compiler.upload.max-decoded-bytes. Multipart requests
+ * are parsed by the container from the raw body, so there the parts are compressed
+ * individually instead (see ContentCoding#fromPart).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RequestDecompressionFilter implements Filter {
+
+    private final long maxDecodedBytes;
+
+    public RequestDecompressionFilter(@Value("${compiler.upload.max-decoded-bytes:268435456}") long maxDecodedBytes) {
+        this.maxDecodedBytes = maxDecodedBytes;
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+
+        ContentCoding coding;
+        try {
+            coding = ContentCoding.fromHeader(request.getHeader("Content-Encoding"));
+        } catch (IllegalArgumentException e) {
+            reject(response, e.getMessage());
+            return;
+        }
+        if (coding == ContentCoding.IDENTITY) {
+            chain.doFilter(req, res);
+            return;
+        }
+        String contentType = request.getContentType();
+        if (contentType != null && contentType.toLowerCase().startsWith("multipart/")) {
+            reject(response, "Compress the parts of a multipart upload, not the whole body");
+            return;
+        }
+        chain.doFilter(new DecodedRequest(request, coding, maxDecodedBytes), res);
+    }
+
+    // 415 with the codings we do accept, as RFC 7694 suggests
+    private static void reject(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE);
+        response.setHeader("Accept-Encoding", "gzip, zstd");
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(message);
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {}
+
+    @Override
+    public void destroy() {}
+
+    // The request as the application sees it: decoded body, unknown length, no Content-Encoding
+    private static class DecodedRequest extends HttpServletRequestWrapper {
+        private final ContentCoding coding;
+        private final long maxDecodedBytes;
+        private ServletInputStream decoded;
+
+        private DecodedRequest(HttpServletRequest request, ContentCoding coding, long maxDecodedBytes) {
+            super(request);
+            this.coding = coding;
+            this.maxDecodedBytes = maxDecodedBytes;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (decoded == null) {
+                ServletInputStream raw = super.getInputStream();
+                InputStream in = coding.decode(raw, maxDecodedBytes);
+                decoded = new ServletInputStream() {
+                    private boolean finished;
+
+                    @Override
+                    public int read() throws IOException {
+                        int b = in.read();
+                        finished = b == -1;
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] buffer, int offset, int length) throws IOException {
+                        int n = in.read(buffer, offset, length);
+                        finished = n == -1;
+                        return n;
+                    }
+
+                    @Override
+                    public boolean isFinished() {
+                        return finished;
+                    }
+
+                    // Once the raw body has ended, the decoder only drains what it already holds
+                    @Override
+                    public boolean isReady() {
+                        return finished || raw.isFinished() || raw.isReady();
+                    }
+
+                    // Non-blocking reads follow the raw body; a read may still wait for the rest of a
+                    // compressed block the container has only partly received
+                    @Override
+                    public void setReadListener(ReadListener listener) {
+                        ServletInputStream decodedStream = this;
+                        raw.setReadListener(new ReadListener() {
+                            @Override
+                            public void onDataAvailable() throws IOException {
+                                listener.onDataAvailable();
+                            }
+
+                            @Override
+                            public void onAllDataRead() throws IOException {
+                                if (!decodedStream.isFinished()) {
+                                    listener.onDataAvailable();
+                                }
+                                listener.onAllDataRead();
+                            }
+
+                            @Override
+                            public void onError(Throwable t) {
+                                listener.onError(t);
+                            }
+                        });
+                    }
+                };
+            }
+            return decoded;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (isHidden(name)) {
+                return null;
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (isHidden(name)) {
+                return Collections.emptyEnumeration();
+            }
+            return super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+                    .filter(name -> !isHidden(name))
+                    .toList());
+        }
+
+        private static boolean isHidden(String name) {
+            return "Content-Encoding".equalsIgnoreCase(name) || "Content-Length".equalsIgnoreCase(name);
+        }
+    }
+}
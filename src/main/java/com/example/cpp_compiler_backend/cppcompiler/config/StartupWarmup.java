@@ -0,0 +1,93 @@
+package com.example.cpp_compiler_backend.cppcompiler.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.cpp_compiler_backend.cppcompiler.service.CompileOptions;
+import com.example.cpp_compiler_backend.cppcompiler.service.CompilerService;
+
+/**
+ * Finishes bringing a node up after the web server has started.
+ *
+ * Once the application is ready, a background thread creates every application bean
+ * that does not exist yet (with lazy initialization, as in the fast-start profile, that
+ * is nearly all of them), which probes the toolchains, pre-forks sandboxes and loads
+ * the binary cache index. It then compiles and runs one small program to warm the
+ * compiler, the page cache and the pipeline. Until that is done this health contributor
+ * ("startupWarmup") is OUT_OF_SERVICE, which keeps /actuator/health/readiness down.
+ * Off unless compiler.startup.warmup is set, as the fast-start profile does.
+ */
+@Component
+public class StartupWarmup implements HealthIndicator {
+
+    private static final String APPLICATION_PACKAGE = "com.example.cpp_compiler_backend.";
+
+    private static final String PROBE_PROGRAM = "#include <iostream>\nint main() { std::cout << \"ready\" << std::endl; }\n";
+
+    private final boolean enabled;
+
+    private volatile boolean done;
+    private volatile String error;
+    private volatile long warmupMs;
+
+    public StartupWarmup(@Value("${compiler.startup.warmup:false}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady(ApplicationReadyEvent event) {
+        if (!enabled) {
+            done = true;
+            return;
+        }
+        ConfigurableListableBeanFactory beanFactory = event.getApplicationContext().getBeanFactory();
+        Thread thread = new Thread(() -> warmUp(beanFactory), "startup-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public Health health() {
+        if (error != null) {
+            return Health.down().withDetail("error", error).build();
+        }
+        if (!done) {
+            return Health.outOfService().build();
+        }
+        return Health.up().withDetail("warmupMs", warmupMs).build();
+    }
+
+    private void warmUp(ConfigurableListableBeanFactory beanFactory) {
+        long start = System.nanoTime();
+        try {
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                if (!definition.isSingleton() || definition.isAbstract()) {
+                    continue;
+                }
+                Class<?> type = beanFactory.getType(name, false);
+                if (type != null && type.getName().startsWith(APPLICATION_PACKAGE)) {
+                    beanFactory.getBean(name);
+                }
+            }
+
+            CompilerService.CompileResult result = beanFactory.getBean(CompilerService.class)
+                    .compileCppCodeLocally(PROBE_PROGRAM, "", CompileOptions.DEFAULT, false);
+            if (!result.isSuccess()) {
+                throw new IllegalStateException("Warm-up program failed: " + result.getOutput());
+            }
+            warmupMs = (System.nanoTime() - start) / 1_000_000;
+            done = true;
+            System.out.println("Warm-up finished in " + warmupMs + " ms, ready for traffic");
+        } catch (Exception e) {
+            error = e.getMessage();
+            System.err.println("Warm-up failed, node stays out of service: " + e.getMessage());
+        }
+    }
+}
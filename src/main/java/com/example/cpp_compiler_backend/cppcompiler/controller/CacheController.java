@@ -0,0 +1,36 @@
+package com.example.cpp_compiler_backend.cppcompiler.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.cpp_compiler_backend.cppcompiler.service.BinaryCache;
+import com.example.cpp_compiler_backend.cppcompiler.service.ResultCache;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+
+    private final BinaryCache binaryCache;
+    private final ResultCache resultCache;
+
+    @Autowired
+    public CacheController(BinaryCache binaryCache, ResultCache resultCache) {
+        this.binaryCache = binaryCache;
+        this.resultCache = resultCache;
+    }
+
+    // Hit/miss counters and current size of the compiled-binary cache
+    @GetMapping("/stats")
+    public ResponseEntity<BinaryCache.Stats> getStats() {
+        return ResponseEntity.ok(binaryCache.stats());
+    }
+
+    // Hit/miss counters and current size of the compile-and-run result cache
+    @GetMapping("/results/stats")
+    public ResponseEntity<ResultCache.Stats> getResultStats() {
+        return ResponseEntity.ok(resultCache.stats());
+    }
+}
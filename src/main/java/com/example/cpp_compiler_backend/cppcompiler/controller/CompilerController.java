@@ -1,13 +1,37 @@
 package com.example.cpp_compiler_backend.cppcompiler.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import com.example.cpp_compiler_backend.cppcompiler.model.BatchCompileRequest;
+import com.example.cpp_compiler_backend.cppcompiler.model.BatchCompileResponse;
 import com.example.cpp_compiler_backend.cppcompiler.model.CompileRequest;
 import com.example.cpp_compiler_backend.cppcompiler.model.CompileResponse;
+import com.example.cpp_compiler_backend.cppcompiler.model.CompileUnitResult;
+import com.example.cpp_compiler_backend.cppcompiler.model.ProjectCompileRequest;
+import com.example.cpp_compiler_backend.cppcompiler.model.ProjectCompileResponse;
+import com.example.cpp_compiler_backend.cppcompiler.service.CompileOptions;
 import com.example.cpp_compiler_backend.cppcompiler.service.CompilerService;
+import com.example.cpp_compiler_backend.cppcompiler.service.ContentCoding;
+import com.example.cpp_compiler_backend.cppcompiler.service.LoadSheddingException;
+import com.example.cpp_compiler_backend.cppcompiler.service.PipelineBusyException;
+import com.example.cpp_compiler_backend.cppcompiler.service.RequestScheduler;
+import com.example.cpp_compiler_backend.cppcompiler.service.TestCaseService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @RestController
 @RequestMapping("/api")
@@ -15,14 +39,27 @@ import com.example.cpp_compiler_backend.cppcompiler.service.CompilerService;
 public class CompilerController {
 
     private final CompilerService compilerService;
+    private final TestCaseService testCaseService;
+    private final RequestScheduler scheduler;
+
+    // Most bytes a compressed upload part may expand to
+    private final long maxDecodedBytes;
 
     @Autowired
-    public CompilerController(CompilerService compilerService) {
+    public CompilerController(CompilerService compilerService, TestCaseService testCaseService,
+                              RequestScheduler scheduler,
+                              @Value("${compiler.upload.max-decoded-bytes:268435456}") long maxDecodedBytes) {
         this.compilerService = compilerService;
+        this.testCaseService = testCaseService;
+        this.scheduler = scheduler;
+        this.maxDecodedBytes = maxDecodedBytes;
     }
 
+    // Interactive requests are admitted ahead of batch grading; X-Client-Key identifies the client for fair queuing
     @PostMapping("/compile")
-    public ResponseEntity<CompileResponse> compileCode(@RequestBody CompileRequest request) {
+    public ResponseEntity<CompileResponse> compileCode(@RequestBody CompileRequest request,
+                                                       @RequestHeader(value = "X-Client-Key", required = false) String clientKey,
+                                                       HttpServletRequest httpRequest) {
         CompileResponse response = new CompileResponse();
         
         if (request.getCode() == null || request.getCode().trim().isEmpty()) {
@@ -37,13 +74,25 @@ public class CompilerController {
                 System.out.println("Input provided with length: " + request.getInput().length());
             }
             
-            CompilerService.CompileResult result = compilerService.compileCppCode(
-                request.getCode(), 
-                request.getInput()
-            );
+            CompileOptions options = new CompileOptions(request.getToolchain(), request.getStandard(), request.getOptimization());
+            // A repeated request is answered from the result cache without waiting for admission
+            CompilerService.CompileResult result = request.isSkipResultCache()
+                    ? null : compilerService.cachedResult(request.getCode(), request.getInput(), options);
+            if (result == null) {
+                try (RequestScheduler.Ticket ticket = scheduler.enter(
+                        RequestScheduler.clientKey(clientKey, httpRequest.getRemoteAddr()), RequestScheduler.Priority.INTERACTIVE)) {
+                    result = compilerService.compileCppCode(
+                        request.getCode(), 
+                        request.getInput(),
+                        options,
+                        !request.isSkipResultCache()
+                    );
+                    response.setQueuePosition(ticket.getQueuePosition());
+                    response.setEstimatedWaitMs(ticket.getEstimatedWaitMs());
+                }
+            }
             
-            response.setSuccess(result.isSuccess());
-            response.setOutput(result.getOutput());
+            fillResponse(response, result);
             
             if (!result.isSuccess()) {
                 response.setMessage("Compilation or execution failed");
@@ -53,6 +102,15 @@ public class CompilerController {
             }
             
             return ResponseEntity.ok(response);
+        } catch (PipelineBusyException e) {
+            System.out.println("Rejected compile request: " + e.getMessage());
+            response.setSuccess(false);
+            response.setMessage(e.getMessage());
+            return busyStatus(e).body(response);
+        } catch (IllegalArgumentException e) {
+            response.setSuccess(false);
+            response.setMessage(e.getMessage());
+            return ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
             System.err.println("Error compiling code: " + e.getMessage());
             e.printStackTrace();
@@ -62,6 +120,243 @@ public class CompilerController {
         }
     }
 
+    // Compile a multi-file project, reusing objects of unchanged translation units, and run it once
+    @PostMapping("/compile/project")
+    public ResponseEntity<ProjectCompileResponse> compileProject(@RequestBody ProjectCompileRequest request,
+                                                                 @RequestHeader(value = "X-Client-Key", required = false) String clientKey,
+                                                                 HttpServletRequest httpRequest) {
+        ProjectCompileResponse response = new ProjectCompileResponse();
+
+        try {
+            System.out.println("Received project request with files: "
+                    + (request.getFiles() != null ? request.getFiles().keySet() : "[]"));
+
+            CompilerService.CompileResult result;
+            try (RequestScheduler.Ticket ticket = scheduler.enter(
+                    RequestScheduler.clientKey(clientKey, httpRequest.getRemoteAddr()), RequestScheduler.Priority.INTERACTIVE)) {
+                result = compilerService.compileAndRunProject(
+                    request.getFiles(),
+                    request.getInput(),
+                    new CompileOptions(request.getToolchain(), request.getStandard(), request.getOptimization())
+                );
+                response.setQueuePosition(ticket.getQueuePosition());
+                response.setEstimatedWaitMs(ticket.getEstimatedWaitMs());
+            }
+
+            fillResponse(response, result);
+            if (result.getUnits() != null) {
+                response.setUnits(result.getUnits().stream()
+                        .map(unit -> new CompileUnitResult(unit.getFile(), unit.isSuccess(), unit.isCached(), unit.getCompileTimeMs()))
+                        .toList());
+            }
+            if (!result.isSuccess()) {
+                response.setMessage("Compilation or execution failed");
+            }
+            return ResponseEntity.ok(response);
+        } catch (PipelineBusyException e) {
+            System.out.println("Rejected project request: " + e.getMessage());
+            response.setSuccess(false);
+            response.setMessage(e.getMessage());
+            return busyStatus(e).body(response);
+        } catch (IllegalArgumentException e) {
+            response.setSuccess(false);
+            response.setMessage(e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            System.err.println("Error compiling project: " + e.getMessage());
+            e.printStackTrace();
+            response.setSuccess(false);
+            response.setMessage("Server error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Compile from a multipart upload and stream the run: the "input" part is piped into stdin as it
+    // arrives and stdout is the response body, compressed as Accept-Encoding allows. Parts may be
+    // gzip or zstd files (.gz, .zst). The run status follows the body as HTTP trailers.
+    @PostMapping(value = "/compile/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<CompileResponse> compileStream(@RequestPart("code") Part code,
+                                                         @RequestPart(value = "input", required = false) Part input,
+                                                         @RequestParam(value = "toolchain", required = false) String toolchain,
+                                                         @RequestParam(value = "standard", required = false) String standard,
+                                                         @RequestParam(value = "optimization", required = false) String optimization,
+                                                         @RequestHeader(value = "X-Client-Key", required = false) String clientKey,
+                                                         @RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding,
+                                                         HttpServletRequest httpRequest,
+                                                         HttpServletResponse httpResponse) {
+        CompileResponse response = new CompileResponse();
+
+        try {
+            String source;
+            try (InputStream in = decodePart(code)) {
+                source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            if (source.trim().isEmpty()) {
+                response.setSuccess(false);
+                response.setMessage("Code cannot be empty");
+                return ResponseEntity.badRequest().body(response);
+            }
+            System.out.println("Received stream request with code length: " + source.length()
+                    + (input != null ? " and input part of " + input.getSize() + " bytes" : ""));
+
+            try (RequestScheduler.Ticket ticket = scheduler.enter(
+                    RequestScheduler.clientKey(clientKey, httpRequest.getRemoteAddr()), RequestScheduler.Priority.INTERACTIVE)) {
+                CompilerService.CompiledProgram program = compilerService.compile(source,
+                        new CompileOptions(toolchain, standard, optimization));
+                try {
+                    if (!program.isSuccess()) {
+                        response.setSuccess(false);
+                        response.setToolchain(program.getToolchainId());
+                        response.setCompileTimeMs(program.getCompileTimeMs());
+                        response.setOutput(program.getDiagnostics());
+                        response.setMessage("Compilation failed");
+                        return ResponseEntity.unprocessableEntity().body(response);
+                    }
+
+                    ContentCoding coding = ContentCoding.negotiate(acceptEncoding);
+                    Map<String, String> trailers = new ConcurrentHashMap<>();
+                    httpResponse.setStatus(HttpServletResponse.SC_OK);
+                    httpResponse.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+                    httpResponse.setHeader("Vary", "Accept-Encoding");
+                    if (coding != ContentCoding.IDENTITY) {
+                        httpResponse.setHeader("Content-Encoding", coding.getToken());
+                    }
+                    httpResponse.setHeader("X-Toolchain", program.getToolchainId());
+                    httpResponse.setHeader("X-Compile-Time-Ms", Long.toString(program.getCompileTimeMs()));
+                    httpResponse.setHeader("X-Queue-Position", Integer.toString(ticket.getQueuePosition()));
+                    httpResponse.setHeader("Trailer", "X-Run-Status, X-Exit-Code, X-Run-Time-Ms, X-Peak-Memory-Kb, X-Output-Truncated");
+                    httpResponse.setTrailerFields(() -> trailers);
+
+                    try (InputStream stdin = input != null ? decodePart(input) : null;
+                         OutputStream body = coding.encode(httpResponse.getOutputStream())) {
+                        CompilerService.RunResult run = compilerService.runStreaming(program, stdin, body);
+                        trailers.put("X-Run-Status", run.isSuccess() ? "success"
+                                : run.isInputFailed() ? "input-error"
+                                : run.isTimedOut() ? "timeout"
+                                : run.isOutputTruncated() ? "output-limit" : "runtime-error");
+                        trailers.put("X-Exit-Code", Integer.toString(run.getExitCode()));
+                        trailers.put("X-Run-Time-Ms", Long.toString(run.getRunTimeMs()));
+                        trailers.put("X-Peak-Memory-Kb", Long.toString(run.getPeakMemoryKb()));
+                        trailers.put("X-Output-Truncated", Boolean.toString(run.isOutputTruncated()));
+                    }
+                    // The body has been written
+                    return null;
+                } finally {
+                    compilerService.release(program);
+                }
+            }
+        } catch (PipelineBusyException e) {
+            System.out.println("Rejected stream request: " + e.getMessage());
+            if (httpResponse.isCommitted()) {
+                return null;
+            }
+            httpResponse.reset();
+            response.setSuccess(false);
+            response.setMessage(e.getMessage());
+            return busyStatus(e).body(response);
+        } catch (IllegalArgumentException e) {
+            response.setSuccess(false);
+            response.setMessage(e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            if (httpResponse.isCommitted()) {
+                // Too late for an error response, usually because the client went away
+                System.out.println("Streamed run ended early: " + e.getMessage());
+                return null;
+            }
+            System.err.println("Error streaming run: " + e.getMessage());
+            httpResponse.reset();
+            response.setSuccess(false);
+            response.setMessage("Server error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Part content, decompressed when it was uploaded as a .gz or .zst file
+    private InputStream decodePart(Part part) throws IOException {
+        return ContentCoding.fromPart(part.getContentType(), part.getSubmittedFileName())
+                .decode(part.getInputStream(), maxDecodedBytes);
+    }
+
+    // 503 with Retry-After when the server shed the request under load, else 429 for a busy client or stage
+    static ResponseEntity.BodyBuilder busyStatus(PipelineBusyException e) {
+        if (e instanceof LoadSheddingException shed) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", String.valueOf(shed.getRetryAfterSeconds()));
+        }
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    static void fillResponse(CompileResponse response, CompilerService.CompileResult result) {
+        response.setSuccess(result.isSuccess());
+        response.setCached(result.isCached());
+        response.setWorker(result.getWorker());
+        response.setToolchain(result.getToolchain());
+        response.setOutput(result.getOutput());
+        response.setCompileTimeMs(result.getCompileTimeMs());
+        response.setRunTimeMs(result.getRunTimeMs());
+        response.setPeakMemoryKb(result.getPeakMemoryKb());
+        response.setUserCpuMs(result.getUserCpuMs());
+        response.setSystemCpuMs(result.getSystemCpuMs());
+        response.setOutputTruncated(result.isOutputTruncated());
+    }
+
+    // Compile once and run the program against every test case
+    @PostMapping("/compile/batch")
+    public ResponseEntity<BatchCompileResponse> compileBatch(@RequestBody BatchCompileRequest request,
+                                                             @RequestHeader(value = "X-Client-Key", required = false) String clientKey,
+                                                             HttpServletRequest httpRequest) {
+        if (request.getCode() == null || request.getCode().trim().isEmpty()) {
+            BatchCompileResponse response = new BatchCompileResponse();
+            response.setSuccess(false);
+            response.setMessage("Code cannot be empty");
+            return ResponseEntity.badRequest().body(response);
+        }
+        if (request.getTestCases() == null || request.getTestCases().isEmpty()) {
+            BatchCompileResponse response = new BatchCompileResponse();
+            response.setSuccess(false);
+            response.setMessage("At least one test case is required");
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        try {
+            System.out.println("Received batch request with code length: " + request.getCode().length()
+                    + " and " + request.getTestCases().size() + " test cases");
+            
+            // Grading a submission is batch work and yields to interactive runs
+            try (RequestScheduler.Ticket ticket = scheduler.enter(
+                    RequestScheduler.clientKey(clientKey, httpRequest.getRemoteAddr()), RequestScheduler.Priority.BATCH)) {
+                BatchCompileResponse response = testCaseService.runTestCases(
+                    request.getCode(),
+                    request.getTestCases(),
+                    request.isStopOnFirstFailure(),
+                    new CompileOptions(request.getToolchain(), request.getStandard(), request.getOptimization())
+                );
+                response.setQueuePosition(ticket.getQueuePosition());
+                response.setEstimatedWaitMs(ticket.getEstimatedWaitMs());
+                return ResponseEntity.ok(response);
+            }
+        } catch (PipelineBusyException e) {
+            System.out.println("Rejected batch request: " + e.getMessage());
+            BatchCompileResponse response = new BatchCompileResponse();
+            response.setSuccess(false);
+            response.setMessage(e.getMessage());
+            return busyStatus(e).body(response);
+        } catch (IllegalArgumentException e) {
+            BatchCompileResponse response = new BatchCompileResponse();
+            response.setSuccess(false);
+            response.setMessage(e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            System.err.println("Error running batch: " + e.getMessage());
+            e.printStackTrace();
+            BatchCompileResponse response = new BatchCompileResponse();
+            response.setSuccess(false);
+            response.setMessage("Server error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     // Add a simple test endpoint to check if the controller is accessible
     @GetMapping("/test")
     public ResponseEntity<String> testEndpoint() {
@@ -89,6 +384,10 @@ public class CompilerController {
             }
             
             return ResponseEntity.ok(response);
+        } catch (PipelineBusyException e) {
+            response.setSuccess(false);
+            response.setMessage(e.getMessage());
+            return busyStatus(e).body(response);
         } catch (Exception e) {
             response.setSuccess(false);
             response.setMessage("Server error: " + e.getMessage());
@@ -0,0 +1,98 @@
+package com.example.cpp_compiler_backend.cppcompiler.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.cpp_compiler_backend.cppcompiler.model.CompileRequest;
+import com.example.cpp_compiler_backend.cppcompiler.model.JobResponse;
+import com.example.cpp_compiler_backend.cppcompiler.service.CompileOptions;
+import com.example.cpp_compiler_backend.cppcompiler.service.Job;
+import com.example.cpp_compiler_backend.cppcompiler.service.JobService;
+import com.example.cpp_compiler_backend.cppcompiler.service.PipelineBusyException;
+import com.example.cpp_compiler_backend.cppcompiler.service.RequestScheduler;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.time.Duration;
+
+@RestController
+@RequestMapping("/api/jobs")
+@CrossOrigin(origins = "http://localhost:3000", allowedHeaders = "*", methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.OPTIONS})
+public class JobController {
+
+    private final JobService jobService;
+    private final Duration streamTimeout;
+
+    @Autowired
+    public JobController(JobService jobService, @Value("${compiler.jobs.stream-timeout:2m}") Duration streamTimeout) {
+        this.jobService = jobService;
+        this.streamTimeout = streamTimeout;
+    }
+
+    // Queue a compile job and return its id straight away
+    @PostMapping
+    public ResponseEntity<JobResponse> submitJob(@RequestBody CompileRequest request,
+                                                 @RequestHeader(value = "X-Client-Key", required = false) String clientKey,
+                                                 HttpServletRequest httpRequest) {
+        JobResponse response = new JobResponse();
+        
+        if (request.getCode() == null || request.getCode().trim().isEmpty()) {
+            response.setMessage("Code cannot be empty");
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        try {
+            Job job = jobService.submit(request.getCode(), request.getInput(),
+                    new CompileOptions(request.getToolchain(), request.getStandard(), request.getOptimization()),
+                    RequestScheduler.clientKey(clientKey, httpRequest.getRemoteAddr()));
+            System.out.println("Queued job " + job.getId() + " with code length: " + request.getCode().length());
+            response.setJobId(job.getId());
+            response.setStatus(job.getStatus());
+            response.setQueuePosition(job.getQueuePosition());
+            response.setEstimatedWaitMs(job.getEstimatedWaitMs());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (PipelineBusyException e) {
+            System.out.println("Rejected job: " + e.getMessage());
+            response.setMessage(e.getMessage());
+            return CompilerController.busyStatus(e).body(response);
+        } catch (IllegalArgumentException e) {
+            response.setMessage(e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    // Current state of a job, including the result once it has finished
+    @GetMapping("/{jobId}")
+    public ResponseEntity<JobResponse> getJob(@PathVariable String jobId) {
+        Job job = jobService.get(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        JobResponse response = new JobResponse();
+        response.setJobId(job.getId());
+        response.setStatus(job.getStatus());
+        response.setQueuePosition(job.getQueuePosition());
+        response.setEstimatedWaitMs(job.getEstimatedWaitMs());
+        response.setResult(job.getResult());
+        return ResponseEntity.ok(response);
+    }
+
+    // Server-Sent Events: status changes, compiler diagnostics, program output, then the result
+    @GetMapping(value = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJob(@PathVariable String jobId) {
+        Job job = jobService.get(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        job.subscribe(emitter);
+        return ResponseEntity.ok(emitter);
+    }
+}
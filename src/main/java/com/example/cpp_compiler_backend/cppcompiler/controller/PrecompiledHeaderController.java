@@ -0,0 +1,29 @@
+package com.example.cpp_compiler_backend.cppcompiler.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.cpp_compiler_backend.cppcompiler.service.PrecompiledHeaderManager;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/pch")
+public class PrecompiledHeaderController {
+
+    private final PrecompiledHeaderManager pchManager;
+
+    @Autowired
+    public PrecompiledHeaderController(PrecompiledHeaderManager pchManager) {
+        this.pchManager = pchManager;
+    }
+
+    // Build time and average compile time per header bundle, plus compiles without one
+    @GetMapping("/stats")
+    public ResponseEntity<List<PrecompiledHeaderManager.CompileStats>> getStats() {
+        return ResponseEntity.ok(pchManager.stats());
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.cpp_compiler_backend.cppcompiler.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.cpp_compiler_backend.cppcompiler.service.Toolchain;
+import com.example.cpp_compiler_backend.cppcompiler.service.ToolchainRegistry;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/toolchains")
+public class ToolchainController {
+
+    private final ToolchainRegistry toolchainRegistry;
+
+    @Autowired
+    public ToolchainController(ToolchainRegistry toolchainRegistry) {
+        this.toolchainRegistry = toolchainRegistry;
+    }
+
+    // Compilers found at startup with their supported standards; the first is the default
+    @GetMapping
+    public ResponseEntity<List<Toolchain>> getToolchains() {
+        List<Toolchain> toolchains = toolchainRegistry.getToolchains();
+        Toolchain defaultToolchain = toolchainRegistry.getDefault();
+        if (defaultToolchain != null) {
+            toolchains.remove(defaultToolchain);
+            toolchains.add(0, defaultToolchain);
+        }
+        return ResponseEntity.ok(toolchains);
+    }
+}
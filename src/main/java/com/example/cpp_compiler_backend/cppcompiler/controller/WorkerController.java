@@ -0,0 +1,103 @@
+package com.example.cpp_compiler_backend.cppcompiler.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.example.cpp_compiler_backend.cppcompiler.model.CompileRequest;
+import com.example.cpp_compiler_backend.cppcompiler.model.CompileResponse;
+import com.example.cpp_compiler_backend.cppcompiler.model.WorkerHealth;
+import com.example.cpp_compiler_backend.cppcompiler.service.CompileOptions;
+import com.example.cpp_compiler_backend.cppcompiler.service.CompilerService;
+import com.example.cpp_compiler_backend.cppcompiler.service.PipelineBusyException;
+import com.example.cpp_compiler_backend.cppcompiler.service.RequestScheduler;
+import com.example.cpp_compiler_backend.cppcompiler.service.Toolchain;
+import com.example.cpp_compiler_backend.cppcompiler.service.ToolchainRegistry;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+// Worker protocol: requests forwarded by a routing node, and the load report it polls
+@RestController
+@RequestMapping("/api/worker")
+public class WorkerController {
+
+    private final CompilerService compilerService;
+    private final RequestScheduler scheduler;
+    private final ToolchainRegistry toolchainRegistry;
+
+    @Autowired
+    public WorkerController(CompilerService compilerService, RequestScheduler scheduler,
+                            ToolchainRegistry toolchainRegistry) {
+        this.compilerService = compilerService;
+        this.scheduler = scheduler;
+        this.toolchainRegistry = toolchainRegistry;
+    }
+
+    // Compile and run here, never forwarding again
+    @PostMapping("/execute")
+    public ResponseEntity<CompileResponse> execute(@RequestBody CompileRequest request,
+                                                   @RequestHeader(value = "X-Client-Key", required = false) String clientKey,
+                                                   HttpServletRequest httpRequest) {
+        CompileResponse response = new CompileResponse();
+        if (request.getCode() == null || request.getCode().trim().isEmpty()) {
+            response.setSuccess(false);
+            response.setMessage("Code cannot be empty");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        try {
+            CompileOptions options = new CompileOptions(request.getToolchain(), request.getStandard(), request.getOptimization());
+            CompilerService.CompileResult result = request.isSkipResultCache()
+                    ? null : compilerService.cachedResult(request.getCode(), request.getInput(), options);
+            if (result == null) {
+                try (RequestScheduler.Ticket ticket = scheduler.enter(
+                        RequestScheduler.clientKey(clientKey, httpRequest.getRemoteAddr()), RequestScheduler.Priority.INTERACTIVE)) {
+                    result = compilerService.compileCppCodeLocally(
+                        request.getCode(),
+                        request.getInput(),
+                        options,
+                        !request.isSkipResultCache()
+                    );
+                    response.setQueuePosition(ticket.getQueuePosition());
+                    response.setEstimatedWaitMs(ticket.getEstimatedWaitMs());
+                }
+            }
+            CompilerController.fillResponse(response, result);
+            if (!result.isSuccess()) {
+                response.setMessage("Compilation or execution failed");
+            }
+            return ResponseEntity.ok(response);
+        } catch (PipelineBusyException e) {
+            response.setSuccess(false);
+            response.setMessage(e.getMessage());
+            return CompilerController.busyStatus(e).body(response);
+        } catch (IllegalArgumentException e) {
+            response.setSuccess(false);
+            response.setMessage(e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            System.err.println("Error executing forwarded request: " + e.getMessage());
+            e.printStackTrace();
+            response.setSuccess(false);
+            response.setMessage("Server error: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    @GetMapping("/health")
+    public ResponseEntity<WorkerHealth> health() {
+        Toolchain toolchain = toolchainRegistry.getDefault();
+        WorkerHealth health = new WorkerHealth();
+        health.setReady(toolchain != null);
+        health.setToolchain(toolchain != null ? toolchain.getId() : null);
+        health.setCapacity(scheduler.getLocalLimit());
+        health.setRunning(scheduler.getRunning());
+        int queued = 0;
+        for (RequestScheduler.Priority priority : RequestScheduler.Priority.values()) {
+            queued += scheduler.getQueued(priority);
+        }
+        health.setQueued(queued);
+        return ResponseEntity.ok(health);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.cpp_compiler_backend.cppcompiler.model;
+
+import java.util.List;
+
+public class BatchCompileRequest {
+    private String code;
+    private List<TestCase> testCases;
+    private boolean stopOnFirstFailure;
+    private String toolchain;
+    private String standard;
+    private String optimization;
+
+    // Default constructor required for Jackson
+    public BatchCompileRequest() {
+    }
+
+    public BatchCompileRequest(String code, List<TestCase> testCases) {
+        this.code = code;
+        this.testCases = testCases;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public List<TestCase> getTestCases() {
+        return testCases;
+    }
+
+    public void setTestCases(List<TestCase> testCases) {
+        this.testCases = testCases;
+    }
+
+    public boolean isStopOnFirstFailure() {
+        return stopOnFirstFailure;
+    }
+
+    public void setStopOnFirstFailure(boolean stopOnFirstFailure) {
+        this.stopOnFirstFailure = stopOnFirstFailure;
+    }
+
+    // Toolchain id from /api/toolchains; null uses the default compiler
+    public String getToolchain() {
+        return toolchain;
+    }
+
+    public void setToolchain(String toolchain) {
+        this.toolchain = toolchain;
+    }
+
+    // -std level, e.g. "c++17"; null uses the compiler's default
+    public String getStandard() {
+        return standard;
+    }
+
+    public void setStandard(String standard) {
+        this.standard = standard;
+    }
+
+    // Optimization level, e.g. "O2"; null compiles without optimization flags
+    public String getOptimization() {
+        return optimization;
+    }
+
+    public void setOptimization(String optimization) {
+        this.optimization = optimization;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchCompileRequest{" +
+                "code='" + code + '\'' +
+                ", testCases=" + (testCases != null ? testCases.size() : 0) +
+                ", stopOnFirstFailure=" + stopOnFirstFailure +
+                '}';
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.cpp_compiler_backend.cppcompiler.model;
+
+import java.util.List;
+
+// Response model for a batch run: one compilation, many test cases
+public class BatchCompileResponse {
+    private boolean success;
+    private String message;
+    private String toolchain;
+    private String compileOutput;
+    private long compileTimeMs;
+    private int passed;
+    private List<TestCaseResult> results;
+    private int queuePosition;
+    private long estimatedWaitMs;
+
+    // Getters and Setters
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getCompileOutput() {
+        return compileOutput;
+    }
+
+    public void setCompileOutput(String compileOutput) {
+        this.compileOutput = compileOutput;
+    }
+
+    public long getCompileTimeMs() {
+        return compileTimeMs;
+    }
+
+    public void setCompileTimeMs(long compileTimeMs) {
+        this.compileTimeMs = compileTimeMs;
+    }
+
+    public int getPassed() {
+        return passed;
+    }
+
+    public void setPassed(int passed) {
+        this.passed = passed;
+    }
+
+    public List<TestCaseResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<TestCaseResult> results) {
+        this.results = results;
+    }
+
+    // Id of the toolchain that compiled the program
+    public String getToolchain() {
+        return toolchain;
+    }
+
+    public void setToolchain(String toolchain) {
+        this.toolchain = toolchain;
+    }
+
+    // Requests ahead of this one when it arrived at the scheduler; 0 if it was admitted straight away
+    public int getQueuePosition() {
+        return queuePosition;
+    }
+
+    public void setQueuePosition(int queuePosition) {
+        this.queuePosition = queuePosition;
+    }
+
+    // Estimated time in the scheduler queue, from the position and the recent time per request
+    public long getEstimatedWaitMs() {
+        return estimatedWaitMs;
+    }
+
+    public void setEstimatedWaitMs(long estimatedWaitMs) {
+        this.estimatedWaitMs = estimatedWaitMs;
+    }
+}
@@ -3,6 +3,10 @@ package com.example.cpp_compiler_backend.cppcompiler.model;
 public class CompileRequest {
     private String code;
     private String input;
+    private String toolchain;
+    private String standard;
+    private String optimization;
+    private boolean skipResultCache;
 
     // Default constructor required for Jackson
     public CompileRequest() {
@@ -29,11 +33,51 @@ public class CompileRequest {
         this.input = input;
     }
 
+    // Toolchain id from /api/toolchains; null uses the default compiler
+    public String getToolchain() {
+        return toolchain;
+    }
+
+    public void setToolchain(String toolchain) {
+        this.toolchain = toolchain;
+    }
+
+    // -std level, e.g. "c++17"; null uses the compiler's default
+    public String getStandard() {
+        return standard;
+    }
+
+    public void setStandard(String standard) {
+        this.standard = standard;
+    }
+
+    // Optimization level, e.g. "O2"; null compiles without optimization flags
+    public String getOptimization() {
+        return optimization;
+    }
+
+    public void setOptimization(String optimization) {
+        this.optimization = optimization;
+    }
+
+    // Set for nondeterministic programs so the result is neither served from nor stored in the result cache
+    public boolean isSkipResultCache() {
+        return skipResultCache;
+    }
+
+    public void setSkipResultCache(boolean skipResultCache) {
+        this.skipResultCache = skipResultCache;
+    }
+
     @Override
     public String toString() {
         return "CompileRequest{" +
                 "code='" + code + '\'' +
                 ", input='" + (input != null ? input : "") + '\'' +
+                ", toolchain='" + toolchain + '\'' +
+                ", standard='" + standard + '\'' +
+                ", optimization='" + optimization + '\'' +
+                ", skipResultCache=" + skipResultCache +
                 '}';
     }
 }
\ No newline at end of file
@@ -5,6 +5,17 @@ public class CompileResponse {
     private String output;
     private boolean success;
     private String message;
+    private String toolchain;
+    private long compileTimeMs;
+    private long runTimeMs;
+    private boolean outputTruncated;
+    private long peakMemoryKb;
+    private long userCpuMs;
+    private long systemCpuMs;
+    private boolean cached;
+    private String worker;
+    private int queuePosition;
+    private long estimatedWaitMs;
 
     // Getters and Setters
     public String getOutput() {
@@ -30,4 +41,101 @@ public class CompileResponse {
     public void setMessage(String message) {
         this.message = message;
     }
-}
\ No newline at end of file
+
+    public long getCompileTimeMs() {
+        return compileTimeMs;
+    }
+
+    public void setCompileTimeMs(long compileTimeMs) {
+        this.compileTimeMs = compileTimeMs;
+    }
+
+    public long getRunTimeMs() {
+        return runTimeMs;
+    }
+
+    public void setRunTimeMs(long runTimeMs) {
+        this.runTimeMs = runTimeMs;
+    }
+
+    // True when the program printed more than the output limit and was stopped
+    public boolean isOutputTruncated() {
+        return outputTruncated;
+    }
+
+    public void setOutputTruncated(boolean outputTruncated) {
+        this.outputTruncated = outputTruncated;
+    }
+
+    // Id of the toolchain that compiled the program
+    public String getToolchain() {
+        return toolchain;
+    }
+
+    public void setToolchain(String toolchain) {
+        this.toolchain = toolchain;
+    }
+
+    // Peak resident memory of the program, in kilobytes
+    public long getPeakMemoryKb() {
+        return peakMemoryKb;
+    }
+
+    public void setPeakMemoryKb(long peakMemoryKb) {
+        this.peakMemoryKb = peakMemoryKb;
+    }
+
+    // CPU time the program spent in user mode
+    public long getUserCpuMs() {
+        return userCpuMs;
+    }
+
+    public void setUserCpuMs(long userCpuMs) {
+        this.userCpuMs = userCpuMs;
+    }
+
+    // CPU time the program spent in the kernel
+    public long getSystemCpuMs() {
+        return systemCpuMs;
+    }
+
+    public void setSystemCpuMs(long systemCpuMs) {
+        this.systemCpuMs = systemCpuMs;
+    }
+
+    // True when the response was served from the result cache
+    public boolean isCached() {
+        return cached;
+    }
+
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
+    // Worker node that ran the request; null when this server ran it
+    public String getWorker() {
+        return worker;
+    }
+
+    public void setWorker(String worker) {
+        this.worker = worker;
+    }
+
+    // Requests ahead of this one when it arrived at the scheduler; 0 if it was admitted straight away
+    public int getQueuePosition() {
+        return queuePosition;
+    }
+
+    public void setQueuePosition(int queuePosition) {
+        this.queuePosition = queuePosition;
+    }
+
+    // Estimated time in the scheduler queue, from the position and the recent time per request
+    public long getEstimatedWaitMs() {
+        return estimatedWaitMs;
+    }
+
+    public void setEstimatedWaitMs(long estimatedWaitMs) {
+        this.estimatedWaitMs = estimatedWaitMs;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.cpp_compiler_backend.cppcompiler.model;
+
+// Outcome of compiling one translation unit of a project
+public class CompileUnitResult {
+    private String file;
+    private boolean success;
+    private boolean cached;
+    private long compileTimeMs;
+
+    public CompileUnitResult() {
+    }
+
+    public CompileUnitResult(String file, boolean success, boolean cached, long compileTimeMs) {
+        this.file = file;
+        this.success = success;
+        this.cached = cached;
+        this.compileTimeMs = compileTimeMs;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    // True when the object file was reused because neither the unit nor its headers changed
+    public boolean isCached() {
+        return cached;
+    }
+
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
+    public long getCompileTimeMs() {
+        return compileTimeMs;
+    }
+
+    public void setCompileTimeMs(long compileTimeMs) {
+        this.compileTimeMs = compileTimeMs;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.cpp_compiler_backend.cppcompiler.model;
+
+// Response model for the asynchronous job API
+public class JobResponse {
+    private String jobId;
+    private JobStatus status;
+    private String message;
+    private CompileResponse result;
+    private int queuePosition;
+    private long estimatedWaitMs;
+
+    // Getters and Setters
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(JobStatus status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    // Only set once the job has finished
+    public CompileResponse getResult() {
+        return result;
+    }
+
+    public void setResult(CompileResponse result) {
+        this.result = result;
+    }
+
+    // Current position in the scheduler queue; 0 once the job has been admitted
+    public int getQueuePosition() {
+        return queuePosition;
+    }
+
+    public void setQueuePosition(int queuePosition) {
+        this.queuePosition = queuePosition;
+    }
+
+    // Estimated time until the job is admitted
+    public long getEstimatedWaitMs() {
+        return estimatedWaitMs;
+    }
+
+    public void setEstimatedWaitMs(long estimatedWaitMs) {
+        this.estimatedWaitMs = estimatedWaitMs;
+    }
+}
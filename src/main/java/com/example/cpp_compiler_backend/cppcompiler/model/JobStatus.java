@@ -0,0 +1,14 @@
+package com.example.cpp_compiler_backend.cppcompiler.model;
+
+// Lifecycle of an asynchronous compile job
+public enum JobStatus {
+    QUEUED,
+    COMPILING,
+    RUNNING,
+    COMPLETED,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
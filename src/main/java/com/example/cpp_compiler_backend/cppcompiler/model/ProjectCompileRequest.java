@@ -0,0 +1,75 @@
+package com.example.cpp_compiler_backend.cppcompiler.model;
+
+import java.util.Map;
+
+public class ProjectCompileRequest {
+    // File name relative to the project root -> content; .cpp/.cc/.cxx files are compiled, the rest are headers
+    private Map<String, String> files;
+    private String input;
+    private String toolchain;
+    private String standard;
+    private String optimization;
+
+    // Default constructor required for Jackson
+    public ProjectCompileRequest() {
+    }
+
+    public ProjectCompileRequest(Map<String, String> files, String input) {
+        this.files = files;
+        this.input = input;
+    }
+
+    public Map<String, String> getFiles() {
+        return files;
+    }
+
+    public void setFiles(Map<String, String> files) {
+        this.files = files;
+    }
+
+    public String getInput() {
+        return input;
+    }
+
+    public void setInput(String input) {
+        this.input = input;
+    }
+
+    // Toolchain id from /api/toolchains; null uses the default compiler
+    public String getToolchain() {
+        return toolchain;
+    }
+
+    public void setToolchain(String toolchain) {
+        this.toolchain = toolchain;
+    }
+
+    // -std level, e.g. "c++17"; null uses the compiler's default
+    public String getStandard() {
+        return standard;
+    }
+
+    public void setStandard(String standard) {
+        this.standard = standard;
+    }
+
+    // Optimization level, e.g. "O2"; null compiles without optimization flags
+    public String getOptimization() {
+        return optimization;
+    }
+
+    public void setOptimization(String optimization) {
+        this.optimization = optimization;
+    }
+
+    @Override
+    public String toString() {
+        return "ProjectCompileRequest{" +
+                "files=" + (files != null ? files.keySet() : "[]") +
+                ", input='" + (input != null ? input : "") + '\'' +
+                ", toolchain='" + toolchain + '\'' +
+                ", standard='" + standard + '\'' +
+                ", optimization='" + optimization + '\'' +
+                '}';
+    }
+}
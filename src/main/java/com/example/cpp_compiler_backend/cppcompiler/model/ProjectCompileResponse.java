@@ -0,0 +1,16 @@
+package com.example.cpp_compiler_backend.cppcompiler.model;
+
+import java.util.List;
+
+// Response model for a multi-file project: the usual compile response plus one entry per translation unit
+public class ProjectCompileResponse extends CompileResponse {
+    private List<CompileUnitResult> units;
+
+    public List<CompileUnitResult> getUnits() {
+        return units;
+    }
+
+    public void setUnits(List<CompileUnitResult> units) {
+        this.units = units;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.cpp_compiler_backend.cppcompiler.model;
+
+public class TestCase {
+    private String input;
+    private String expectedOutput;
+
+    // Default constructor required for Jackson
+    public TestCase() {
+    }
+
+    public TestCase(String input, String expectedOutput) {
+        this.input = input;
+        this.expectedOutput = expectedOutput;
+    }
+
+    public String getInput() {
+        return input;
+    }
+
+    public void setInput(String input) {
+        this.input = input;
+    }
+
+    // Optional; when null the case is only run, not judged
+    public String getExpectedOutput() {
+        return expectedOutput;
+    }
+
+    public void setExpectedOutput(String expectedOutput) {
+        this.expectedOutput = expectedOutput;
+    }
+}
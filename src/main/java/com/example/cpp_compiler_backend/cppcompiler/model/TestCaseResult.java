@@ -0,0 +1,80 @@
+package com.example.cpp_compiler_backend.cppcompiler.model;
+
+// Result of one test case in a batch run
+public class TestCaseResult {
+    private int index;
+    private Verdict verdict;
+    private String output;
+    private int exitCode;
+    private long wallTimeMs;
+    private long cpuTimeMs;
+    private long peakMemoryKb;
+    private boolean outputTruncated;
+
+    // Getters and Setters
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Verdict getVerdict() {
+        return verdict;
+    }
+
+    public void setVerdict(Verdict verdict) {
+        this.verdict = verdict;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public void setOutput(String output) {
+        this.output = output;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public void setExitCode(int exitCode) {
+        this.exitCode = exitCode;
+    }
+
+    public long getWallTimeMs() {
+        return wallTimeMs;
+    }
+
+    public void setWallTimeMs(long wallTimeMs) {
+        this.wallTimeMs = wallTimeMs;
+    }
+
+    public long getCpuTimeMs() {
+        return cpuTimeMs;
+    }
+
+    public void setCpuTimeMs(long cpuTimeMs) {
+        this.cpuTimeMs = cpuTimeMs;
+    }
+
+    // True when the program printed more than the output limit and was stopped
+    public boolean isOutputTruncated() {
+        return outputTruncated;
+    }
+
+    public void setOutputTruncated(boolean outputTruncated) {
+        this.outputTruncated = outputTruncated;
+    }
+
+    // Peak resident memory of the program, in kilobytes
+    public long getPeakMemoryKb() {
+        return peakMemoryKb;
+    }
+
+    public void setPeakMemoryKb(long peakMemoryKb) {
+        this.peakMemoryKb = peakMemoryKb;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.cpp_compiler_backend.cppcompiler.model;
+
+// Outcome of a single test case in a batch run
+public enum Verdict {
+    ACCEPTED,
+    WRONG_ANSWER,
+    RUNTIME_ERROR,
+    TIME_LIMIT_EXCEEDED,
+    OUTPUT_LIMIT_EXCEEDED,
+    // The program ran successfully but no expected output was given
+    COMPLETED,
+    // Not run because an earlier case failed and stopOnFirstFailure was set
+    SKIPPED
+}
@@ -0,0 +1,53 @@
+package com.example.cpp_compiler_backend.cppcompiler.model;
+
+// Load report of a worker node, polled by the routing node
+public class WorkerHealth {
+    private boolean ready;
+    private String toolchain;
+    private int capacity;
+    private int running;
+    private int queued;
+
+    // False while the node has no working compiler
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void setReady(boolean ready) {
+        this.ready = ready;
+    }
+
+    // Default toolchain id of the node
+    public String getToolchain() {
+        return toolchain;
+    }
+
+    public void setToolchain(String toolchain) {
+        this.toolchain = toolchain;
+    }
+
+    // Requests the node admits at once
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getRunning() {
+        return running;
+    }
+
+    public void setRunning(int running) {
+        this.running = running;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public void setQueued(int queued) {
+        this.queued = queued;
+    }
+}
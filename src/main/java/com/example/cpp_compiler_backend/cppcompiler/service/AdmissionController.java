@@ -0,0 +1,391 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive concurrency limit for the request scheduler, driven by live host pressure.
+ *
+ * Once per sample interval the limit is adjusted with a gradient rule. A slow-moving
+ * average of how long admitted requests hold their slot stands for the latency of a
+ * healthy node; the average over the last interval is the present. While the present
+ * stays within tolerance times the baseline the limit grows by its square root, but
+ * only if requests actually filled it. Beyond that it shrinks in proportion. Resource
+ * pressure overrides the gradient: the limit is cut by backoff-ratio and does not grow
+ * while available memory is below min-free-memory or the CPU is contended. The limit
+ * stays between min-limit and the scheduler's capacity. The scheduler turns requests
+ * away with a 503 when their estimated queue wait under the current limit exceeds
+ * max-queue-wait.
+ *
+ * Pressure is read for this service's own cgroup when it runs in a cgroup v2 hierarchy,
+ * so a busy neighbour on a shared host does not hold the limit down. There, CPU
+ * contention is the share of time its tasks waited for a CPU (cpu.pressure, or the time
+ * throttled by its CPU quota from cpu.stat) against max-cpu-pressure, memory stalls
+ * (memory.pressure) count against max-memory-pressure, and available memory is capped
+ * by memory.max. Elsewhere the smoothed number of runnable threads per core on the host
+ * counts against max-runnable-per-core.
+ */
+@Component
+public class AdmissionController {
+
+    // Weight of each interval in the new limit, and of each interval in the latency baseline
+    private static final double SMOOTHING = 0.2;
+    private static final double BASELINE_ALPHA = 0.05;
+    private static final double LOAD_ALPHA = 0.3;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private static final Path LOADAVG = Path.of("/proc/loadavg");
+    private static final Path MEMINFO = Path.of("/proc/meminfo");
+    private static final Path PROC_CGROUP = Path.of("/proc/self/cgroup");
+    private static final Path CGROUP_ROOT = Path.of("/sys/fs/cgroup");
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final double maxRunnablePerCore;
+    private final double maxCpuPressure;
+    private final double maxMemoryPressure;
+    private final long minFreeMemoryBytes;
+    private final double tolerance;
+    private final double backoffRatio;
+    private final Duration maxQueueWait;
+    private final Duration sampleInterval;
+    private final int cores = Runtime.getRuntime().availableProcessors();
+    private final CompilerMetrics metrics;
+    // This process's cgroup v2 directory, or null outside one
+    private final Path cgroupDir;
+
+    private ScheduledExecutorService sampler;
+    private Runnable onLimitRaised = () -> { };
+    private int maxLimit = Integer.MAX_VALUE;
+    private double limit = Integer.MAX_VALUE;
+    private double baselineMs;
+    private double windowSumMs;
+    private int windowCount;
+    private int windowMaxRunning;
+    private double runnablePerCore;
+    private double cpuPressure = -1;
+    private double memoryPressure = -1;
+    private long availableMemory = -1;
+    // Previous cpu.stat reading, only touched by the sampler thread
+    private long lastThrottledUsec = -1;
+    private long lastThrottledAt;
+
+    @Autowired
+    public AdmissionController(CompilerMetrics metrics,
+                               @Value("${compiler.admission.enabled:true}") boolean enabled,
+                               @Value("${compiler.admission.min-limit:1}") int minLimit,
+                               @Value("${compiler.admission.max-runnable-per-core:2.0}") double maxRunnablePerCore,
+                               @Value("${compiler.admission.max-cpu-pressure:20}") double maxCpuPressure,
+                               @Value("${compiler.admission.max-memory-pressure:10}") double maxMemoryPressure,
+                               @Value("${compiler.admission.min-free-memory-bytes:268435456}") long minFreeMemoryBytes,
+                               @Value("${compiler.admission.tolerance:1.5}") double tolerance,
+                               @Value("${compiler.admission.backoff-ratio:0.8}") double backoffRatio,
+                               @Value("${compiler.admission.max-queue-wait:10s}") Duration maxQueueWait,
+                               @Value("${compiler.admission.sample-interval:1s}") Duration sampleInterval) {
+        this(metrics, enabled, minLimit, maxRunnablePerCore, maxCpuPressure, maxMemoryPressure, minFreeMemoryBytes,
+                tolerance, backoffRatio, maxQueueWait, sampleInterval, findCgroup(PROC_CGROUP, CGROUP_ROOT));
+    }
+
+    AdmissionController(CompilerMetrics metrics, boolean enabled, int minLimit, double maxRunnablePerCore,
+                        double maxCpuPressure, double maxMemoryPressure, long minFreeMemoryBytes, double tolerance,
+                        double backoffRatio, Duration maxQueueWait, Duration sampleInterval, Path cgroupDir) {
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxRunnablePerCore = maxRunnablePerCore;
+        this.maxCpuPressure = maxCpuPressure;
+        this.maxMemoryPressure = maxMemoryPressure;
+        this.minFreeMemoryBytes = minFreeMemoryBytes;
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+        this.maxQueueWait = maxQueueWait;
+        this.sampleInterval = sampleInterval;
+        this.cgroupDir = cgroupDir;
+    }
+
+    /**
+     * Starts adapting a limit of at most maxLimit. onLimitRaised is called, outside any
+     * lock, whenever the limit allows more requests than before.
+     */
+    public synchronized void attach(int maxLimit, Runnable onLimitRaised) {
+        this.maxLimit = Math.max(minLimit, maxLimit);
+        this.limit = this.maxLimit;
+        this.onLimitRaised = onLimitRaised;
+        if (!enabled || sampler != null) {
+            return;
+        }
+        metrics.registerAdmission(this);
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "admission-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleWithFixedDelay(this::sample, sampleInterval.toMillis(), sampleInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        System.out.println("Admission control: limit between " + minLimit + " and " + this.maxLimit
+                + (cgroupDir != null ? ", pressure read from cgroup " + cgroupDir : ", pressure read from the host")
+                + ", at least " + (minFreeMemoryBytes >> 20) + " MB available memory, requests shed beyond a "
+                + maxQueueWait.toSeconds() + " s queue wait");
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Requests this server currently admits at once
+    public synchronized int getLimit() {
+        if (!enabled) {
+            return maxLimit;
+        }
+        return Math.max(minLimit, Math.min(maxLimit, (int) limit));
+    }
+
+    // Longest queue wait a request is accepted with
+    public Duration getMaxQueueWait() {
+        return maxQueueWait;
+    }
+
+    public synchronized double getRunnablePerCore() {
+        return runnablePerCore;
+    }
+
+    // Share of the last 10 s in which this cgroup's tasks waited for a CPU, in percent; -1 when not read
+    public synchronized double getCpuPressure() {
+        return cpuPressure;
+    }
+
+    // Share of the last 10 s in which this cgroup's tasks stalled on memory, in percent; -1 when not read
+    public synchronized double getMemoryPressure() {
+        return memoryPressure;
+    }
+
+    // Bytes of memory available to new processes, or -1 when unknown
+    public synchronized long getAvailableMemory() {
+        return availableMemory;
+    }
+
+    // Average time requests held their slot over the long run
+    public synchronized double getBaselineMs() {
+        return baselineMs;
+    }
+
+    /**
+     * Records a request that left the pipeline after holding its slot for heldMs, with
+     * running requests admitted at the time.
+     */
+    public synchronized void onCompleted(double heldMs, int running) {
+        windowSumMs += heldMs;
+        windowCount++;
+        windowMaxRunning = Math.max(windowMaxRunning, running);
+    }
+
+    private void sample() {
+        double cpuStall = -1;
+        double memoryStall = -1;
+        if (cgroupDir != null) {
+            cpuStall = readStallPercent(cgroupDir.resolve("cpu.pressure"));
+            if (cpuStall < 0) {
+                cpuStall = readThrottledPercent();
+            }
+            memoryStall = readStallPercent(cgroupDir.resolve("memory.pressure"));
+        }
+        // Outside a cgroup, or in one without PSI or a CPU quota, the host's load is all there is
+        double runnable = cpuStall < 0 ? readRunnablePerCore() : -1;
+        adjust(runnable, cpuStall, memoryStall, readAvailableMemory());
+    }
+
+    /**
+     * One sampling step with the given readings, each -1 when unknown: runnable threads
+     * per core on the host, the cgroup's CPU and memory stall shares in percent, and
+     * available memory in bytes.
+     */
+    void adjust(double runnable, double cpuStall, double memoryStall, long available) {
+        boolean raised;
+        synchronized (this) {
+            if (runnable >= 0) {
+                runnablePerCore = runnablePerCore == 0
+                        ? runnable : runnablePerCore + LOAD_ALPHA * (runnable - runnablePerCore);
+            }
+            cpuPressure = cpuStall;
+            memoryPressure = memoryStall;
+            availableMemory = available;
+            boolean pressure = (runnable >= 0 && runnablePerCore > maxRunnablePerCore)
+                    || cpuStall > maxCpuPressure
+                    || memoryStall > maxMemoryPressure
+                    || (available >= 0 && available < minFreeMemoryBytes);
+            int before = getLimit();
+
+            if (pressure) {
+                limit = Math.max(minLimit, Math.min(limit, maxLimit) * backoffRatio);
+            } else if (windowCount > 0) {
+                double presentMs = windowSumMs / windowCount;
+                if (baselineMs == 0) {
+                    baselineMs = presentMs;
+                }
+                double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * baselineMs / presentMs));
+                // An idle node keeps its limit; only a limit that was used can prove it is too low
+                double headroom = windowMaxRunning >= getLimit() ? Math.sqrt(limit) : 0;
+                double target = limit * gradient + headroom;
+                limit = Math.max(minLimit, Math.min(maxLimit, limit + SMOOTHING * (target - limit)));
+                // The baseline follows improvements quickly and degradations slowly
+                baselineMs += (presentMs < baselineMs ? 0.5 : BASELINE_ALPHA) * (presentMs - baselineMs);
+            }
+            windowSumMs = 0;
+            windowCount = 0;
+            windowMaxRunning = 0;
+            raised = getLimit() > before;
+        }
+        if (raised) {
+            onLimitRaised.run();
+        }
+    }
+
+    // Runnable threads per core right now, from /proc/loadavg; else the one-minute load average
+    private double readRunnablePerCore() {
+        try {
+            if (Files.isReadable(LOADAVG)) {
+                String running = Files.readString(LOADAVG).trim().split("\\s+")[3];
+                return Integer.parseInt(running.substring(0, running.indexOf('/'))) / (double) cores;
+            }
+        } catch (IOException | RuntimeException e) {
+            // Fall through to the platform load average
+        }
+        double load = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+        return load < 0 ? 0 : load / cores;
+    }
+
+    // Share of time the CPU quota throttled this cgroup since the last sample, from cpu.stat; -1 without a quota
+    private double readThrottledPercent() {
+        try {
+            String quota = Files.readString(cgroupDir.resolve("cpu.max")).trim().split("\\s+")[0];
+            long throttled = readKey(cgroupDir.resolve("cpu.stat"), "throttled_usec");
+            if (quota.equals("max") || throttled < 0) {
+                return -1;
+            }
+            long now = System.nanoTime();
+            double percent = lastThrottledUsec < 0
+                    ? 0 : 100.0 * (throttled - lastThrottledUsec) * 1000 / Math.max(1, now - lastThrottledAt);
+            lastThrottledUsec = throttled;
+            lastThrottledAt = now;
+            return Math.min(100, Math.max(0, percent));
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    // The host figure, capped by what the cgroup's memory.max still allows
+    private long readAvailableMemory() {
+        long host = readHostAvailableMemory();
+        long cgroup = cgroupDir != null ? readCgroupAvailableMemory(cgroupDir) : -1;
+        if (cgroup < 0) {
+            return host;
+        }
+        return host < 0 ? cgroup : Math.min(host, cgroup);
+    }
+
+    /**
+     * The cgroup v2 directory of this process, from its "0::" line in /proc/self/cgroup,
+     * or null when it does not run in a cgroup v2 hierarchy.
+     */
+    static Path findCgroup(Path procCgroup, Path root) {
+        try {
+            if (!Files.isReadable(procCgroup) || !Files.exists(root.resolve("cgroup.controllers"))) {
+                return null;
+            }
+            for (String line : Files.readAllLines(procCgroup)) {
+                if (line.startsWith("0::/")) {
+                    Path dir = root.resolve(line.substring(4)).normalize();
+                    return dir.startsWith(root) && Files.isDirectory(dir) ? dir : null;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not in a readable cgroup v2 hierarchy
+        }
+        return null;
+    }
+
+    // The "some avg10" figure of a PSI file such as cpu.pressure, in percent; -1 when unavailable
+    static double readStallPercent(Path pressureFile) {
+        try {
+            if (Files.isReadable(pressureFile)) {
+                for (String line : Files.readAllLines(pressureFile)) {
+                    if (line.startsWith("some ")) {
+                        for (String field : line.split("\\s+")) {
+                            if (field.startsWith("avg10=")) {
+                                return Double.parseDouble(field.substring("avg10=".length()));
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // PSI disabled or not readable
+        }
+        return -1;
+    }
+
+    // memory.max less what the cgroup uses, counting inactive page cache as free; -1 without a limit
+    static long readCgroupAvailableMemory(Path cgroupDir) {
+        try {
+            String max = Files.readString(cgroupDir.resolve("memory.max")).trim();
+            if (max.equals("max")) {
+                return -1;
+            }
+            long current = Long.parseLong(Files.readString(cgroupDir.resolve("memory.current")).trim());
+            long reclaimable = Math.max(0, readKey(cgroupDir.resolve("memory.stat"), "inactive_file"));
+            return Math.max(0, Long.parseLong(max) - current + reclaimable);
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    // Value of a "key value" line in a flat-keyed cgroup file; -1 when absent
+    private static long readKey(Path file, String key) throws IOException {
+        for (String line : Files.readAllLines(file)) {
+            if (line.startsWith(key + " ")) {
+                return Long.parseLong(line.substring(key.length() + 1).trim());
+            }
+        }
+        return -1;
+    }
+
+    // MemAvailable from /proc/meminfo, which counts reclaimable cache; else free physical memory
+    private static long readHostAvailableMemory() {
+        try {
+            if (Files.isReadable(MEMINFO)) {
+                List<String> lines = Files.readAllLines(MEMINFO);
+                for (String line : lines) {
+                    if (line.startsWith("MemAvailable:")) {
+                        return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Fall through to the platform figure
+        }
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getFreeMemorySize();
+        }
+        return -1;
+    }
+}
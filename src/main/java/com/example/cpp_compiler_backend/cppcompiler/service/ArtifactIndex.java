@@ -0,0 +1,262 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped index of the binary cache: one fixed 64-byte record per stored
+ * artifact, so it survives restarts and is read back without parsing anything.
+ *
+ * Layout: a 64-byte header (magic, version, toolchain fingerprint, slots in use)
+ * followed by records of
+ * <pre>
+ *   0  32 bytes  SHA-256 cache key
+ *  32   1 byte   state: 1 live, 2 removed
+ *  33   1 byte   kind: 1 executable, 2 object file
+ *  36   4 bytes  CRC32 of key, kind, size and creation time
+ *  40   8 bytes  size in bytes
+ *  48   8 bytes  creation time, epoch millis
+ *  56   8 bytes  last access, epoch millis (updated in place, not checksummed)
+ * </pre>
+ * A record is written completely before the slot count in the header is raised, and
+ * a record whose checksum does not match is skipped, so a crash mid-write loses at
+ * most the artifact being added. Removed records stay until {@link #rewrite(List)}
+ * compacts the file, which writes a new index next to it and renames it into place.
+ * Not thread-safe; BinaryCache serializes all access.
+ */
+class ArtifactIndex implements Closeable {
+
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_BYTES = 64;
+
+    private static final long MAGIC = 0x4350504152544631L; // "CPPARTF1"
+    private static final int VERSION = 1;
+    private static final int MIN_SLOTS = 1024;
+
+    private static final int COUNT_OFFSET = 24;
+    private static final int FINGERPRINT_OFFSET = 16;
+
+    private static final byte LIVE = 1;
+    private static final byte REMOVED = 2;
+    private static final byte EXECUTABLE = 1;
+    private static final byte OBJECT = 2;
+
+    private final Path file;
+    private final long fingerprint;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int count;
+    private int removed;
+    private boolean reset;
+
+    /**
+     * A live record as read from or written to the index.
+     */
+    record Record(int slot, String key, boolean object, long size, long createdAt, long lastAccess) {
+    }
+
+    /**
+     * Opens the index, or starts an empty one when the file is missing, unreadable or
+     * was written for other toolchains (fingerprint mismatch).
+     */
+    ArtifactIndex(Path file, long fingerprint) throws IOException {
+        this.file = file;
+        this.fingerprint = fingerprint;
+        if (!isUsable(file, fingerprint)) {
+            reset = Files.exists(file);
+            Files.deleteIfExists(file);
+            create(file, fingerprint, MIN_SLOTS);
+        }
+        map();
+        count = buffer.getInt(COUNT_OFFSET);
+        if (count < 0 || count > capacity()) {
+            // A header that does not fit the file cannot be trusted
+            count = 0;
+            reset = true;
+        }
+    }
+
+    /**
+     * Whether the index on disk was discarded when it was opened, e.g. after a compiler upgrade.
+     */
+    boolean wasReset() {
+        return reset;
+    }
+
+    /**
+     * Live records with a valid checksum, in slot order. Records that fail the check
+     * are marked removed.
+     */
+    List<Record> records() {
+        List<Record> records = new ArrayList<>();
+        removed = 0;
+        for (int slot = 0; slot < count; slot++) {
+            int offset = offset(slot);
+            if (buffer.get(offset + 32) != LIVE) {
+                removed++;
+                continue;
+            }
+            byte[] key = new byte[32];
+            buffer.get(offset, key);
+            byte kind = buffer.get(offset + 33);
+            long size = buffer.getLong(offset + 40);
+            long createdAt = buffer.getLong(offset + 48);
+            if (buffer.getInt(offset + 36) != checksum(key, kind, size, createdAt)) {
+                buffer.put(offset + 32, REMOVED);
+                removed++;
+                continue;
+            }
+            records.add(new Record(slot, HexFormat.of().formatHex(key), kind == OBJECT, size, createdAt,
+                    buffer.getLong(offset + 56)));
+        }
+        return records;
+    }
+
+    /**
+     * Adds a record and flushes it to disk; returns its slot.
+     */
+    int append(String key, boolean object, long size, long createdAt) throws IOException {
+        if (count == capacity()) {
+            grow();
+        }
+        int slot = count;
+        write(buffer, offset(slot), key, object, size, createdAt, createdAt);
+        buffer.putInt(COUNT_OFFSET, ++count);
+        buffer.force();
+        return slot;
+    }
+
+    // Records a hit; lost on a crash, which only makes the entry look older
+    void touch(int slot, long lastAccess) {
+        buffer.putLong(offset(slot) + 56, lastAccess);
+    }
+
+    void remove(int slot) {
+        buffer.put(offset(slot) + 32, REMOVED);
+        buffer.force();
+        removed++;
+    }
+
+    // Slots taken by removed records, reclaimed by the next rewrite
+    int getRemovedCount() {
+        return removed;
+    }
+
+    int getSlotCount() {
+        return count;
+    }
+
+    /**
+     * Replaces the index with exactly these records, in this order; record i gets slot i.
+     * The new file is written and flushed beside the old one and renamed over it.
+     */
+    void rewrite(List<Record> records) throws IOException {
+        Path next = file.resolveSibling(file.getFileName() + ".next");
+        Files.deleteIfExists(next);
+        create(next, fingerprint, Math.max(MIN_SLOTS, records.size() * 2));
+        try (FileChannel out = FileChannel.open(next, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer target = out.map(FileChannel.MapMode.READ_WRITE, 0, out.size());
+            for (int i = 0; i < records.size(); i++) {
+                Record record = records.get(i);
+                write(target, HEADER_BYTES + i * RECORD_BYTES, record.key(), record.object(), record.size(),
+                        record.createdAt(), record.lastAccess());
+            }
+            target.putInt(COUNT_OFFSET, records.size());
+            target.force();
+        }
+        channel.close();
+        Files.move(next, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        map();
+        count = records.size();
+        removed = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    private void map() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+    }
+
+    // Doubles the file; the slots already written keep their place
+    private void grow() throws IOException {
+        long size = HEADER_BYTES + (long) capacity() * 2 * RECORD_BYTES;
+        channel.write(ByteBuffer.allocate(1), size - 1);
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private int capacity() {
+        return (buffer.capacity() - HEADER_BYTES) / RECORD_BYTES;
+    }
+
+    private static int offset(int slot) {
+        return HEADER_BYTES + slot * RECORD_BYTES;
+    }
+
+    private static void write(ByteBuffer buffer, int offset, String key, boolean object, long size,
+                              long createdAt, long lastAccess) {
+        byte[] keyBytes = HexFormat.of().parseHex(key);
+        byte kind = object ? OBJECT : EXECUTABLE;
+        buffer.put(offset, keyBytes);
+        buffer.put(offset + 33, kind);
+        buffer.putLong(offset + 40, size);
+        buffer.putLong(offset + 48, createdAt);
+        buffer.putLong(offset + 56, lastAccess);
+        buffer.putInt(offset + 36, checksum(keyBytes, kind, size, createdAt));
+        // Live last, so a half-written record is never taken for a valid one
+        buffer.put(offset + 32, LIVE);
+    }
+
+    private static int checksum(byte[] key, byte kind, long size, long createdAt) {
+        CRC32 crc = new CRC32();
+        crc.update(key);
+        crc.update(kind);
+        crc.update(ByteBuffer.allocate(16).putLong(size).putLong(createdAt).flip());
+        return (int) crc.getValue();
+    }
+
+    private static boolean isUsable(Path file, long fingerprint) {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (in.size() < HEADER_BYTES + RECORD_BYTES || (in.size() - HEADER_BYTES) % RECORD_BYTES != 0) {
+                return false;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            in.read(header, 0);
+            return header.getLong(0) == MAGIC && header.getInt(8) == VERSION
+                    && header.getLong(FINGERPRINT_OFFSET) == fingerprint;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void create(Path file, long fingerprint, int slots) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putLong(0, MAGIC).putInt(8, VERSION).putLong(FINGERPRINT_OFFSET, fingerprint).putInt(COUNT_OFFSET, 0);
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            out.write(header, 0);
+            out.write(ByteBuffer.allocate(1), HEADER_BYTES + (long) slots * RECORD_BYTES - 1);
+            out.force(true);
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache of compiled executables and of the object files of
+ * multi-file projects.
+ *
+ * Entries are keyed by a hash of the source, compiler path and flags, kept on disk
+ * and evicted least-recently-used once the total size goes over the configured limit.
+ * Entries older than the TTL are dropped on lookup. An entry that is leased by a
+ * running request is never evicted until it is released.
+ *
+ * The cache persists across restarts. Every artifact is recorded in a memory-mapped
+ * index (see ArtifactIndex), which is read back on startup together with the access
+ * times, so the LRU order survives too. An artifact is copied into the cache
+ * directory under a temporary name, flushed and then renamed into place before it is
+ * indexed, so a crash leaves either a complete entry or an unindexed file, which the
+ * next start deletes. A background sweep drops expired entries, enforces the size
+ * quota and compacts the index. The index is discarded when the installed toolchains
+ * change, as binaries from another compiler version must not be served. Only one
+ * process may use a cache directory; a second one runs without the cache.
+ *
+ * The directory is opened on first use rather than at startup, so a lazily initialized
+ * server neither probes the toolchains nor scans the cache before it takes requests.
+ */
+@Component
+public class BinaryCache {
+
+    private static final String INDEX_FILE = "index.bin";
+    private static final String LOCK_FILE = "store.lock";
+    private static final String TEMP_DIR = "tmp";
+    // Removed index records tolerated before the sweep compacts the index
+    private static final int COMPACT_THRESHOLD = 256;
+
+    private final boolean configured;
+    private final LongSupplier fingerprint;
+    private final Path cacheDir;
+    private final long maxSizeBytes;
+    private final Duration ttl;
+    private final Duration sweepInterval;
+    private boolean opened;
+    private boolean enabled;
+    private ArtifactIndex index;
+    private FileChannel lockChannel;
+    private ScheduledExecutorService sweeper;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public BinaryCache(ObjectProvider<ToolchainRegistry> toolchains,
+                       @Value("${compiler.cache.enabled:true}") boolean enabled,
+                       @Value("${compiler.cache.dir:${compiler.data-dir:${user.home}/.cpp-compiler}/artifacts}") String cacheDir,
+                       @Value("${compiler.cache.max-size-bytes:268435456}") long maxSizeBytes,
+                       @Value("${compiler.cache.ttl:24h}") Duration ttl,
+                       @Value("${compiler.cache.sweep-interval:1m}") Duration sweepInterval) {
+        this(() -> fingerprint(toolchains.getObject()), enabled, cacheDir, maxSizeBytes, ttl, sweepInterval);
+    }
+
+    // fingerprint identifies the installed toolchains; it is only asked for when the cache is opened
+    BinaryCache(LongSupplier fingerprint, boolean enabled, String cacheDir, long maxSizeBytes, Duration ttl,
+                Duration sweepInterval) {
+        this.fingerprint = fingerprint;
+        this.configured = enabled;
+        this.cacheDir = Path.of(cacheDir);
+        this.maxSizeBytes = maxSizeBytes;
+        this.ttl = ttl;
+        this.sweepInterval = sweepInterval;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        // Not opened after this, even by a late request
+        opened = true;
+        enabled = false;
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+        try {
+            if (index != null) {
+                index.close();
+            }
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to close binary cache index: " + e.getMessage());
+        }
+    }
+
+    public synchronized boolean isEnabled() {
+        return ready();
+    }
+
+    /**
+     * Builds the cache key for a compilation: SHA-256 over compiler, flags and source.
+     */
+    public static String key(String code, String compilerPath, String flags) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(compilerPath.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(flags.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(code.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Looks up a cached executable and leases it. Returns null on a miss.
+     * Every non-null result must be handed back through {@link #release(String)}.
+     */
+    public synchronized Path acquire(String key) {
+        if (!ready()) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry != null && isExpired(entry) && entry.leases == 0) {
+            remove(key, entry);
+            entry = null;
+        }
+        if (entry == null || !Files.exists(entry.path)) {
+            if (entry != null) {
+                remove(key, entry);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        entry.leases++;
+        hits.incrementAndGet();
+        entry.lastAccess = System.currentTimeMillis();
+        index.touch(entry.slot, entry.lastAccess);
+        return entry.path;
+    }
+
+    public synchronized void release(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.leases > 0) {
+            entry.leases--;
+        }
+    }
+
+    /**
+     * Moves a freshly compiled executable into the cache. Returns the cached path,
+     * or the original path if the cache is disabled or the move failed.
+     */
+    public Path store(String key, Path executable) {
+        return store(key, executable, false);
+    }
+
+    /**
+     * Like {@link #store(String, Path)}, but when the file is moved into the cache it is
+     * also leased, so it cannot be evicted before the caller releases it.
+     */
+    public Path store(String key, Path executable, boolean lease) {
+        if (!isEnabled()) {
+            return executable;
+        }
+        boolean object = executable.toString().endsWith(".o");
+        Path target = cacheDir.resolve(key + (object ? ".o" : ".exe"));
+        Path temp = cacheDir.resolve(TEMP_DIR).resolve(key + "." + UUID.randomUUID());
+        try {
+            long size = Files.size(executable);
+            if (size > maxSizeBytes) {
+                return executable;
+            }
+            // Copied and flushed outside the lock; the work directory is usually another file system
+            Files.copy(executable, temp);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            synchronized (this) {
+                Entry existing = entries.get(key);
+                if (existing != null) {
+                    // Another request compiled the same source first
+                    Files.delete(temp);
+                    return executable;
+                }
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                long now = System.currentTimeMillis();
+                Entry entry = new Entry(target, size, now, index.append(key, object, size, now));
+                entry.leases = lease ? 1 : 0;
+                entries.put(key, entry);
+                totalBytes += size;
+                evict();
+            }
+            Files.deleteIfExists(executable);
+            return target;
+        } catch (IOException e) {
+            System.err.println("Failed to cache executable: " + e.getMessage());
+            deleteFile(temp);
+            return executable;
+        }
+    }
+
+    public synchronized Stats stats() {
+        ready();
+        return new Stats(hits.get(), misses.get(), entries.size(), totalBytes, maxSizeBytes);
+    }
+
+    // Opens the cache directory on first use; false if the cache is off or cannot be used
+    private boolean ready() {
+        if (!opened) {
+            opened = true;
+            enabled = configured && open(fingerprint.getAsLong());
+            if (enabled) {
+                sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "binary-cache-sweeper");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                sweeper.scheduleWithFixedDelay(this::sweep, sweepInterval.toMillis(), sweepInterval.toMillis(),
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+        return enabled;
+    }
+
+    /**
+     * Opens the index and the files it lists, dropping entries whose file is gone or has
+     * the wrong size and files that no entry lists. False if the cache cannot be used.
+     */
+    private boolean open(long fingerprint) {
+        try {
+            Files.createDirectories(cacheDir.resolve(TEMP_DIR));
+            lockChannel = FileChannel.open(cacheDir.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock;
+            try {
+                lock = lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                System.err.println("Binary cache directory " + cacheDir + " is in use by another process, caching disabled");
+                lockChannel.close();
+                return false;
+            }
+
+            index = new ArtifactIndex(cacheDir.resolve(INDEX_FILE), fingerprint);
+            if (index.wasReset()) {
+                System.out.println("Binary cache index was reset (new toolchains or unreadable index)");
+            }
+            List<ArtifactIndex.Record> records = new ArrayList<>(index.records());
+            // Least recently used first, as the access-ordered map expects
+            records.sort(Comparator.comparingLong(ArtifactIndex.Record::lastAccess));
+            Set<Path> indexed = new HashSet<>();
+            for (ArtifactIndex.Record record : records) {
+                Path path = cacheDir.resolve(record.key() + (record.object() ? ".o" : ".exe"));
+                if (!Files.isRegularFile(path) || Files.size(path) != record.size()) {
+                    index.remove(record.slot());
+                    continue;
+                }
+                Entry entry = new Entry(path, record.size(), record.createdAt(), record.slot());
+                entry.lastAccess = record.lastAccess();
+                entries.put(record.key(), entry);
+                totalBytes += record.size();
+                indexed.add(path);
+            }
+
+            // Leftovers of interrupted writes and files from an index that was reset
+            try (Stream<Path> files = Stream.concat(Files.list(cacheDir), Files.list(cacheDir.resolve(TEMP_DIR)))) {
+                files.filter(file -> {
+                    String name = file.getFileName().toString();
+                    return Files.isRegularFile(file) && !indexed.contains(file)
+                            && !name.equals(INDEX_FILE) && !name.equals(LOCK_FILE);
+                }).forEach(BinaryCache::deleteFile);
+            }
+            synchronized (this) {
+                evict();
+                compactIfNeeded();
+            }
+            System.out.println("Using binary cache directory: " + cacheDir + " (" + entries.size() + " entries, "
+                    + (totalBytes >> 20) + " MB restored)");
+            Path tmpDir = Path.of(System.getProperty("java.io.tmpdir")).toAbsolutePath().normalize();
+            if (cacheDir.toAbsolutePath().normalize().startsWith(tmpDir)) {
+                System.err.println("Binary cache directory " + cacheDir + " is in the temporary directory and may not"
+                        + " survive a reboot; point compiler.data-dir at persistent storage");
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to open binary cache in " + cacheDir + ", caching disabled: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Background upkeep: expiry, the size quota and index compaction
+    private synchronized void sweep() {
+        try {
+            evict();
+            compactIfNeeded();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Binary cache sweep failed: " + e.getMessage());
+        }
+    }
+
+    // Rewrites the index without its removed records once they outnumber the live ones
+    private void compactIfNeeded() throws IOException {
+        if (index.getRemovedCount() < COMPACT_THRESHOLD || index.getRemovedCount() < entries.size()) {
+            return;
+        }
+        List<ArtifactIndex.Record> records = new ArrayList<>();
+        List<Entry> live = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            records.add(new ArtifactIndex.Record(records.size(), e.getKey(), entry.path.toString().endsWith(".o"),
+                    entry.size, entry.createdAt, entry.lastAccess));
+            live.add(entry);
+        }
+        index.rewrite(records);
+        for (int slot = 0; slot < live.size(); slot++) {
+            live.get(slot).slot = slot;
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next().getValue();
+            boolean overSize = totalBytes > maxSizeBytes;
+            if (!overSize && !isExpired(entry)) {
+                continue;
+            }
+            if (entry.leases > 0) {
+                continue;
+            }
+            it.remove();
+            totalBytes -= entry.size;
+            index.remove(entry.slot);
+            deleteFile(entry.path);
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        entries.remove(key);
+        totalBytes -= entry.size;
+        index.remove(entry.slot);
+        deleteFile(entry.path);
+    }
+
+    private boolean isExpired(Entry entry) {
+        return System.currentTimeMillis() - entry.createdAt > ttl.toMillis();
+    }
+
+    private static void deleteFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Failed to delete cached executable " + path + ": " + e.getMessage());
+        }
+    }
+
+    // Identifies the installed compilers; a persisted cache is only valid for the same ones
+    private static long fingerprint(ToolchainRegistry toolchains) {
+        StringBuilder spec = new StringBuilder();
+        toolchains.getToolchains().stream()
+                .map(toolchain -> toolchain.getPath() + "=" + toolchain.getVersion())
+                .sorted()
+                .forEach(line -> spec.append(line).append('\n'));
+        return Long.parseUnsignedLong(key(spec.toString(), "", "").substring(0, 15), 16);
+    }
+
+    private static class Entry {
+        private final Path path;
+        private final long size;
+        private final long createdAt;
+        private int slot;
+        private long lastAccess;
+        private int leases;
+
+        private Entry(Path path, long size, long createdAt, int slot) {
+            this.path = path;
+            this.size = size;
+            this.createdAt = createdAt;
+            this.slot = slot;
+            this.lastAccess = createdAt;
+        }
+    }
+
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final int entries;
+        private final long sizeBytes;
+        private final long maxSizeBytes;
+
+        public Stats(long hits, long misses, int entries, long sizeBytes, long maxSizeBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.entries = entries;
+            this.sizeBytes = sizeBytes;
+            this.maxSizeBytes = maxSizeBytes;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public double getHitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        public int getEntries() {
+            return entries;
+        }
+
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        public long getMaxSizeBytes() {
+            return maxSizeBytes;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+/**
+ * Per-request compiler selection. Any field left null uses the server default.
+ */
+public class CompileOptions {
+
+    public static final CompileOptions DEFAULT = new CompileOptions(null, null, null);
+
+    private final String toolchain;
+    private final String standard;
+    private final String optimization;
+
+    public CompileOptions(String toolchain, String standard, String optimization) {
+        this.toolchain = blankToNull(toolchain);
+        this.standard = blankToNull(standard);
+        this.optimization = blankToNull(optimization);
+    }
+
+    public String getToolchain() {
+        return toolchain;
+    }
+
+    public String getStandard() {
+        return standard;
+    }
+
+    public String getOptimization() {
+        return optimization;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Micrometer meters for the compile and run pipeline, published through Actuator
+ * (/actuator/metrics and /actuator/prometheus).
+ *
+ * Timers and histograms publish percentile histograms so p99 latency can be broken
+ * down by stage. Everything except the scratch-directory gauge is tagged by toolchain.
+ */
+@Component
+public class CompilerMetrics {
+
+    // Outcomes counted by compiler.results
+    public static final String SUCCESS = "success";
+    public static final String COMPILE_ERROR = "compile-error";
+    public static final String RUNTIME_ERROR = "runtime-error";
+    public static final String TIMEOUT = "timeout";
+
+    // Tag value when no toolchain is known, e.g. no compiler installed
+    private static final String NO_TOOLCHAIN = "none";
+
+    private final MeterRegistry registry;
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public CompilerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    // Time a task spent queued before a worker of its stage picked it up
+    public void recordQueueWait(String stage, String toolchain, long nanos) {
+        Timer.builder("compiler.queue.wait")
+                .description("Time spent waiting for a pipeline worker")
+                .tag("stage", stage)
+                .tag("toolchain", tag(toolchain))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordCompile(String toolchain, boolean cacheHit, long nanos) {
+        Timer.builder("compiler.compile")
+                .description("Time spent compiling, including binary cache lookups")
+                .tag("toolchain", tag(toolchain))
+                .tag("cache", cacheHit ? "hit" : "miss")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordExecution(String toolchain, long nanos) {
+        Timer.builder("compiler.execution")
+                .description("Wall-clock time of one program run")
+                .tag("toolchain", tag(toolchain))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordCleanup(String toolchain, long nanos) {
+        Timer.builder("compiler.cleanup")
+                .description("Time spent removing scratch files and releasing cached executables")
+                .tag("toolchain", tag(toolchain))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordOutcome(String toolchain, String outcome) {
+        registry.counter("compiler.results", "toolchain", tag(toolchain), "outcome", outcome).increment();
+    }
+
+    public void recordSourceSize(String toolchain, long bytes) {
+        DistributionSummary.builder("compiler.source.size")
+                .description("Size of submitted sources")
+                .baseUnit("bytes")
+                .tag("toolchain", tag(toolchain))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(bytes);
+    }
+
+    public void recordOutputSize(String toolchain, long bytes) {
+        DistributionSummary.builder("compiler.output.size")
+                .description("Bytes of stdout and stderr captured per run")
+                .baseUnit("bytes")
+                .tag("toolchain", tag(toolchain))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(bytes);
+    }
+
+    /**
+     * Returns the counter of tasks queued or running for a toolchain, registering its
+     * gauge on first use. Callers increment on submission and decrement when done.
+     */
+    public AtomicInteger inFlight(String toolchain) {
+        return inFlight.computeIfAbsent(tag(toolchain), key -> {
+            AtomicInteger count = new AtomicInteger();
+            Gauge.builder("compiler.in.flight", count, AtomicInteger::get)
+                    .description("Compile and run tasks queued or executing")
+                    .tag("toolchain", key)
+                    .register(registry);
+            return count;
+        });
+    }
+
+    // Reports the bytes currently held in the scratch directory
+    public void registerWorkDir(Path workDir) {
+        Gauge.builder("compiler.workdir.usage", workDir, CompilerMetrics::directorySize)
+                .description("Bytes used by executables and sandboxes in the scratch directory")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public void registerSandboxPool(SandboxPool pool) {
+        Gauge.builder("compiler.sandbox.size", pool, SandboxPool::getSize)
+                .description("Sandboxes in the pool, leased or idle")
+                .register(registry);
+        Gauge.builder("compiler.sandbox.idle", pool, SandboxPool::getIdleCount)
+                .description("Sandboxes ready to be leased")
+                .register(registry);
+    }
+
+    public void registerScheduler(RequestScheduler scheduler) {
+        Gauge.builder("compiler.scheduler.running", scheduler, RequestScheduler::getRunning)
+                .description("Requests admitted into the pipeline")
+                .register(registry);
+        for (RequestScheduler.Priority priority : RequestScheduler.Priority.values()) {
+            Gauge.builder("compiler.scheduler.queued", scheduler, s -> s.getQueued(priority))
+                    .description("Requests waiting for admission")
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(registry);
+        }
+    }
+
+    public void registerAdmission(AdmissionController admission) {
+        Gauge.builder("compiler.admission.limit", admission, AdmissionController::getLimit)
+                .description("Requests this server currently admits at once")
+                .register(registry);
+        Gauge.builder("compiler.admission.runnable.per.core", admission, AdmissionController::getRunnablePerCore)
+                .description("Smoothed number of runnable threads per core on the host")
+                .register(registry);
+        Gauge.builder("compiler.admission.cpu.pressure", admission, AdmissionController::getCpuPressure)
+                .description("Share of time this cgroup's tasks waited for a CPU, -1 outside a cgroup")
+                .baseUnit("percent")
+                .register(registry);
+        Gauge.builder("compiler.admission.memory.pressure", admission, AdmissionController::getMemoryPressure)
+                .description("Share of time this cgroup's tasks stalled on memory, -1 outside a cgroup")
+                .baseUnit("percent")
+                .register(registry);
+        Gauge.builder("compiler.admission.memory.available", admission, AdmissionController::getAvailableMemory)
+                .description("Memory available to new processes, within the cgroup's limit")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("compiler.admission.latency.baseline", admission, AdmissionController::getBaselineMs)
+                .description("Long-run average time a request holds its slot")
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    public void recordShed(String priority) {
+        registry.counter("compiler.admission.shed", "priority", priority).increment();
+    }
+
+    private static double directorySize(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.mapToLong(file -> {
+                try {
+                    return Files.isRegularFile(file) ? Files.size(file) : 0;
+                } catch (IOException e) {
+                    // Removed while we were listing
+                    return 0;
+                }
+            }).sum();
+        } catch (IOException | UncheckedIOException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static String tag(String toolchain) {
+        return toolchain != null ? toolchain : NO_TOOLCHAIN;
+    }
+}
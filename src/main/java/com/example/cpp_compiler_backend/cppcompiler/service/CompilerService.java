@@ -1,43 +1,156 @@
 package com.example.cpp_compiler_backend.cppcompiler.service;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import java.io.BufferedReader;
+
+import com.example.cpp_compiler_backend.cppcompiler.model.CompileRequest;
+import com.example.cpp_compiler_backend.cppcompiler.model.CompileResponse;
+
+import jakarta.annotation.PreDestroy;
+
 import java.io.File;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class CompilerService {
 
-    // Use Documents folder for better permissions
-    private final String COMPILER_DIR = System.getProperty("user.home") + File.separator + "Documents" + File.separator + "cpp-compiler";
-    
-    // Try all available compilers
-    private final String[] GCC_PATHS = {
-        "C:\\MinGW\\bin\\g++.exe",
-        "C:\\msys64\\ucrt64\\bin\\g++.exe",
-        "C:\\Program Files (x86)\\cpeditor\\mingw64\\bin\\g++.exe",
-        "C:\\Program Files\\mingw-w64\\x86_64-8.1.0-posix-seh-rt_v6-rev0\\mingw64\\bin\\g++.exe"
-    };
-
-    public CompilerService() {
+    private static final boolean IS_WINDOWS = System.getProperty("os.name").toLowerCase().startsWith("windows");
+
+    // How long output may still be read after a process has exited or was killed
+    private static final Duration CAPTURE_GRACE = Duration.ofSeconds(2);
+
+    private static final String COMPILATION_FAILED = "Compilation failed:\n";
+    private static final String LINKING_FAILED = "Linking failed:\n";
+
+    private static final Set<String> OPTIMIZATION_LEVELS = Set.of("O0", "O1", "O2", "O3", "Os", "Og");
+
+    private final BinaryCache binaryCache;
+    private final ResultCache resultCache;
+    private final PrecompiledHeaderManager pchManager;
+    private final ToolchainRegistry toolchainRegistry;
+    private final ResourceLimiter resourceLimiter;
+    private final CompilerMetrics metrics;
+    private final WorkerRouter workerRouter;
+
+    // Extra flags passed to the compiler; part of the binary cache key
+    private final String compileFlags;
+
+    // Compile and run are separate stages with their own workers and time limits
+    private final ExecutorService compileExecutor;
+    private final ExecutorService runExecutor;
+    private final Duration compileTimeout;
+    private final Duration runTimeout;
+
+    // Scratch directory for sources and executables; tmpfs-backed when available
+    private final Path workDir;
+
+    // Clean scratch directories and pre-forked launchers, leased per compile and per run
+    private final SandboxPool sandboxPool;
+
+    // Most bytes of output kept per process, stdout and stderr combined
+    private final long maxOutputBytes;
+
+    // Most stdout bytes a streamed run may send to the client, and its wall-clock limit,
+    // which also covers moving the data; CPU time is still limited per run
+    private final long maxStreamOutputBytes;
+    private final Duration streamRunTimeout;
+
+    // Drain process output and feed stdin on virtual threads instead of platform threads
+    private final boolean virtualThreads;
+
+    // Most files, sources and headers together, accepted in one project
+    private final int maxProjectFiles;
+
+    // Identical compilations and runs in flight at the same time share one process
+    private final boolean coalescing;
+    private final RequestCoalescer<CompiledProgram> compileCoalescer = new RequestCoalescer<>(CompilerService::shareProgram);
+    private final RequestCoalescer<RunResult> runCoalescer = new RequestCoalescer<>((result, callers) -> result);
+
+    public CompilerService(BinaryCache binaryCache,
+                           ResultCache resultCache,
+                           PrecompiledHeaderManager pchManager,
+                           ToolchainRegistry toolchainRegistry,
+                           ResourceLimiter resourceLimiter,
+                           CompilerMetrics metrics,
+                           WorkerRouter workerRouter,
+                           @Value("${compiler.flags:}") String compileFlags,
+                           @Qualifier("compileExecutor") ExecutorService compileExecutor,
+                           @Qualifier("runExecutor") ExecutorService runExecutor,
+                           @Value("${compiler.compile.timeout:20s}") Duration compileTimeout,
+                           @Value("${compiler.run.timeout:10s}") Duration runTimeout,
+                           @Value("${compiler.work-dir:}") String workDir,
+                           @Value("${compiler.data-dir:${user.home}/.cpp-compiler}") String dataDir,
+                           @Value("${compiler.output.max-bytes:1048576}") long maxOutputBytes,
+                           @Value("${compiler.stream.max-output-bytes:268435456}") long maxStreamOutputBytes,
+                           @Value("${compiler.stream.run-timeout:60s}") Duration streamRunTimeout,
+                           @Value("${compiler.sandbox.min-size:2}") int sandboxMinSize,
+                           @Value("${compiler.sandbox.max-size:8}") int sandboxMaxSize,
+                           @Value("${compiler.sandbox.max-jobs:100}") int sandboxMaxJobs,
+                           @Value("${compiler.sandbox.health-check-interval:30s}") Duration sandboxHealthCheckInterval,
+                           @Value("${compiler.sandbox.prefork:true}") boolean sandboxPrefork,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                           @Value("${compiler.coalescing.enabled:true}") boolean coalescing,
+                           @Value("${compiler.project.max-files:64}") int maxProjectFiles) {
+        this.binaryCache = binaryCache;
+        this.resultCache = resultCache;
+        this.pchManager = pchManager;
+        this.toolchainRegistry = toolchainRegistry;
+        this.resourceLimiter = resourceLimiter;
+        this.metrics = metrics;
+        this.workerRouter = workerRouter;
+        this.compileFlags = compileFlags.trim();
+        this.compileExecutor = compileExecutor;
+        this.runExecutor = runExecutor;
+        this.compileTimeout = compileTimeout;
+        this.runTimeout = runTimeout;
+        this.workDir = resolveWorkDir(workDir, dataDir);
+        this.maxOutputBytes = maxOutputBytes;
+        this.maxStreamOutputBytes = maxStreamOutputBytes;
+        this.streamRunTimeout = streamRunTimeout;
+        this.virtualThreads = virtualThreads;
+        this.coalescing = coalescing;
+        this.maxProjectFiles = maxProjectFiles;
+        this.sandboxPool = new SandboxPool(this.workDir.resolve("sandboxes"), sandboxMinSize, sandboxMaxSize,
+                sandboxMaxJobs, sandboxHealthCheckInterval, sandboxPrefork, resourceLimiter);
+        metrics.registerSandboxPool(sandboxPool);
+
         // Create the compiler directory if it doesn't exist
         try {
-            File dir = new File(COMPILER_DIR);
-            if (!dir.exists()) {
-                dir.mkdirs();
-            }
-            System.out.println("Using compiler directory: " + COMPILER_DIR);
-            
-            // Find a working compiler
-            for (String gccPath : GCC_PATHS) {
-                File gccFile = new File(gccPath);
-                if (gccFile.exists()) {
-                    System.out.println("Found working compiler: " + gccPath);
-                    break;
+            Files.createDirectories(this.workDir);
+            System.out.println("Using compiler directory: " + this.workDir);
+            metrics.registerWorkDir(this.workDir);
+
+            // Precompiled headers for the default toolchain and flags are built straight away
+            Toolchain toolchain = toolchainRegistry.getDefault();
+            if (toolchain != null) {
+                System.out.println("Default toolchain: " + toolchain.getId() + " at " + toolchain.getPath());
+                if (toolchain.isPchSupported()) {
+                    pchManager.warmUp(toolchain.getPath(), this.compileFlags);
                 }
             }
         } catch (Exception e) {
@@ -45,218 +158,1402 @@ public class CompilerService {
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        sandboxPool.close();
+    }
+
+    // Prefer the configured directory, then /dev/shm so scratch files stay in memory, then the data directory
+    private static Path resolveWorkDir(String configured, String dataDir) {
+        if (configured != null && !configured.isBlank()) {
+            return Path.of(configured);
+        }
+        if (!IS_WINDOWS && Files.isDirectory(Path.of("/dev/shm")) && Files.isWritable(Path.of("/dev/shm"))) {
+            return Path.of("/dev/shm/cpp-compiler");
+        }
+        return Path.of(dataDir, "work");
+    }
+
     // Overloaded method for backward compatibility
     public CompileResult compileCppCode(String code) {
         return compileCppCode(code, "");
     }
 
+    /**
+     * Compiles and runs a program. Each stage is handed to its own worker pool;
+     * throws {@link PipelineBusyException} if either pool is saturated.
+     */
     public CompileResult compileCppCode(String code, String input) {
-        CompileResult result = new CompileResult();
-        String uniqueId = UUID.randomUUID().toString();
-        String sourceFilePath = COMPILER_DIR + File.separator + uniqueId + ".cpp";
-        String executableFilePath = COMPILER_DIR + File.separator + uniqueId + ".exe";
-        String batchFilePath = COMPILER_DIR + File.separator + "compile_" + uniqueId + ".bat";
-        String outputFilePath = COMPILER_DIR + File.separator + uniqueId + "_output.txt";
-        String inputFilePath = COMPILER_DIR + File.separator + uniqueId + "_input.txt";
-        
-        try {
-            // Write the code to a file
-            Files.write(Path.of(sourceFilePath), code.getBytes());
-            
-            // Write input to a file if provided
-            boolean hasInput = input != null && !input.trim().isEmpty();
-            if (hasInput) {
-                Files.write(Path.of(inputFilePath), input.getBytes());
-                System.out.println("Created input file: " + inputFilePath);
-            }
-            
-            // Find a working compiler
-            String gccPath = null;
-            for (String path : GCC_PATHS) {
-                if (new File(path).exists()) {
-                    gccPath = path;
-                    break;
+        return compileCppCode(code, input, CompileOptions.DEFAULT);
+    }
+
+    public CompileResult compileCppCode(String code, String input, CompileOptions options) {
+        return compileCppCode(code, input, options, true);
+    }
+
+    /**
+     * Compiles and runs a program, answering from the result cache when it is enabled
+     * and the caller allows it. Callers should pass false for programs whose output is
+     * not determined by their source and input, e.g. ones that read the clock.
+     * When worker nodes are configured the request may run on one of them.
+     */
+    public CompileResult compileCppCode(String code, String input, CompileOptions options, boolean useResultCache) {
+        return compileCppCode(code, input, options, useResultCache, true);
+    }
+
+    /**
+     * Compiles and runs a program on this server only; used for requests a routing
+     * node has already forwarded here.
+     */
+    public CompileResult compileCppCodeLocally(String code, String input, CompileOptions options, boolean useResultCache) {
+        return compileCppCode(code, input, options, useResultCache, false);
+    }
+
+    /**
+     * Looks the request up in the result cache without compiling anything, so a repeated
+     * request can be answered before it waits for admission. Returns null on a miss or
+     * when the result cache is disabled. A miss is not counted, as the request is looked
+     * up again once admitted.
+     */
+    public CompileResult cachedResult(String code, String input, CompileOptions options) {
+        if (!resultCache.isEnabled()) {
+            return null;
+        }
+        CompileSettings settings = resolveSettings(options, code);
+        return settings.toolchain != null ? resultCache.peek(resultKey(code, input, settings)) : null;
+    }
+
+    private CompileResult compileCppCode(String code, String input, CompileOptions options, boolean useResultCache,
+                                         boolean routable) {
+        CompileSettings settings = resolveSettings(options, code);
+        String resultKey = null;
+        if (useResultCache && resultCache.isEnabled() && settings.toolchain != null) {
+            resultKey = resultKey(code, input, settings);
+            CompileResult cached = resultCache.get(resultKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        // Same source, compiler and flags go to the same worker, whose binary cache already has it
+        String affinityKey = routable && workerRouter.hasWorkers()
+                ? BinaryCache.key(code, settings.toolchain != null ? settings.toolchain.getPath() : "",
+                        String.join(" ", settings.flags))
+                : null;
+        try (WorkerRouter.Route route = affinityKey != null ? workerRouter.route(affinityKey) : null) {
+            if (route != null && route.isRemote()) {
+                CompileResult remote = executeRemotely(route, code, input, options, useResultCache);
+                if (remote != null) {
+                    return remote;
                 }
             }
-            
-            if (gccPath == null) {
+            CompiledProgram program = await(compileAsync(code, settings, ExecutionListener.NONE), "compile", this::release);
+            return runAndRelease(program, input, resultKey);
+        }
+    }
+
+    // Keyed on the flags the compiler is actually given, so a change in precompiled header never replays a stale result
+    private static String resultKey(String code, String input, CompileSettings settings) {
+        return ResultCache.key(code, input, settings.toolchain.getPath(), settings.effectiveFlags());
+    }
+
+    // Forwards the request to the route's worker; null when the worker failed and it should run here
+    private static CompileResult executeRemotely(WorkerRouter.Route route, String code, String input,
+                                                 CompileOptions options, boolean useResultCache) {
+        CompileRequest request = new CompileRequest(code, input);
+        request.setToolchain(options.getToolchain());
+        request.setStandard(options.getStandard());
+        request.setOptimization(options.getOptimization());
+        request.setSkipResultCache(!useResultCache);
+        CompileResponse response = route.execute(request);
+        if (response == null) {
+            return null;
+        }
+        CompileResult result = new CompileResult();
+        result.setSuccess(response.isSuccess());
+        result.setOutput(response.getOutput());
+        result.setToolchain(response.getToolchain());
+        result.setCompileTimeMs(response.getCompileTimeMs());
+        result.setRunTimeMs(response.getRunTimeMs());
+        result.setOutputTruncated(response.isOutputTruncated());
+        result.setPeakMemoryKb(response.getPeakMemoryKb());
+        result.setUserCpuMs(response.getUserCpuMs());
+        result.setSystemCpuMs(response.getSystemCpuMs());
+        result.setCached(response.isCached());
+        result.setWorker(route.getWorkerId());
+        return result;
+    }
+
+    /**
+     * Compiles a multi-file project and runs it. See {@link #compileProject(Map, CompileOptions)}.
+     */
+    public CompileResult compileAndRunProject(Map<String, String> files, String input, CompileOptions options) {
+        return runAndRelease(compileProject(files, options), input, null);
+    }
+
+    // Runs a freshly compiled program once, caching the outcome under resultKey unless it is null
+    private CompileResult runAndRelease(CompiledProgram program, String input, String resultKey) {
+        CompileResult result = new CompileResult();
+        try {
+            result.setToolchain(program.getToolchainId());
+            result.setUnits(program.getUnits());
+            result.setCompileTimeMs(program.getCompileTimeMs());
+            if (!program.isSuccess()) {
                 result.setSuccess(false);
-                result.setOutput("No working C++ compiler found. Please install MinGW or MSYS2.");
+                result.setOutput(program.getDiagnostics());
+                // Compile errors are deterministic; timeouts and internal errors are not
+                if (resultKey != null && program.getDiagnostics().startsWith(COMPILATION_FAILED)) {
+                    resultCache.put(resultKey, result);
+                }
                 return result;
             }
-            
-            // Create a batch file for compilation and execution
-            StringBuilder batchContent = new StringBuilder();
-            batchContent.append("@echo off\r\n");
-            batchContent.append("cd \"").append(COMPILER_DIR).append("\"\r\n");
-            
-            // Set PATH based on the compiler we're using
-            if (gccPath.contains("msys64")) {
-                batchContent.append("set PATH=C:\\msys64\\ucrt64\\bin;%PATH%\r\n");
-            } else if (gccPath.contains("MinGW")) {
-                batchContent.append("set PATH=C:\\MinGW\\bin;%PATH%\r\n");
-            } else if (gccPath.contains("cpeditor")) {
-                batchContent.append("set PATH=C:\\Program Files (x86)\\cpeditor\\mingw64\\bin;%PATH%\r\n");
-            } else if (gccPath.contains("mingw-w64")) {
-                batchContent.append("set PATH=C:\\Program Files\\mingw-w64\\x86_64-8.1.0-posix-seh-rt_v6-rev0\\mingw64\\bin;%PATH%\r\n");
-            }
-            
-            // Compile step
-            batchContent.append("echo Compiling...\r\n");
-            batchContent.append("\"").append(gccPath).append("\" \"")
-                      .append(sourceFilePath).append("\" -o \"")
-                      .append(executableFilePath).append("\"\r\n");
-            
-            // Check if compilation succeeded
-            batchContent.append("if %ERRORLEVEL% NEQ 0 (\r\n");
-            batchContent.append("  echo Compilation failed with exit code %ERRORLEVEL%\r\n");
-            batchContent.append("  exit /b %ERRORLEVEL%\r\n");
-            batchContent.append(")\r\n");
-            
-            // Run step - with or without input redirection
-            batchContent.append("echo Running program...\r\n");
-            
-            if (hasInput) {
-                // With input redirection
-                batchContent.append("\"").append(executableFilePath).append("\" < \"")
-                          .append(inputFilePath).append("\" > \"")
-                          .append(outputFilePath).append("\" 2>&1\r\n");
-            } else {
-                // Without input redirection
-                batchContent.append("\"").append(executableFilePath).append("\" > \"")
-                          .append(outputFilePath).append("\" 2>&1\r\n");
-            }
-            
-            // Save execution exit code
-            batchContent.append("set EXIT_CODE=%ERRORLEVEL%\r\n");
-            batchContent.append("echo Program exited with code %EXIT_CODE%\r\n");
-            
-            // Write the exit code to a file
-            String exitCodeFilePath = COMPILER_DIR + File.separator + uniqueId + "_exit.txt";
-            batchContent.append("echo %EXIT_CODE% > \"").append(exitCodeFilePath).append("\"\r\n");
-            batchContent.append("exit /b %EXIT_CODE%\r\n");
-            
-            // Write batch file
-            Files.write(Path.of(batchFilePath), batchContent.toString().getBytes());
-            
-            // Execute the batch file
-            ProcessBuilder pb = new ProcessBuilder("cmd.exe", "/c", batchFilePath);
-            pb.directory(new File(COMPILER_DIR));
-            
-            Process process = pb.start();
-            
-            // Capture the batch file's output
-            StringBuilder processOutput = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    processOutput.append(line).append("\n");
+
+            RunResult run = run(program, input);
+            result.setRunTimeMs(run.getRunTimeMs());
+            result.setPeakMemoryKb(run.getPeakMemoryKb());
+            result.setUserCpuMs(run.getUserCpuMs());
+            result.setSystemCpuMs(run.getSystemCpuMs());
+            result.setSuccess(run.isSuccess());
+            result.setOutput(run.getOutput());
+            result.setOutputTruncated(run.isOutputTruncated());
+            // Only outcomes decided by the program itself are cached, never timeouts or internal errors
+            boolean deterministic = !run.isTimedOut()
+                    && (run.isSuccess() || run.getExitCode() != 0 || run.isOutputTruncated());
+            if (resultKey != null && deterministic) {
+                resultCache.put(resultKey, result);
+            }
+        } finally {
+            release(program);
+        }
+
+        return result;
+    }
+
+    public CompiledProgram compile(String code) {
+        return compile(code, CompileOptions.DEFAULT);
+    }
+
+    /**
+     * Compiles the source on the compile stage, reusing a cached executable when possible.
+     * The returned program must be handed back through {@link #release(CompiledProgram)}.
+     * Throws IllegalArgumentException when the options name an unknown toolchain or an
+     * unsupported standard or optimization level.
+     */
+    public CompiledProgram compile(String code, CompileOptions options) {
+        CompileSettings settings = resolveSettings(options, code);
+        return await(compileAsync(code, settings, ExecutionListener.NONE), "compile", this::release);
+    }
+
+    /**
+     * Compiles a multi-file project. Each translation unit is compiled to an object on
+     * the compile stage, all of them in parallel, and the objects are then linked.
+     * Objects are cached by the unit, the project headers it includes, compiler and
+     * flags, so after an edit only the units that can see the edited file recompile.
+     * The returned program must be handed back through {@link #release(CompiledProgram)}.
+     * Throws IllegalArgumentException for invalid file names or options.
+     */
+    public CompiledProgram compileProject(Map<String, String> files, CompileOptions options) {
+        CompileSettings settings = resolveSettings(options);
+        ProjectSources sources = new ProjectSources(files, maxProjectFiles);
+        CompiledProgram program = new CompiledProgram();
+        long start = System.nanoTime();
+
+        Toolchain toolchain = settings.toolchain;
+        if (toolchain == null) {
+            program.setSuccess(false);
+            program.setDiagnostics("No working C++ compiler found. Please install g++, clang++, MinGW or MSYS2.");
+            return program;
+        }
+        String gccPath = toolchain.getPath();
+        String flags = String.join(" ", settings.flags);
+        program.setCompilerPath(gccPath);
+        program.setToolchainId(toolchain.getId());
+        sources.getFiles().values().forEach(file ->
+                metrics.recordSourceSize(toolchain.getId(), file.getBytes(StandardCharsets.UTF_8).length));
+
+        List<ObjectFile> objects = new ArrayList<>();
+        for (String unit : sources.getUnits()) {
+            objects.add(new ObjectFile(unit, BinaryCache.key(sources.unitDigest(unit), gccPath, flags + " -c " + unit)));
+        }
+
+        // The executable is keyed by the objects it links, so an unchanged project is not even relinked
+        StringBuilder objectKeys = new StringBuilder();
+        objects.forEach(object -> objectKeys.append(object.cacheKey).append('\n'));
+        String linkKey = BinaryCache.key(objectKeys.toString(), gccPath, flags + " -link");
+        program.setCacheKey(linkKey);
+        Path cachedExecutable = binaryCache.acquire(linkKey);
+        if (cachedExecutable != null) {
+            System.out.println("Binary cache hit for project: " + linkKey);
+            program.setSuccess(true);
+            program.setCacheHit(true);
+            program.setCached(true);
+            program.setLeased(true);
+            program.setExecutablePath(cachedExecutable.toString());
+            program.units = objects.stream().map(object -> new UnitResult(object.unit, true, true, 0)).toList();
+            metrics.recordCompile(toolchain.getId(), true, System.nanoTime() - start);
+            return program;
+        }
+
+        SandboxPool.Sandbox sandbox = null;
+        List<CompletableFuture<?>> started = new ArrayList<>();
+        try {
+            for (ObjectFile object : objects) {
+                Path cachedObject = binaryCache.acquire(object.cacheKey);
+                if (cachedObject != null) {
+                    object.path = cachedObject;
+                    object.leased = true;
+                    object.reused = true;
+                }
+            }
+
+            // All units compile in one sandbox holding the whole source tree
+            sandbox = sandboxPool.lease();
+            Path dir = sandbox.getDir();
+            for (Map.Entry<String, String> file : sources.getFiles().entrySet()) {
+                Path target = dir.resolve(file.getKey());
+                Files.createDirectories(target.getParent());
+                Files.writeString(target, file.getValue());
+            }
+
+            List<CompletableFuture<String>> compiles = new ArrayList<>();
+            for (ObjectFile object : objects) {
+                if (!object.reused) {
+                    CompletableFuture<String> compile = submitAsync(compileExecutor, "compile", toolchain.getId(),
+                            () -> compileUnit(object, dir, settings));
+                    compiles.add(compile);
+                    started.add(compile);
+                }
+            }
+            StringBuilder failures = new StringBuilder();
+            for (CompletableFuture<String> compile : compiles) {
+                String failure = await(compile, "compile", null);
+                if (failure != null) {
+                    failures.append(failure);
                 }
             }
-            
-            // Capture the batch file's error output
-            StringBuilder processError = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getErrorStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    processError.append(line).append("\n");
+            program.units = objects.stream()
+                    .map(object -> new UnitResult(object.unit, object.path != null, object.reused, object.compileTimeMs))
+                    .toList();
+            if (failures.length() > 0) {
+                program.setSuccess(false);
+                program.setDiagnostics(COMPILATION_FAILED + failures);
+                return program;
+            }
+
+            CompletableFuture<CompiledProgram> link = submitAsync(compileExecutor, "compile", toolchain.getId(),
+                    () -> linkProject(program, objects, dir, settings));
+            started.add(link);
+            await(link, "compile", null);
+        } catch (IOException e) {
+            program.setSuccess(false);
+            program.setDiagnostics("Error: " + e.getMessage() + "\n" + e.toString());
+            e.printStackTrace();
+        } finally {
+            program.setCompileTimeMs(elapsedMs(start));
+            // Units still compiling after an error keep using the sandbox and their objects
+            SandboxPool.Sandbox leased = sandbox;
+            CompletableFuture.allOf(started.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, error) -> {
+                for (ObjectFile object : objects) {
+                    if (object.leased) {
+                        binaryCache.release(object.cacheKey);
+                    } else if (object.path != null) {
+                        deleteQuietly(object.path);
+                    }
+                }
+                if (leased != null) {
+                    sandboxPool.release(leased);
+                }
+            });
+            if (!program.isSuccess()) {
+                metrics.recordOutcome(toolchain.getId(), CompilerMetrics.COMPILE_ERROR);
+            }
+        }
+        return program;
+    }
+
+    // Compiles one unit to an object; returns its diagnostics on failure and null on success
+    private String compileUnit(ObjectFile object, Path dir, CompileSettings settings) {
+        Path objectFile = workDir.resolve(UUID.randomUUID() + ".o");
+        long start = System.nanoTime();
+        try {
+            List<String> command = new ArrayList<>();
+            command.add(settings.toolchain.getPath());
+            command.addAll(settings.flags);
+            // Quoted and angle includes also resolve from the project root
+            command.add("-I.");
+            command.add("-c");
+            command.add(object.unit);
+            command.add("-o");
+            command.add(objectFile.toString());
+
+            CompilerRun compiler = invokeCompiler(command, dir, settings.toolchain.getPath(), ExecutionListener.NONE);
+            object.compileTimeMs = elapsedMs(start);
+            metrics.recordCompile(settings.toolchainId(), false, System.nanoTime() - start);
+            if (!compiler.completed) {
+                Files.deleteIfExists(objectFile);
+                return object.unit + ": compilation timed out\n";
+            }
+            if (compiler.exitCode != 0 || !Files.exists(objectFile)) {
+                Files.deleteIfExists(objectFile);
+                return compiler.diagnostics();
+            }
+            Path stored = binaryCache.store(object.cacheKey, objectFile, true);
+            object.leased = !stored.equals(objectFile);
+            object.path = stored;
+            return null;
+        } catch (Exception e) {
+            deleteQuietly(objectFile);
+            e.printStackTrace();
+            return object.unit + ": error: " + e.getMessage() + "\n";
+        }
+    }
+
+    // Links the objects into an executable and fills in the program
+    private CompiledProgram linkProject(CompiledProgram program, List<ObjectFile> objects, Path dir, CompileSettings settings) {
+        Path executableFile = workDir.resolve(UUID.randomUUID() + ".exe");
+        try {
+            List<String> command = new ArrayList<>();
+            command.add(settings.toolchain.getPath());
+            command.addAll(settings.flags);
+            objects.forEach(object -> command.add(object.path.toString()));
+            command.add("-o");
+            command.add(executableFile.toString());
+
+            CompilerRun linker = invokeCompiler(command, dir, settings.toolchain.getPath(), ExecutionListener.NONE);
+            if (!linker.completed || linker.exitCode != 0 || !Files.exists(executableFile)) {
+                Files.deleteIfExists(executableFile);
+                program.setSuccess(false);
+                program.setDiagnostics(linker.completed ? LINKING_FAILED + linker.diagnostics() : "Linking timed out");
+                return program;
+            }
+            Path stored = binaryCache.store(program.getCacheKey(), executableFile, true);
+            program.setCached(!stored.equals(executableFile));
+            program.setLeased(program.isCached());
+            program.setExecutablePath(stored.toString());
+            program.setSuccess(true);
+        } catch (Exception e) {
+            deleteQuietly(executableFile);
+            program.setSuccess(false);
+            program.setDiagnostics("Error: " + e.getMessage() + "\n" + e.toString());
+            e.printStackTrace();
+        }
+        return program;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Failed to clean up files: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a compiled program with the given stdin on the run stage.
+     */
+    public RunResult run(CompiledProgram program, String input) {
+        return await(runAsync(program, input, ExecutionListener.NONE), "run", null);
+    }
+
+    /**
+     * Runs a compiled program on the run stage, feeding stdin from the input stream as
+     * it is read and copying stdout to the output stream as the program prints it, so
+     * neither is held in memory. Stdout may reach compiler.stream.max-output-bytes; the
+     * result carries the status and stderr. Streamed runs are never coalesced.
+     */
+    public RunResult runStreaming(CompiledProgram program, InputStream input, OutputStream stdout) {
+        AtomicReference<IOException> inputError = new AtomicReference<>();
+        StdinSource stdin = input == null ? null : pipe -> {
+            byte[] chunk = new byte[8192];
+            int read;
+            while (true) {
+                try {
+                    read = input.read(chunk);
+                } catch (IOException e) {
+                    inputError.set(e);
+                    throw e;
                 }
+                if (read == -1) {
+                    return;
+                }
+                pipe.write(chunk, 0, read);
+            }
+        };
+        RunResult result = await(submitAsync(runExecutor, "run", program.getToolchainId(),
+                () -> doRun(program, stdin, ExecutionListener.NONE, stdout)), "run", null);
+        if (inputError.get() != null) {
+            result.setSuccess(false);
+            result.setInputFailed(true);
+            result.setOutput("Reading the input failed: " + inputError.get().getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Checks the toolchain, standard and optimization level without compiling anything.
+     * Throws IllegalArgumentException for options a compilation would reject.
+     */
+    public void validate(CompileOptions options) {
+        resolveSettings(options);
+    }
+
+    /**
+     * Queues a compilation without waiting for it. Diagnostics are reported to the
+     * listener as the compiler prints them.
+     */
+    public CompletableFuture<CompiledProgram> submitCompile(String code, CompileOptions options, ExecutionListener listener) {
+        CompileSettings settings = resolveSettings(options, code);
+        return compileAsync(code, settings, listener);
+    }
+
+    /**
+     * Queues a run on the run stage without waiting for it, so several inputs
+     * can execute in parallel against the same compiled program.
+     */
+    public CompletableFuture<RunResult> submitRun(CompiledProgram program, String input) {
+        return submitRun(program, input, ExecutionListener.NONE);
+    }
+
+    public CompletableFuture<RunResult> submitRun(CompiledProgram program, String input, ExecutionListener listener) {
+        return runAsync(program, input, listener);
+    }
+
+    // Number of programs the run stage executes at the same time
+    public int getRunParallelism() {
+        if (runExecutor instanceof VirtualThreadStageExecutor stage) {
+            return stage.getMaxConcurrency();
+        }
+        return ((ThreadPoolExecutor) runExecutor).getMaximumPoolSize();
+    }
+
+    public void release(CompiledProgram program) {
+        // A coalesced compilation is released once every caller sharing it is done
+        if (program.references != null && program.references.decrementAndGet() > 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (program.isLeased()) {
+            binaryCache.release(program.getCacheKey());
+        }
+        if (program.getExecutablePath() != null && !program.isCached()) {
+            try {
+                Files.deleteIfExists(Path.of(program.getExecutablePath()));
+            } catch (Exception e) {
+                System.err.println("Failed to clean up files: " + e.getMessage());
+            }
+        }
+        metrics.recordCleanup(program.getToolchainId(), System.nanoTime() - start);
+    }
+
+    /**
+     * Queues a compilation. Without a listener it is shared with identical compilations
+     * already in flight; every caller gets its own copy of the program to release.
+     */
+    private CompletableFuture<CompiledProgram> compileAsync(String code, CompileSettings settings, ExecutionListener listener) {
+        if (!coalescing || listener != ExecutionListener.NONE) {
+            return submitAsync(compileExecutor, "compile", settings.toolchainId(), () -> doCompile(code, settings, listener));
+        }
+        String compilerPath = settings.toolchain != null ? settings.toolchain.getPath() : "";
+        String key = BinaryCache.key(code, compilerPath, settings.effectiveFlags());
+        return compileCoalescer.join(key, () -> submitAsync(compileExecutor, "compile", settings.toolchainId(),
+                        () -> doCompile(code, settings, ExecutionListener.NONE)))
+                .thenApply(CompiledProgram::copy);
+    }
+
+    /**
+     * Queues a run. Without a listener, a run of the same executable with the same
+     * input that is already in flight is joined instead of starting another process.
+     */
+    private CompletableFuture<RunResult> runAsync(CompiledProgram program, String input, ExecutionListener listener) {
+        if (!coalescing || listener != ExecutionListener.NONE) {
+            return submitAsync(runExecutor, "run", program.getToolchainId(),
+                    () -> doRun(program, stdinOf(input), listener, null));
+        }
+        String key = program.getExecutablePath() + "\u0000" + (input != null ? input : "");
+        return runCoalescer.join(key, () -> submitAsync(runExecutor, "run", program.getToolchainId(),
+                        () -> doRun(program, stdinOf(input), ExecutionListener.NONE, null)))
+                .thenApply(RunResult::copy);
+    }
+
+    // Gives every caller that shared a compilation one reference to release
+    private static CompiledProgram shareProgram(CompiledProgram program, int callers) {
+        if (callers > 1) {
+            program.references = new AtomicInteger(callers);
+        }
+        return program;
+    }
+
+    /**
+     * Waits for a stage result. If the wait is interrupted, a result that arrives later
+     * is handed to onAbandoned so it can be cleaned up.
+     */
+    private static <T> T await(CompletableFuture<T> future, String stage, Consumer<T> onAbandoned) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            if (onAbandoned != null) {
+                future.thenAccept(onAbandoned);
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the " + stage + " stage", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof PipelineBusyException busy) {
+                // The compilation we joined was rejected
+                throw busy;
+            }
+            throw new IllegalStateException("The " + stage + " stage failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private <T> CompletableFuture<T> submitAsync(ExecutorService executor, String stage, String toolchain, Supplier<T> task) {
+        AtomicInteger inFlight = metrics.inFlight(toolchain);
+        inFlight.incrementAndGet();
+        try {
+            return CompletableFuture.supplyAsync(instrumented(stage, toolchain, inFlight, task), executor);
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            throw new PipelineBusyException(stage);
+        }
+    }
+
+    // Records how long the task waited for a worker and keeps the in-flight gauge current
+    private <T> Supplier<T> instrumented(String stage, String toolchain, AtomicInteger inFlight, Supplier<T> task) {
+        long queuedAt = System.nanoTime();
+        return () -> {
+            metrics.recordQueueWait(stage, toolchain, System.nanoTime() - queuedAt);
+            try {
+                return task.get();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        };
+    }
+
+    // Picks the toolchain and validates the requested standard and optimization level
+    private CompileSettings resolveSettings(CompileOptions options) {
+        Toolchain toolchain = toolchainRegistry.resolve(options.getToolchain());
+        List<String> flags = new ArrayList<>();
+        if (!compileFlags.isEmpty()) {
+            flags.addAll(Arrays.asList(compileFlags.split("\\s+")));
+        }
+        if (options.getStandard() != null) {
+            if (toolchain != null && !toolchain.supportsStandard(options.getStandard())) {
+                throw new IllegalArgumentException("Toolchain " + toolchain.getId() + " does not support -std="
+                        + options.getStandard() + ", supported: " + toolchain.getStandards());
+            }
+            flags.add("-std=" + options.getStandard());
+        }
+        if (options.getOptimization() != null) {
+            String level = options.getOptimization().startsWith("-")
+                    ? options.getOptimization().substring(1) : options.getOptimization();
+            if (!OPTIMIZATION_LEVELS.contains(level)) {
+                throw new IllegalArgumentException("Unsupported optimization level '" + options.getOptimization()
+                        + "', supported: " + OPTIMIZATION_LEVELS);
+            }
+            flags.add("-" + level);
+        }
+        return new CompileSettings(toolchain, flags, null);
+    }
+
+    /**
+     * Settings for compiling one source file. Whether a precompiled header is used is
+     * decided here, once, so the result cache, the binary cache and the compiler command
+     * all see the same effective flags.
+     */
+    private CompileSettings resolveSettings(CompileOptions options, String code) {
+        CompileSettings settings = resolveSettings(options);
+        Toolchain toolchain = settings.toolchain;
+        if (toolchain == null || !toolchain.isPchSupported()) {
+            return settings;
+        }
+        // Use a precompiled header when the system includes begin with a ready bundle's headers
+        PrecompiledHeaderManager.BuiltBundle pch = pchManager.match(code, toolchain.getPath(),
+                String.join(" ", settings.flags));
+        return pch != null ? new CompileSettings(toolchain, settings.flags, pch) : settings;
+    }
+
+    private CompiledProgram doCompile(String code, CompileSettings settings, ExecutionListener listener) {
+        listener.onStageStarted("compile");
+        CompiledProgram program = new CompiledProgram();
+        // The executable lives outside the sandbox so it survives the sandbox reset
+        Path executableFile = workDir.resolve(UUID.randomUUID() + ".exe");
+        SandboxPool.Sandbox sandbox = null;
+        long start = System.nanoTime();
+
+        try {
+            Toolchain toolchain = settings.toolchain;
+            if (toolchain == null) {
+                program.setSuccess(false);
+                program.setDiagnostics("No working C++ compiler found. Please install g++, clang++, MinGW or MSYS2.");
+                return program;
+            }
+            String gccPath = toolchain.getPath();
+            program.setCompilerPath(gccPath);
+            program.setToolchainId(toolchain.getId());
+            metrics.recordSourceSize(toolchain.getId(), code.getBytes(StandardCharsets.UTF_8).length);
+            PrecompiledHeaderManager.BuiltBundle pch = settings.pch;
+
+            // Reuse a previously compiled executable for the same source, compiler and flags
+            String cacheKey = BinaryCache.key(code, gccPath, settings.effectiveFlags());
+            program.setCacheKey(cacheKey);
+            Path cachedExecutable = binaryCache.acquire(cacheKey);
+            if (cachedExecutable != null) {
+                System.out.println("Binary cache hit: " + cacheKey);
+                program.setSuccess(true);
+                program.setCacheHit(true);
+                program.setCached(true);
+                program.setLeased(true);
+                program.setExecutablePath(cachedExecutable.toString());
+                metrics.recordCompile(toolchain.getId(), true, System.nanoTime() - start);
+                return program;
+            }
+
+            // The source goes into a clean sandbox directory; the executable is the only other file written
+            sandbox = sandboxPool.lease();
+            Path sourceFile = sandbox.getDir().resolve("main.cpp");
+            Files.writeString(sourceFile, code);
+
+            List<String> command = new ArrayList<>();
+            command.add(gccPath);
+            command.addAll(settings.flags);
+            if (pch != null) {
+                command.add("-Winvalid-pch");
+                command.add("-include");
+                command.add(pch.getHeaderPath());
+            }
+            command.add(sourceFile.toString());
+            command.add("-o");
+            command.add(executableFile.toString());
+
+            CompilerRun compiler = invokeCompiler(command, sandbox.getDir(), gccPath, listener);
+            program.setCompileTimeMs(elapsedMs(start));
+            metrics.recordCompile(toolchain.getId(), false, System.nanoTime() - start);
+            if (!compiler.completed) {
+                program.setSuccess(false);
+                program.setDiagnostics("Compilation timed out");
+                Files.deleteIfExists(executableFile);
+                return program;
+            }
+
+            if (compiler.exitCode != 0 || !Files.exists(executableFile)) {
+                program.setSuccess(false);
+                program.setDiagnostics(COMPILATION_FAILED + compiler.diagnostics());
+                return program;
+            }
+
+            pchManager.recordCompile(pch, program.getCompileTimeMs());
+
+            // Keep the executable for the next request with the same source
+            // Leased like a hit, so eviction cannot remove it before the program has run
+            Path stored = binaryCache.store(cacheKey, executableFile, true);
+            program.setCached(!stored.equals(executableFile));
+            program.setLeased(program.isCached());
+            program.setExecutablePath(stored.toString());
+            program.setSuccess(true);
+
+        } catch (Exception e) {
+            program.setSuccess(false);
+            program.setDiagnostics("Error: " + e.getMessage() + "\n" + e.toString());
+            e.printStackTrace();
+        } finally {
+            if (sandbox != null) {
+                long cleanupStart = System.nanoTime();
+                sandboxPool.release(sandbox);
+                metrics.recordCleanup(program.getToolchainId(), System.nanoTime() - cleanupStart);
+            }
+            if (!program.isSuccess()) {
+                metrics.recordOutcome(program.getToolchainId(), CompilerMetrics.COMPILE_ERROR);
+            }
+        }
+
+        return program;
+    }
+
+    /**
+     * Runs one compiler or linker invocation in the given directory and waits for it,
+     * killing it at the compile timeout. Compiler temporaries go to that directory too.
+     */
+    private CompilerRun invokeCompiler(List<String> command, Path dir, String gccPath, ExecutionListener listener)
+            throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(dir.toFile());
+        pb.redirectErrorStream(true);
+        configureEnvironment(pb, gccPath);
+        pb.environment().put(IS_WINDOWS ? "TMP" : "TMPDIR", dir.toString());
+        Process process = pb.start();
+        process.getOutputStream().close();
+
+        // Diagnostics are read as the compiler prints them; stderr is merged into stdout.
+        // Overlong diagnostics are cut off but the compiler is left to finish.
+        OutputCapture diagnostics = new OutputCapture(process, maxOutputBytes, false,
+                listener, ExecutionListener.STREAM_COMPILE, null, virtualThreads);
+        diagnostics.start();
+
+        if (!process.waitFor(compileTimeout.toMillis(), TimeUnit.MILLISECONDS) || !diagnostics.await(CAPTURE_GRACE)) {
+            destroyTree(process);
+            return new CompilerRun(false, -1, "", false);
+        }
+        return new CompilerRun(true, process.exitValue(), diagnostics.getStdout(), diagnostics.isTruncated());
+    }
+
+    private RunResult doRun(CompiledProgram program, StdinSource input, ExecutionListener listener, OutputStream stdoutSink) {
+        listener.onStageStarted("run");
+        long start = System.nanoTime();
+        RunResult result = execute(program, input, listener, stdoutSink);
+        metrics.recordExecution(program.getToolchainId(), System.nanoTime() - start);
+        metrics.recordOutcome(program.getToolchainId(), result.isSuccess() ? CompilerMetrics.SUCCESS
+                : result.isTimedOut() ? CompilerMetrics.TIMEOUT : CompilerMetrics.RUNTIME_ERROR);
+        return result;
+    }
+
+    private RunResult execute(CompiledProgram program, StdinSource input, ExecutionListener listener, OutputStream stdoutSink) {
+        RunResult result = new RunResult();
+        long outputLimit = stdoutSink != null ? maxStreamOutputBytes : maxOutputBytes;
+        SandboxPool.Sandbox sandbox = null;
+        Process process = null;
+
+        try {
+            long start = System.nanoTime();
+            sandbox = sandboxPool.lease();
+            // CPU, memory, process and file-size limits apply to the program and everything it starts.
+            // A pre-forked launcher already runs under them; otherwise start the program directly.
+            ResourceLimiter.LimitedProcess limited = sandbox.launch(program.getExecutablePath());
+            if (limited == null) {
+                ProcessBuilder pb = new ProcessBuilder();
+                pb.directory(sandbox.getDir().toFile());
+                configureEnvironment(pb, program.getCompilerPath());
+                limited = resourceLimiter.start(List.of(program.getExecutablePath()), pb);
+            }
+            process = limited.getProcess();
+
+            // Drain stdout and stderr concurrently so neither pipe can fill up and block the program;
+            // the program is killed once it prints more than the output limit. A streamed run
+            // sends stdout straight to its sink and is stopped if the client goes away; its stderr
+            // is still buffered and keeps the ordinary output limit.
+            OutputCapture capture = new OutputCapture(process, outputLimit, true,
+                    listener, ExecutionListener.STREAM_STDOUT, ExecutionListener.STREAM_STDERR, virtualThreads, stdoutSink,
+                    maxOutputBytes);
+            capture.start();
+            feedInput(process, input);
+
+            Duration timeout = stdoutSink != null ? streamRunTimeout : runTimeout;
+            boolean completed = limited.waitFor(timeout);
+            // A background child that inherited stdout or stderr keeps them open after the program
+            // exits; it only gets what is left of the time limit
+            if (completed && !capture.await(timeout.minusNanos(System.nanoTime() - start))) {
+                completed = false;
+            }
+            result.setRunTimeMs(elapsedMs(start));
+            if (!completed) {
+                limited.destroyTree();
+                process.waitFor();
             }
-            
-            // Wait for batch file to complete
-            boolean completed = process.waitFor(30, TimeUnit.SECONDS);
+            ResourceLimiter.ResourceUsage usage = limited.finish();
+            result.setPeakMemoryKb(usage.getPeakMemoryKb());
+            result.setUserCpuMs(usage.getUserCpuMs());
+            result.setSystemCpuMs(usage.getSystemCpuMs());
+            result.setCpuTimeMs(usage.getCpuTimeMs());
             if (!completed) {
-                process.destroyForcibly();
+                if (!capture.await(CAPTURE_GRACE)) {
+                    System.err.println("Output of a timed-out program is still open, leaving its readers behind");
+                }
+                metrics.recordOutputSize(program.getToolchainId(), capture.getCapturedBytes());
                 result.setSuccess(false);
+                result.setTimedOut(true);
+                result.setProgramOutput(capture.getStdout());
+                result.setErrorOutput(capture.getStderr());
+                result.setOutputTruncated(capture.isTruncated());
                 result.setOutput("Process timed out");
                 return result;
             }
-            
+            metrics.recordOutputSize(program.getToolchainId(), capture.getCapturedBytes());
+
             int exitCode = process.exitValue();
-            
-            // Check for user program output
-            String programOutput = "";
-            if (Files.exists(Path.of(outputFilePath))) {
-                programOutput = Files.readString(Path.of(outputFilePath));
-            }
-            
-            // Check for user program exit code
-            int programExitCode = exitCode;
-            if (Files.exists(Path.of(exitCodeFilePath))) {
-                String exitCodeStr = Files.readString(Path.of(exitCodeFilePath)).trim();
-                try {
-                    programExitCode = Integer.parseInt(exitCodeStr);
-                } catch (NumberFormatException e) {
-                    // Fall back to batch exit code
-                }
-            }
-            
-            if (exitCode != 0) {
-                // Compilation or execution failed
+            String programOutput = capture.getStdout();
+            String errorOutput = capture.getStderr();
+            String combinedOutput = programOutput + errorOutput;
+            result.setExitCode(exitCode);
+            result.setProgramOutput(programOutput);
+            result.setErrorOutput(errorOutput);
+            result.setOutputTruncated(capture.isTruncated());
+
+            if (capture.isSinkFailed()) {
+                // Nobody is reading the output any more
                 result.setSuccess(false);
-                
-                if (!Files.exists(Path.of(executableFilePath))) {
-                    // Compilation failed
-                    result.setOutput("Compilation failed:\n" + processOutput.toString() + processError.toString());
+                result.setOutput("Output stream closed by the client, program was stopped.");
+            } else if (capture.isTruncated()) {
+                // Killed for printing too much
+                result.setSuccess(false);
+                result.setOutput("Output limit of " + outputLimit + " bytes exceeded, program was stopped.\n" +
+                                "Output: " + combinedOutput);
+            } else if (resourceLimiter.isCpuLimitExit(exitCode, usage)) {
+                // SIGXCPU or SIGKILL from the CPU-time limit
+                result.setSuccess(false);
+                result.setTimedOut(true);
+                result.setOutput("CPU time limit of " + resourceLimiter.getCpuSeconds() + " s exceeded, program was stopped.\n" +
+                                "Output: " + combinedOutput);
+            } else if (exitCode != 0) {
+                // Execution failed
+                result.setSuccess(false);
+                if (exitCode == -1073741819 || exitCode == -1073741571) {
+                    // Access violation or stack overflow
+                    result.setOutput("Program crashed during execution (Access Violation or Stack Overflow).\n" +
+                                    "Program output before crash: " + combinedOutput);
+                } else if (!IS_WINDOWS && exitCode > 128) {
+                    // Killed by a signal, e.g. 139 for SIGSEGV
+                    result.setOutput("Program crashed during execution (signal " + (exitCode - 128) + ").\n" +
+                                    "Program output before crash: " + combinedOutput);
                 } else {
-                    // Execution failed
-                    if (programExitCode == -1073741819 || programExitCode == -1073741571) {
-                        // Access violation or stack overflow
-                        result.setOutput("Program crashed during execution (Access Violation or Stack Overflow).\n" +
-                                        "Program output before crash: " + programOutput);
-                    } else {
-                        result.setOutput("Program exited with an error (exit code: " + programExitCode + ").\n" +
-                                        "Output: " + programOutput);
-                    }
+                    result.setOutput("Program exited with an error (exit code: " + exitCode + ").\n" +
+                                    "Output: " + combinedOutput);
                 }
             } else {
                 // Success!
                 result.setSuccess(true);
-                result.setOutput(programOutput);
+                result.setOutput(combinedOutput);
             }
-            
+
         } catch (Exception e) {
             result.setSuccess(false);
             result.setOutput("Error: " + e.getMessage() + "\n" + e.toString());
             e.printStackTrace();
         } finally {
-            // Clean up files
-            try {
-                Files.deleteIfExists(Path.of(sourceFilePath));
-                Files.deleteIfExists(Path.of(executableFilePath));
-                Files.deleteIfExists(Path.of(batchFilePath));
-                Files.deleteIfExists(Path.of(outputFilePath));
-                if (input != null && !input.isEmpty()) {
-                    Files.deleteIfExists(Path.of(inputFilePath));
-                }
-            } catch (Exception e) {
-                System.err.println("Failed to clean up files: " + e.getMessage());
+            if (process != null && process.isAlive()) {
+                destroyTree(process);
+            }
+            if (sandbox != null) {
+                sandboxPool.release(sandbox);
             }
         }
-        
+
         return result;
     }
-    
+
+    // Writes the input on its own thread so a program that never reads stdin cannot block us
+    private void feedInput(Process process, StdinSource input) throws IOException {
+        OutputStream stdin = process.getOutputStream();
+        if (input == null) {
+            stdin.close();
+            return;
+        }
+        OutputCapture.newIoThread("stdin-writer", virtualThreads, () -> {
+            try (stdin) {
+                input.writeTo(stdin);
+            } catch (IOException e) {
+                // The program exited without reading all of its input, or the upload broke off
+            }
+        }).start();
+    }
+
+    // Encodes the input in small chunks on the way into the pipe instead of copying it to one byte array
+    private static StdinSource stdinOf(String input) {
+        if (input == null || input.isEmpty()) {
+            return null;
+        }
+        return stdin -> {
+            Writer writer = new OutputStreamWriter(stdin, StandardCharsets.UTF_8);
+            writer.write(input);
+            writer.flush();
+        };
+    }
+
+    // Source of a program's stdin, written on the stdin-writer thread
+    @FunctionalInterface
+    private interface StdinSource {
+        void writeTo(OutputStream stdin) throws IOException;
+    }
+
+    private static void destroyTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    // Put the compiler's bin directory first on PATH so it finds its own tools and, on Windows, runtime DLLs
+    private static void configureEnvironment(ProcessBuilder pb, String gccPath) {
+        Path binDir = Path.of(gccPath).getParent();
+        if (binDir == null) {
+            return;
+        }
+        Map<String, String> env = pb.environment();
+        String pathKey = env.keySet().stream().filter(key -> key.equalsIgnoreCase("PATH")).findFirst().orElse("PATH");
+        String path = env.get(pathKey);
+        env.put(pathKey, path == null ? binDir.toString() : binDir + File.pathSeparator + path);
+    }
+
+    // Toolchain, full flag list and precompiled header (null for none) for one compilation
+    private static class CompileSettings {
+        private final Toolchain toolchain;
+        private final List<String> flags;
+        private final PrecompiledHeaderManager.BuiltBundle pch;
+
+        private CompileSettings(Toolchain toolchain, List<String> flags, PrecompiledHeaderManager.BuiltBundle pch) {
+            this.toolchain = toolchain;
+            this.flags = flags;
+            this.pch = pch;
+        }
+
+        // The flags plus the forced include of the precompiled header, as used in cache keys
+        private String effectiveFlags() {
+            String joined = String.join(" ", flags);
+            return pch == null ? joined : joined + " -include " + pch.getName();
+        }
+
+        private String toolchainId() {
+            return toolchain != null ? toolchain.getId() : null;
+        }
+    }
+
+    // One translation unit of a project and the object compiled from it
+    private static class ObjectFile {
+        private final String unit;
+        private final String cacheKey;
+        private volatile Path path;
+        // Held in the binary cache under a lease, released once the project is linked
+        private volatile boolean leased;
+        private boolean reused;
+        private volatile long compileTimeMs;
+
+        private ObjectFile(String unit, String cacheKey) {
+            this.unit = unit;
+            this.cacheKey = cacheKey;
+        }
+    }
+
+    // Outcome of one compiler invocation
+    private static class CompilerRun {
+        private final boolean completed;
+        private final int exitCode;
+        private final String output;
+        private final boolean truncated;
+
+        private CompilerRun(boolean completed, int exitCode, String output, boolean truncated) {
+            this.completed = completed;
+            this.exitCode = exitCode;
+            this.output = output;
+            this.truncated = truncated;
+        }
+
+        private String diagnostics() {
+            return output + (truncated ? "\n[diagnostics truncated]" : "");
+        }
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
     public static class CompileResult {
         private boolean success;
         private String output;
-        
+        private String toolchain;
+        private long compileTimeMs;
+        private long runTimeMs;
+        private boolean outputTruncated;
+        private long peakMemoryKb;
+        private long userCpuMs;
+        private long systemCpuMs;
+        private boolean cached;
+        private List<UnitResult> units;
+        private String worker;
+
         public boolean isSuccess() {
             return success;
         }
-        
+
         public void setSuccess(boolean success) {
             this.success = success;
         }
-        
+
+        // True when the result was served from the result cache without compiling or running
+        public boolean isCached() {
+            return cached;
+        }
+
+        public void setCached(boolean cached) {
+            this.cached = cached;
+        }
+
+        // Translation units of a project compilation; null for single-file programs
+        public List<UnitResult> getUnits() {
+            return units;
+        }
+
+        public void setUnits(List<UnitResult> units) {
+            this.units = units;
+        }
+
+        // Worker node that ran the request; null when it ran on this server
+        public String getWorker() {
+            return worker;
+        }
+
+        public void setWorker(String worker) {
+            this.worker = worker;
+        }
+
         public String getOutput() {
             return output;
         }
-        
+
         public void setOutput(String output) {
             this.output = output;
         }
+
+        public String getToolchain() {
+            return toolchain;
+        }
+
+        public void setToolchain(String toolchain) {
+            this.toolchain = toolchain;
+        }
+
+        public long getCompileTimeMs() {
+            return compileTimeMs;
+        }
+
+        public void setCompileTimeMs(long compileTimeMs) {
+            this.compileTimeMs = compileTimeMs;
+        }
+
+        public long getRunTimeMs() {
+            return runTimeMs;
+        }
+
+        public void setRunTimeMs(long runTimeMs) {
+            this.runTimeMs = runTimeMs;
+        }
+
+        public boolean isOutputTruncated() {
+            return outputTruncated;
+        }
+
+        public void setOutputTruncated(boolean outputTruncated) {
+            this.outputTruncated = outputTruncated;
+        }
+
+        // Peak resident memory of the program, in kilobytes
+        public long getPeakMemoryKb() {
+            return peakMemoryKb;
+        }
+
+        public void setPeakMemoryKb(long peakMemoryKb) {
+            this.peakMemoryKb = peakMemoryKb;
+        }
+
+        public long getUserCpuMs() {
+            return userCpuMs;
+        }
+
+        public void setUserCpuMs(long userCpuMs) {
+            this.userCpuMs = userCpuMs;
+        }
+
+        public long getSystemCpuMs() {
+            return systemCpuMs;
+        }
+
+        public void setSystemCpuMs(long systemCpuMs) {
+            this.systemCpuMs = systemCpuMs;
+        }
+    }
+
+    // Per-file outcome of a project compilation
+    public static class UnitResult {
+        private final String file;
+        private final boolean success;
+        private final boolean cached;
+        private final long compileTimeMs;
+
+        public UnitResult(String file, boolean success, boolean cached, long compileTimeMs) {
+            this.file = file;
+            this.success = success;
+            this.cached = cached;
+            this.compileTimeMs = compileTimeMs;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        // True when the object was reused from the cache instead of being compiled
+        public boolean isCached() {
+            return cached;
+        }
+
+        public long getCompileTimeMs() {
+            return compileTimeMs;
+        }
+    }
+
+    // Result of the compile stage; holds the executable until it is released
+    public static class CompiledProgram {
+        private boolean success;
+        private String diagnostics;
+        private String compilerPath;
+        private String toolchainId;
+        private String executablePath;
+        private String cacheKey;
+        private boolean cacheHit;
+        private boolean cached;
+        private boolean leased;
+        private long compileTimeMs;
+        // Shared by callers of a coalesced compilation; null when there is a single owner
+        private AtomicInteger references;
+        // Translation units of a project compilation; null for single-file programs
+        private List<UnitResult> units;
+
+        // Copy for one caller; coalesced copies share the reference count
+        private CompiledProgram copy() {
+            CompiledProgram copy = new CompiledProgram();
+            copy.success = success;
+            copy.diagnostics = diagnostics;
+            copy.compilerPath = compilerPath;
+            copy.toolchainId = toolchainId;
+            copy.executablePath = executablePath;
+            copy.cacheKey = cacheKey;
+            copy.cacheHit = cacheHit;
+            copy.cached = cached;
+            copy.leased = leased;
+            copy.compileTimeMs = compileTimeMs;
+            copy.references = references;
+            copy.units = units;
+            return copy;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public void setSuccess(boolean success) {
+            this.success = success;
+        }
+
+        public String getDiagnostics() {
+            return diagnostics;
+        }
+
+        public void setDiagnostics(String diagnostics) {
+            this.diagnostics = diagnostics;
+        }
+
+        public String getCompilerPath() {
+            return compilerPath;
+        }
+
+        public void setCompilerPath(String compilerPath) {
+            this.compilerPath = compilerPath;
+        }
+
+        public String getToolchainId() {
+            return toolchainId;
+        }
+
+        public void setToolchainId(String toolchainId) {
+            this.toolchainId = toolchainId;
+        }
+
+        public String getExecutablePath() {
+            return executablePath;
+        }
+
+        public void setExecutablePath(String executablePath) {
+            this.executablePath = executablePath;
+        }
+
+        public String getCacheKey() {
+            return cacheKey;
+        }
+
+        public void setCacheKey(String cacheKey) {
+            this.cacheKey = cacheKey;
+        }
+
+        public boolean isCacheHit() {
+            return cacheHit;
+        }
+
+        public void setCacheHit(boolean cacheHit) {
+            this.cacheHit = cacheHit;
+        }
+
+        // True when the executable is owned by the binary cache and must not be deleted
+        public boolean isCached() {
+            return cached;
+        }
+
+        public void setCached(boolean cached) {
+            this.cached = cached;
+        }
+
+        // True while the program holds a binary cache lease, handed back in release()
+        public boolean isLeased() {
+            return leased;
+        }
+
+        public void setLeased(boolean leased) {
+            this.leased = leased;
+        }
+
+        public long getCompileTimeMs() {
+            return compileTimeMs;
+        }
+
+        public void setCompileTimeMs(long compileTimeMs) {
+            this.compileTimeMs = compileTimeMs;
+        }
+
+        public List<UnitResult> getUnits() {
+            return units;
+        }
+    }
+
+    // Result of one execution of a compiled program
+    public static class RunResult {
+        private boolean success;
+        private String output;
+        private String programOutput;
+        private String errorOutput;
+        private int exitCode;
+        private boolean timedOut;
+        private boolean outputTruncated;
+        private boolean inputFailed;
+        private long runTimeMs;
+        private long cpuTimeMs;
+        private long peakMemoryKb;
+        private long userCpuMs;
+        private long systemCpuMs;
+
+        // Copy for one caller of a coalesced run
+        private RunResult copy() {
+            RunResult copy = new RunResult();
+            copy.success = success;
+            copy.output = output;
+            copy.programOutput = programOutput;
+            copy.errorOutput = errorOutput;
+            copy.exitCode = exitCode;
+            copy.timedOut = timedOut;
+            copy.outputTruncated = outputTruncated;
+            copy.inputFailed = inputFailed;
+            copy.runTimeMs = runTimeMs;
+            copy.cpuTimeMs = cpuTimeMs;
+            copy.peakMemoryKb = peakMemoryKb;
+            copy.userCpuMs = userCpuMs;
+            copy.systemCpuMs = systemCpuMs;
+            return copy;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public void setSuccess(boolean success) {
+            this.success = success;
+        }
+
+        // Output formatted for display, including crash and exit-code messages
+        public String getOutput() {
+            return output;
+        }
+
+        public void setOutput(String output) {
+            this.output = output;
+        }
+
+        // Raw stdout of the program
+        public String getProgramOutput() {
+            return programOutput;
+        }
+
+        public void setProgramOutput(String programOutput) {
+            this.programOutput = programOutput;
+        }
+
+        // Raw stderr of the program
+        public String getErrorOutput() {
+            return errorOutput;
+        }
+
+        public void setErrorOutput(String errorOutput) {
+            this.errorOutput = errorOutput;
+        }
+
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        public void setExitCode(int exitCode) {
+            this.exitCode = exitCode;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        public void setTimedOut(boolean timedOut) {
+            this.timedOut = timedOut;
+        }
+
+        // True when the program was stopped for exceeding the output limit
+        public boolean isOutputTruncated() {
+            return outputTruncated;
+        }
+
+        public void setOutputTruncated(boolean outputTruncated) {
+            this.outputTruncated = outputTruncated;
+        }
+
+        // True when a streamed input broke off before its end, so the program saw only part of it
+        public boolean isInputFailed() {
+            return inputFailed;
+        }
+
+        public void setInputFailed(boolean inputFailed) {
+            this.inputFailed = inputFailed;
+        }
+
+        public long getRunTimeMs() {
+            return runTimeMs;
+        }
+
+        public void setRunTimeMs(long runTimeMs) {
+            this.runTimeMs = runTimeMs;
+        }
+
+        public long getCpuTimeMs() {
+            return cpuTimeMs;
+        }
+
+        public void setCpuTimeMs(long cpuTimeMs) {
+            this.cpuTimeMs = cpuTimeMs;
+        }
+
+        // Peak resident memory of the program, in kilobytes
+        public long getPeakMemoryKb() {
+            return peakMemoryKb;
+        }
+
+        public void setPeakMemoryKb(long peakMemoryKb) {
+            this.peakMemoryKb = peakMemoryKb;
+        }
+
+        public long getUserCpuMs() {
+            return userCpuMs;
+        }
+
+        public void setUserCpuMs(long userCpuMs) {
+            this.userCpuMs = userCpuMs;
+        }
+
+        public long getSystemCpuMs() {
+            return systemCpuMs;
+        }
+
+        public void setSystemCpuMs(long systemCpuMs) {
+            this.systemCpuMs = systemCpuMs;
+        }
     }
-}
\ No newline at end of file
+}
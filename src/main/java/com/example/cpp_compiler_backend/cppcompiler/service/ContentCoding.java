@@ -0,0 +1,166 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import io.airlift.compress.zstd.ZstdInputStream;
+import io.airlift.compress.zstd.ZstdOutputStream;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HTTP content codings for request and response bodies: gzip and zstd, plus identity.
+ *
+ * Everything works on streams, so a body is never held in memory whole. Decoded input
+ * is capped, which keeps a small compressed upload from expanding without bound.
+ */
+public enum ContentCoding {
+    IDENTITY("identity"),
+    GZIP("gzip"),
+    ZSTD("zstd");
+
+    private static final int BUFFER_BYTES = 8192;
+
+    private final String token;
+
+    ContentCoding(String token) {
+        this.token = token;
+    }
+
+    // Value for the Content-Encoding header
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Coding named by a Content-Encoding header. Null or blank means identity;
+     * throws IllegalArgumentException for codings that are not supported.
+     */
+    public static ContentCoding fromHeader(String contentEncoding) {
+        if (contentEncoding == null || contentEncoding.isBlank()) {
+            return IDENTITY;
+        }
+        return switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case "identity" -> IDENTITY;
+            case "gzip", "x-gzip" -> GZIP;
+            case "zstd" -> ZSTD;
+            default -> throw new IllegalArgumentException("Unsupported content encoding: " + contentEncoding);
+        };
+    }
+
+    /**
+     * Coding of an uploaded part, from its Content-Type or file name extension.
+     */
+    public static ContentCoding fromPart(String contentType, String fileName) {
+        String type = contentType != null ? contentType.toLowerCase(Locale.ROOT) : "";
+        String name = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
+        if (type.startsWith("application/gzip") || type.startsWith("application/x-gzip") || name.endsWith(".gz")) {
+            return GZIP;
+        }
+        if (type.startsWith("application/zstd") || name.endsWith(".zst")) {
+            return ZSTD;
+        }
+        return IDENTITY;
+    }
+
+    /**
+     * Best response coding the client accepts according to its Accept-Encoding header,
+     * preferring zstd over gzip. Quality values only matter when they are zero.
+     */
+    public static ContentCoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return IDENTITY;
+        }
+        boolean gzip = false;
+        boolean zstd = false;
+        for (String entry : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] parts = entry.trim().split(";");
+            String coding = parts[0].trim();
+            if (parts.length > 1 && parts[1].trim().matches("q\\s*=\\s*0(\\.0*)?")) {
+                continue;
+            }
+            if (coding.equals("zstd")) {
+                zstd = true;
+            } else if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = true;
+            }
+        }
+        return zstd ? ZSTD : gzip ? GZIP : IDENTITY;
+    }
+
+    /**
+     * Decodes a stream, failing with an IOException once more than maxBytes come out.
+     */
+    public InputStream decode(InputStream in, long maxBytes) throws IOException {
+        InputStream decoded = switch (this) {
+            case IDENTITY -> in;
+            case GZIP -> new GZIPInputStream(in, BUFFER_BYTES);
+            case ZSTD -> new ZstdInputStream(in);
+        };
+        return new LimitedInputStream(decoded, maxBytes);
+    }
+
+    /**
+     * Encodes everything written to the returned stream into out. Closing it finishes
+     * the encoding and closes out. Gzip uses its fastest level: output is compressed
+     * while the program runs, so it has to keep up with it.
+     */
+    public OutputStream encode(OutputStream out) throws IOException {
+        return switch (this) {
+            case IDENTITY -> out;
+            case GZIP -> new GZIPOutputStream(out, BUFFER_BYTES) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+            case ZSTD -> new ZstdOutputStream(out);
+        };
+    }
+
+    // Fails the read that goes past the limit instead of silently truncating
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private long read;
+
+        private LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(long n) throws IOException {
+            read += n;
+            if (read > maxBytes) {
+                throw new IOException("Decoded body exceeds " + maxBytes + " bytes");
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+/**
+ * Receives progress from the compile and run stages while they execute,
+ * so callers can stream diagnostics and program output as they appear.
+ * Callbacks arrive on pipeline worker threads.
+ */
+public interface ExecutionListener {
+
+    String STREAM_COMPILE = "compile";
+    String STREAM_STDOUT = "stdout";
+    String STREAM_STDERR = "stderr";
+
+    ExecutionListener NONE = new ExecutionListener() {
+    };
+
+    // Called when a stage ("compile" or "run") picks up the work
+    default void onStageStarted(String stage) {
+    }
+
+    // Called with each new chunk of compiler or program output
+    default void onOutput(String stream, String chunk) {
+    }
+}
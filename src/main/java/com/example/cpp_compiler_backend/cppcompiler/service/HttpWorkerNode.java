@@ -0,0 +1,119 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import com.example.cpp_compiler_backend.cppcompiler.model.CompileRequest;
+import com.example.cpp_compiler_backend.cppcompiler.model.CompileResponse;
+import com.example.cpp_compiler_backend.cppcompiler.model.WorkerHealth;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * A worker reached over HTTP: another instance of this server, which executes requests
+ * through /api/worker/execute and reports its load on /api/worker/health.
+ */
+public class HttpWorkerNode implements WorkerNode {
+
+    private static final Duration HEALTH_TIMEOUT = Duration.ofSeconds(2);
+
+    private final String id;
+    private final URI baseUri;
+    private final HttpClient client;
+    private final ObjectMapper mapper;
+    private final Duration requestTimeout;
+
+    private volatile boolean healthy;
+    private volatile int capacity;
+
+    public HttpWorkerNode(String url, HttpClient client, ObjectMapper mapper, Duration requestTimeout) {
+        String base = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.id = base;
+        this.baseUri = URI.create(base + "/");
+        this.client = client;
+        this.mapper = mapper;
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public CompileResponse execute(CompileRequest request) throws IOException, InterruptedException {
+        HttpRequest httpRequest = HttpRequest.newBuilder(baseUri.resolve("api/worker/execute"))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(request)))
+                .build();
+        HttpResponse<byte[]> response = client.send(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+        int status = response.statusCode();
+        if (status == 200) {
+            return mapper.readValue(response.body(), CompileResponse.class);
+        }
+        if (status == 429 || status == 503) {
+            throw new WorkerBusyException("Worker " + id + " is busy (status " + status + ")");
+        }
+        if (status >= 400 && status < 500) {
+            // The worker rejected the request itself, e.g. a toolchain only this server knows
+            String message = errorMessage(response.body());
+            throw new IllegalArgumentException(message != null ? message
+                    : "Worker " + id + " rejected the request with status " + status);
+        }
+        throw new IOException("Worker " + id + " answered with status " + status);
+    }
+
+    // The message of a CompileResponse error body, or null if there is none
+    private String errorMessage(byte[] body) {
+        try {
+            return mapper.readValue(body, CompileResponse.class).getMessage();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean checkHealth() {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("api/worker/health"))
+                    .timeout(HEALTH_TIMEOUT)
+                    .GET()
+                    .build();
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                healthy = false;
+                return false;
+            }
+            WorkerHealth health = mapper.readValue(response.body(), WorkerHealth.class);
+            capacity = health.getCapacity();
+            healthy = health.isReady() && capacity > 0;
+            return true;
+        } catch (IOException e) {
+            healthy = false;
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            healthy = false;
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    @Override
+    public void markUnhealthy() {
+        healthy = false;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.cpp_compiler_backend.cppcompiler.model.CompileResponse;
+import com.example.cpp_compiler_backend.cppcompiler.model.JobStatus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An asynchronous compile job. Every event is kept so a subscriber that connects
+ * late still sees the whole stream; live subscribers get events as they happen.
+ *
+ * Events are only appended under the job's lock. Each subscriber is sent its events
+ * by its own virtual thread, so a slow client never holds up the thread that produces
+ * them (e.g. an output drain) or readers such as JobStore. A subscriber that falls
+ * more than maxSubscriberLag events behind is disconnected.
+ */
+public class Job implements ExecutionListener {
+
+    public static final String EVENT_STATUS = "status";
+    public static final String EVENT_RESULT = "result";
+
+    private final String id;
+    private final int maxEvents;
+    private final int maxSubscriberLag;
+    private final List<Event> events = new ArrayList<>();
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private JobStatus status = JobStatus.QUEUED;
+    private CompileResponse result;
+    private long finishedAt;
+    private boolean eventsDropped;
+    private RequestScheduler.Ticket ticket;
+
+    public Job(String id, int maxEvents, int maxSubscriberLag) {
+        this.id = id;
+        this.maxEvents = maxEvents;
+        this.maxSubscriberLag = maxSubscriberLag;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public synchronized JobStatus getStatus() {
+        return status;
+    }
+
+    public synchronized CompileResponse getResult() {
+        return result;
+    }
+
+    public synchronized long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public synchronized void setTicket(RequestScheduler.Ticket ticket) {
+        this.ticket = ticket;
+    }
+
+    // Current position in the scheduler queue; 0 once admitted
+    public synchronized int getQueuePosition() {
+        return ticket != null ? ticket.currentQueuePosition() : 0;
+    }
+
+    public synchronized long getEstimatedWaitMs() {
+        return ticket != null ? ticket.currentEstimatedWaitMs() : 0;
+    }
+
+    @Override
+    public void onStageStarted(String stage) {
+        setStatus("compile".equals(stage) ? JobStatus.COMPILING : JobStatus.RUNNING);
+    }
+
+    @Override
+    public void onOutput(String stream, String chunk) {
+        List<Subscriber> woken;
+        synchronized (this) {
+            woken = publish(stream, chunk);
+        }
+        startSenders(woken);
+    }
+
+    public void setStatus(JobStatus status) {
+        List<Subscriber> woken;
+        synchronized (this) {
+            this.status = status;
+            woken = publish(EVENT_STATUS, status.name());
+        }
+        startSenders(woken);
+    }
+
+    public void finish(CompileResponse result) {
+        List<Subscriber> woken;
+        synchronized (this) {
+            this.result = result;
+            this.status = result.isSuccess() ? JobStatus.COMPLETED : JobStatus.FAILED;
+            this.finishedAt = System.currentTimeMillis();
+            // Every idle subscriber is woken, so each one completes once it has sent the result
+            woken = new ArrayList<>(publish(EVENT_STATUS, status.name()));
+            woken.addAll(publish(EVENT_RESULT, result));
+        }
+        startSenders(woken);
+    }
+
+    /**
+     * Replays the events so far to the emitter and keeps it subscribed until the job finishes.
+     */
+    public void subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        synchronized (this) {
+            subscriber.joinedAt = events.size();
+            subscriber.sending = true;
+            subscribers.add(subscriber);
+        }
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        startSenders(List.of(subscriber));
+    }
+
+    // Connected subscribers, including ones still catching up
+    synchronized int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private synchronized void unsubscribe(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+    }
+
+    // Appends an event with the lock held; returns the subscribers that need a sender started
+    private List<Subscriber> publish(String name, Object data) {
+        // Output events past the limit are dropped; status and result events are always kept
+        boolean isOutput = !EVENT_STATUS.equals(name) && !EVENT_RESULT.equals(name);
+        if (isOutput && events.size() >= maxEvents) {
+            if (!eventsDropped) {
+                eventsDropped = true;
+                return publish(EVENT_STATUS, "OUTPUT_TRUNCATED");
+            }
+            return List.of();
+        }
+        events.add(new Event(name, data));
+
+        Iterator<Subscriber> it = subscribers.iterator();
+        while (it.hasNext()) {
+            Subscriber subscriber = it.next();
+            // Lag counts live events only; the replay of a late subscriber does not count
+            if (events.size() - Math.max(subscriber.next, subscriber.joinedAt) > maxSubscriberLag) {
+                subscriber.closed = true;
+                subscriber.lagging = true;
+                it.remove();
+            }
+        }
+        return idle(subscribers);
+    }
+
+    // Marks the subscribers without a running sender as sending and returns them
+    private static List<Subscriber> idle(List<Subscriber> subscribers) {
+        List<Subscriber> idle = new ArrayList<>();
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.sending) {
+                subscriber.sending = true;
+                idle.add(subscriber);
+            }
+        }
+        return idle;
+    }
+
+    private void startSenders(List<Subscriber> woken) {
+        for (Subscriber subscriber : woken) {
+            Thread.ofVirtual().name("job-events-" + id).start(() -> send(subscriber));
+        }
+    }
+
+    // Sends the subscriber's pending events without holding the lock, then completes it once the job is done
+    private void send(Subscriber subscriber) {
+        while (true) {
+            Event event;
+            synchronized (this) {
+                if (subscriber.closed) {
+                    subscriber.sending = false;
+                    break;
+                }
+                if (subscriber.next < events.size()) {
+                    event = events.get(subscriber.next++);
+                } else {
+                    subscriber.sending = false;
+                    if (!status.isFinished()) {
+                        return;
+                    }
+                    subscriber.closed = true;
+                    subscribers.remove(subscriber);
+                    break;
+                }
+            }
+            try {
+                subscriber.emitter.send(SseEmitter.event().name(event.name).data(event.data));
+            } catch (IOException | IllegalStateException e) {
+                // Client went away
+                unsubscribe(subscriber);
+                return;
+            }
+        }
+        if (subscriber.lagging) {
+            subscriber.emitter.completeWithError(new IOException("Subscriber fell more than " + maxSubscriberLag
+                    + " events behind job " + id));
+        } else {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private static class Event {
+        private final String name;
+        private final Object data;
+
+        private Event(String name, Object data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    // An SSE client and how far through the event list it has been sent; guarded by the job's lock
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private int next;
+        private int joinedAt;
+        private boolean sending;
+        private boolean closed;
+        private boolean lagging;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import org.springframework.stereotype.Service;
+
+import com.example.cpp_compiler_backend.cppcompiler.model.CompileResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Runs compile jobs asynchronously. Submission returns as soon as the job is queued;
+ * admission by the request scheduler and the compile and run stages are chained, so
+ * no request thread waits for the job to finish.
+ */
+@Service
+public class JobService {
+
+    private final CompilerService compilerService;
+    private final JobStore jobStore;
+    private final RequestScheduler scheduler;
+
+    public JobService(CompilerService compilerService, JobStore jobStore, RequestScheduler scheduler) {
+        this.compilerService = compilerService;
+        this.jobStore = jobStore;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Queues a job. Invalid options are rejected here with IllegalArgumentException, before
+     * the job takes a place in the scheduler.
+     */
+    public Job submit(String code, String input, CompileOptions options, String clientKey) {
+        compilerService.validate(options);
+        Job job = jobStore.create();
+
+        RequestScheduler.Ticket ticket;
+        try {
+            ticket = scheduler.enqueue(clientKey, RequestScheduler.Priority.INTERACTIVE);
+        } catch (PipelineBusyException e) {
+            jobStore.remove(job.getId());
+            throw e;
+        }
+        job.setTicket(ticket);
+
+        ticket.admitted()
+                .thenCompose(admitted -> compilerService.submitCompile(code, options, job))
+                .thenCompose(program -> runCompiled(job, program, input))
+                .whenComplete((ignored, error) -> ticket.close())
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    CompileResponse response = new CompileResponse();
+                    response.setSuccess(false);
+                    response.setMessage(cause instanceof PipelineBusyException
+                            ? cause.getMessage() : "Server error: " + cause.getMessage());
+                    job.finish(response);
+                    return null;
+                });
+        return job;
+    }
+
+    public Job get(String id) {
+        return jobStore.get(id);
+    }
+
+    private CompletableFuture<Void> runCompiled(Job job, CompilerService.CompiledProgram program, String input) {
+        CompileResponse response = new CompileResponse();
+        response.setToolchain(program.getToolchainId());
+        response.setCompileTimeMs(program.getCompileTimeMs());
+        if (!program.isSuccess()) {
+            compilerService.release(program);
+            response.setSuccess(false);
+            response.setOutput(program.getDiagnostics());
+            response.setMessage("Compilation or execution failed");
+            job.finish(response);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<CompilerService.RunResult> run;
+        try {
+            run = compilerService.submitRun(program, input, job);
+        } catch (PipelineBusyException e) {
+            compilerService.release(program);
+            throw e;
+        }
+        return run.whenComplete((result, error) -> compilerService.release(program))
+                .thenAccept(result -> {
+                    response.setSuccess(result.isSuccess());
+                    response.setOutput(result.getOutput());
+                    response.setRunTimeMs(result.getRunTimeMs());
+                    response.setPeakMemoryKb(result.getPeakMemoryKb());
+                    response.setUserCpuMs(result.getUserCpuMs());
+                    response.setSystemCpuMs(result.getSystemCpuMs());
+                    response.setOutputTruncated(result.isOutputTruncated());
+                    if (!result.isSuccess()) {
+                        response.setMessage("Compilation or execution failed");
+                    }
+                    job.finish(response);
+                });
+    }
+}
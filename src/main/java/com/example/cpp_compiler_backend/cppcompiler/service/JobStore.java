@@ -0,0 +1,78 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bounded in-memory store of asynchronous jobs. Finished jobs are kept for the
+ * retention period and evicted oldest-first when the store is full; jobs that
+ * are still running are never evicted.
+ */
+@Component
+public class JobStore {
+
+    private final int maxJobs;
+    private final int maxEventsPerJob;
+    private final int maxSubscriberLag;
+    private final Duration retention;
+
+    // Insertion-ordered, so iteration starts at the oldest job
+    private final LinkedHashMap<String, Job> jobs = new LinkedHashMap<>();
+
+    public JobStore(@Value("${compiler.jobs.max-jobs:1000}") int maxJobs,
+                    @Value("${compiler.jobs.max-events-per-job:10000}") int maxEventsPerJob,
+                    @Value("${compiler.jobs.max-subscriber-lag:1000}") int maxSubscriberLag,
+                    @Value("${compiler.jobs.retention:10m}") Duration retention) {
+        this.maxJobs = maxJobs;
+        this.maxEventsPerJob = maxEventsPerJob;
+        this.maxSubscriberLag = maxSubscriberLag;
+        this.retention = retention;
+    }
+
+    /**
+     * Creates and registers a new job; throws {@link PipelineBusyException}
+     * when the store is full of jobs that are still running.
+     */
+    public synchronized Job create() {
+        evict();
+        if (jobs.size() >= maxJobs) {
+            throw new PipelineBusyException("job");
+        }
+        Job job = new Job(UUID.randomUUID().toString(), maxEventsPerJob, maxSubscriberLag);
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    public synchronized Job get(String id) {
+        return jobs.get(id);
+    }
+
+    public synchronized void remove(String id) {
+        jobs.remove(id);
+    }
+
+    public synchronized int size() {
+        return jobs.size();
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Job>> it = jobs.entrySet().iterator();
+        while (it.hasNext()) {
+            Job job = it.next().getValue();
+            if (!job.getStatus().isFinished()) {
+                continue;
+            }
+            boolean expired = now - job.getFinishedAt() > retention.toMillis();
+            if (expired || jobs.size() >= maxJobs) {
+                it.remove();
+            }
+        }
+    }
+}
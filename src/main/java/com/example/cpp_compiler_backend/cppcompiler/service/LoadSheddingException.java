@@ -0,0 +1,22 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+/**
+ * Thrown when the scheduler sheds a request because the server is overloaded, rather
+ * than because one client asked for too much. Answered with 503 and a Retry-After.
+ */
+public class LoadSheddingException extends PipelineBusyException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public LoadSheddingException(String message, long retryAfterSeconds) {
+        super("scheduler", message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    // When the client should try again
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in worker nodes on this machine: child JVMs running this same application on
+ * their own ports, each with its own work, cache and precompiled-header directories.
+ * They speak the same HTTP worker protocol as remote nodes, so routing, health checks
+ * and fallback can be exercised without a second host. Owned by {@link WorkerRouter}.
+ */
+public class LocalWorkerProcesses implements AutoCloseable {
+
+    private static final String MAIN_CLASS = "com.example.cpp_compiler_backend.CppCompilerBackendApplication";
+
+    private final List<Process> processes = new ArrayList<>();
+    private final List<String> urls = new ArrayList<>();
+
+    public LocalWorkerProcesses(int count, int basePort, Path baseDir) {
+        for (int i = 0; i < count; i++) {
+            int port = basePort + i;
+            Path dir = baseDir.resolve("worker-" + (i + 1));
+            try {
+                Files.createDirectories(dir);
+                ProcessBuilder pb = new ProcessBuilder(command(port, dir));
+                pb.redirectErrorStream(true);
+                pb.redirectOutput(dir.resolve("worker.log").toFile());
+                processes.add(pb.start());
+                urls.add("http://localhost:" + port);
+                System.out.println("Started local worker " + (i + 1) + " on port " + port + ", log in " + dir);
+            } catch (IOException e) {
+                System.err.println("Failed to start local worker on port " + port + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Base URLs of the workers that were started
+    public List<String> getUrls() {
+        return urls;
+    }
+
+    @Override
+    public void close() {
+        for (Process process : processes) {
+            process.descendants().forEach(ProcessHandle::destroy);
+            process.destroy();
+        }
+        processes.clear();
+    }
+
+    // Same JVM and class path as this process; a worker never routes or starts workers itself
+    private static List<String> command(int port, Path dir) {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command()
+                .orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        String classPath = System.getProperty("java.class.path");
+        if (!classPath.contains(File.pathSeparator) && classPath.endsWith(".jar")) {
+            // Spring Boot fat jar
+            command.add("-jar");
+            command.add(classPath);
+        } else {
+            command.add("-cp");
+            command.add(classPath);
+            command.add(MAIN_CLASS);
+        }
+        command.add("--server.port=" + port);
+        command.add("--compiler.workers.urls=");
+        command.add("--compiler.workers.local-processes=0");
+        command.add("--compiler.work-dir=" + dir.resolve("work"));
+        command.add("--compiler.cache.dir=" + dir.resolve("cache"));
+        command.add("--compiler.pch.dir=" + dir.resolve("pch"));
+        command.add("--logging.level.org.springframework.web=INFO");
+        return command;
+    }
+}
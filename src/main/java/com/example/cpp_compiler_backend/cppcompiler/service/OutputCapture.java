@@ -0,0 +1,261 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Captures a process's stdout and stderr without letting either stream block the other
+ * and without unbounded memory use.
+ *
+ * Both streams are drained concurrently into buffers that share one byte budget.
+ * The capture keeps the head of the output: once the budget is used up, anything
+ * later is read and discarded (this is not a ring buffer, the tail is never kept),
+ * the capture is marked truncated and, if requested, the process is killed. A
+ * program stopped at the limit has nothing after the cut, and compiler diagnostics
+ * lead with the first error, so the head is the part worth keeping. With a stdout sink,
+ * stdout is copied to the sink as it arrives instead of being buffered; the budget
+ * still applies, and the process is killed if the sink stops accepting data. Buffered
+ * stderr can then be held to a smaller cap of its own, since the budget is sized for
+ * streaming and not for memory.
+ */
+public class OutputCapture {
+
+    private static final int READ_CHUNK_BYTES = 8192;
+
+    private final Process process;
+    private final int maxBytes;
+    private final int maxStderrBytes;
+    private final boolean killOnLimit;
+    private final ExecutionListener listener;
+    private final AtomicLong remainingBytes;
+    private final AtomicBoolean truncated = new AtomicBoolean();
+    private final Drain stdout;
+    private final Drain stderr;
+    private final OutputStream stdoutSink;
+    private final AtomicBoolean sinkFailed = new AtomicBoolean();
+
+    /**
+     * @param stderrStream listener stream name for stderr, or null when stderr is merged into stdout
+     * @param virtualThreads drain on virtual threads rather than platform threads
+     */
+    public OutputCapture(Process process, long maxBytes, boolean killOnLimit,
+                         ExecutionListener listener, String stdoutStream, String stderrStream,
+                         boolean virtualThreads) {
+        this(process, maxBytes, killOnLimit, listener, stdoutStream, stderrStream, virtualThreads, null, maxBytes);
+    }
+
+    /**
+     * @param stdoutSink receives stdout instead of the buffer, or null to buffer it
+     * @param maxStderrBytes most bytes of stderr kept, within the shared budget
+     */
+    public OutputCapture(Process process, long maxBytes, boolean killOnLimit,
+                         ExecutionListener listener, String stdoutStream, String stderrStream,
+                         boolean virtualThreads, OutputStream stdoutSink, long maxStderrBytes) {
+        this.process = process;
+        this.stdoutSink = stdoutSink;
+        this.maxBytes = (int) Math.min(maxBytes, Integer.MAX_VALUE - 8);
+        this.maxStderrBytes = (int) Math.min(maxStderrBytes, this.maxBytes);
+        this.killOnLimit = killOnLimit;
+        this.listener = listener;
+        this.remainingBytes = new AtomicLong(this.maxBytes);
+        this.stdout = new Drain(process.getInputStream(), stdoutStream, virtualThreads, stdoutSink, this.maxBytes);
+        this.stderr = stderrStream != null
+                ? new Drain(process.getErrorStream(), stderrStream, virtualThreads, null, this.maxStderrBytes) : null;
+    }
+
+    // Unstarted daemon thread for blocking process I/O, virtual or platform
+    static Thread newIoThread(String name, boolean virtual, Runnable task) {
+        if (virtual) {
+            return Thread.ofVirtual().name(name).unstarted(task);
+        }
+        return Thread.ofPlatform().name(name).daemon(true).unstarted(task);
+    }
+
+    public void start() {
+        stdout.thread.start();
+        if (stderr != null) {
+            stderr.thread.start();
+        }
+    }
+
+    /**
+     * Waits at most the timeout for both streams to end. Returns false if one is still
+     * open, e.g. because a background child inherited it and outlived the process.
+     */
+    public boolean await(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (Drain drain : stderr != null ? List.of(stdout, stderr) : List.of(stdout)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !drain.thread.join(Duration.ofNanos(remaining))) {
+                break;
+            }
+        }
+        return !stdout.thread.isAlive() && (stderr == null || !stderr.thread.isAlive());
+    }
+
+    public String getStdout() {
+        return stdout.buffer.toText();
+    }
+
+    public String getStderr() {
+        return stderr != null ? stderr.buffer.toText() : "";
+    }
+
+    public long getCapturedBytes() {
+        return stdout.buffer.size() + stdout.sunkBytes + (stderr != null ? stderr.buffer.size() : 0);
+    }
+
+    // True when writing to the stdout sink failed, e.g. because the client disconnected
+    public boolean isSinkFailed() {
+        return sinkFailed.get();
+    }
+
+    // True when output was dropped because the byte limit was reached
+    public boolean isTruncated() {
+        return truncated.get();
+    }
+
+    // Reserves up to the requested number of bytes from the shared budget
+    private int reserve(int requested) {
+        while (true) {
+            long remaining = remainingBytes.get();
+            int granted = (int) Math.min(remaining, requested);
+            if (remainingBytes.compareAndSet(remaining, remaining - granted)) {
+                return granted;
+            }
+        }
+    }
+
+    private void onLimitReached() {
+        if (truncated.compareAndSet(false, true) && killOnLimit) {
+            destroyProcess();
+        }
+    }
+
+    private void onSinkFailed() {
+        if (sinkFailed.compareAndSet(false, true)) {
+            destroyProcess();
+        }
+    }
+
+    private void destroyProcess() {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    private class Drain implements Runnable {
+        private final Thread thread;
+        private final InputStream stream;
+        private final String streamName;
+        private final OutputStream sink;
+        private volatile long sunkBytes;
+        private final BoundedBuffer buffer;
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private ByteBuffer pending = ByteBuffer.allocate(0);
+
+        private Drain(InputStream stream, String streamName, boolean virtualThreads, OutputStream sink, int capacity) {
+            this.thread = newIoThread("output-capture-" + streamName, virtualThreads, this);
+            this.stream = stream;
+            this.streamName = streamName;
+            this.sink = sink;
+            this.buffer = new BoundedBuffer(capacity);
+        }
+
+        @Override
+        public void run() {
+            byte[] chunk = new byte[READ_CHUNK_BYTES];
+            try (stream) {
+                int read;
+                while ((read = stream.read(chunk)) != -1) {
+                    int kept = reserve(sink != null ? read : Math.min(read, buffer.room()));
+                    if (kept > 0 && sink != null) {
+                        if (!sinkFailed.get()) {
+                            writeToSink(chunk, kept);
+                        }
+                    } else if (kept > 0) {
+                        buffer.append(chunk, kept);
+                        if (listener != ExecutionListener.NONE) {
+                            forward(chunk, kept);
+                        }
+                    }
+                    if (kept < read) {
+                        onLimitReached();
+                    }
+                }
+            } catch (IOException e) {
+                // Stream closed because the process was killed
+            }
+        }
+
+        private void writeToSink(byte[] chunk, int length) {
+            try {
+                sink.write(chunk, 0, length);
+                sunkBytes += length;
+            } catch (IOException e) {
+                onSinkFailed();
+            }
+        }
+
+        // Decodes the new bytes for the listener, holding back a trailing partial character
+        private void forward(byte[] chunk, int length) {
+            ByteBuffer input = ByteBuffer.allocate(pending.remaining() + length);
+            input.put(pending).put(chunk, 0, length).flip();
+            CharBuffer chars = CharBuffer.allocate(input.remaining());
+            decoder.decode(input, chars, false);
+            pending = input.slice();
+            chars.flip();
+            if (chars.hasRemaining()) {
+                listener.onOutput(streamName, chars.toString());
+            }
+        }
+    }
+
+    /**
+     * Byte buffer that grows on demand up to a fixed capacity. Appends are checked
+     * against the shared budget first, so they never exceed the capacity; bytes past
+     * it are dropped rather than overwriting earlier ones.
+     */
+    private static class BoundedBuffer {
+        private final int capacity;
+        private byte[] data;
+        private int size;
+
+        private BoundedBuffer(int capacity) {
+            this.capacity = capacity;
+            this.data = new byte[Math.min(1024, capacity)];
+        }
+
+        private synchronized void append(byte[] bytes, int length) {
+            if (size + length > data.length) {
+                data = Arrays.copyOf(data, Math.min(capacity, Math.max(size + length, data.length * 2)));
+            }
+            System.arraycopy(bytes, 0, data, size, length);
+            size += length;
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        private synchronized int room() {
+            return capacity - size;
+        }
+
+        private synchronized String toText() {
+            return new String(data, 0, size, StandardCharsets.UTF_8);
+        }
+    }
+}
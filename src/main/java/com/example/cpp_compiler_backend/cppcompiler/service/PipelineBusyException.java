@@ -0,0 +1,26 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+/**
+ * Thrown when a pipeline stage has no free worker and its queue is full, or when the
+ * request scheduler turns a request away.
+ */
+public class PipelineBusyException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String stage;
+
+    public PipelineBusyException(String stage) {
+        super("The " + stage + " stage is at capacity, please retry later");
+        this.stage = stage;
+    }
+
+    public PipelineBusyException(String stage, String message) {
+        super(message);
+        this.stage = stage;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+}
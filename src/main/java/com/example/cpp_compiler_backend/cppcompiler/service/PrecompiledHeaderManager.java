@@ -0,0 +1,336 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds and hands out precompiled headers for configured bundles of common headers.
+ *
+ * A bundle is a named list of system headers. For every compiler and flag combination
+ * in use, each bundle is compiled once into a .gch on a background thread. A submission
+ * whose system includes begin with exactly the headers of a ready bundle, in the same
+ * order, is compiled with {@code -include <bundle>.h} so g++ loads the precompiled
+ * header instead of parsing the headers again. A bundle is never used for a source
+ * that includes only some of its headers: the extra headers would change what the
+ * program means, and whether it compiles would depend on the header being ready.
+ */
+@Component
+public class PrecompiledHeaderManager {
+
+    private static final Pattern SYSTEM_INCLUDE = Pattern.compile("^\\s*#\\s*include\\s*<([^>]+)>");
+    private static final Pattern DIRECTIVE = Pattern.compile("^\\s*#\\s*(\\w+)");
+
+    private final boolean enabled;
+    private final Path pchDir;
+    private final Map<String, List<String>> bundles;
+
+    // Built headers by compiler + flags, then by bundle name
+    private final Map<String, Map<String, BuiltBundle>> built = new ConcurrentHashMap<>();
+    // Filled once in the constructor, read-only afterwards
+    private final Map<String, CompileStats> stats = new LinkedHashMap<>();
+    private final ExecutorService builder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pch-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PrecompiledHeaderManager(@Value("${compiler.pch.enabled:true}") boolean enabled,
+                                    @Value("${compiler.pch.dir:${compiler.data-dir:${user.home}/.cpp-compiler}/pch}") String pchDir,
+                                    @Value("${compiler.pch.bundles:}") String bundles) {
+        this.enabled = enabled;
+        this.pchDir = Path.of(pchDir);
+        this.bundles = parseBundles(bundles);
+        for (String name : this.bundles.keySet()) {
+            stats.put(name, new CompileStats(name, this.bundles.get(name)));
+        }
+        stats.put(CompileStats.NO_PCH, new CompileStats(CompileStats.NO_PCH, Collections.emptyList()));
+
+        // Headers built by a previous run may come from a different compiler, so always rebuild
+        try {
+            if (Files.exists(this.pchDir)) {
+                try (var files = Files.walk(this.pchDir)) {
+                    files.sorted(Collections.reverseOrder()).forEach(path -> path.toFile().delete());
+                }
+            }
+            Files.createDirectories(this.pchDir);
+        } catch (IOException e) {
+            System.err.println("Failed to prepare precompiled header directory: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        builder.shutdownNow();
+    }
+
+    /**
+     * Starts building every bundle for the given compiler and flags, unless already started.
+     */
+    public void warmUp(String compilerPath, String flags) {
+        if (!enabled || bundles.isEmpty()) {
+            return;
+        }
+        String toolchainKey = compilerPath + "\u0000" + flags;
+        if (built.putIfAbsent(toolchainKey, new ConcurrentHashMap<>()) != null) {
+            return;
+        }
+        for (Map.Entry<String, List<String>> bundle : bundles.entrySet()) {
+            builder.submit(() -> build(toolchainKey, compilerPath, flags, bundle.getKey(), bundle.getValue()));
+        }
+    }
+
+    /**
+     * Returns the ready bundle with the most headers whose headers start the source's
+     * system includes, or null if none applies. Sources with macros or conditionals
+     * ahead of their includes never match, since the precompiled header is processed
+     * before any of the source.
+     */
+    public BuiltBundle match(String code, String compilerPath, String flags) {
+        if (!enabled || bundles.isEmpty()) {
+            return null;
+        }
+        String toolchainKey = compilerPath + "\u0000" + flags;
+        Map<String, BuiltBundle> ready = built.get(toolchainKey);
+        if (ready == null) {
+            warmUp(compilerPath, flags);
+            return null;
+        }
+
+        Set<String> includes = systemIncludes(code);
+        if (includes == null || includes.isEmpty()) {
+            return null;
+        }
+        BuiltBundle match = null;
+        for (String name : bundles.keySet()) {
+            BuiltBundle bundle = ready.get(name);
+            if (bundle != null && startsWith(includes, bundle.headers)
+                    && (match == null || bundle.headers.size() > match.headers.size())) {
+                match = bundle;
+            }
+        }
+        return match;
+    }
+
+    // True when the includes begin with exactly these headers, in this order
+    static boolean startsWith(Set<String> includes, List<String> headers) {
+        return includes.size() >= headers.size()
+                && new ArrayList<>(includes).subList(0, headers.size()).equals(headers);
+    }
+
+    // Records a successful compilation, with or without a precompiled header
+    public void recordCompile(BuiltBundle bundle, long compileTimeMs) {
+        CompileStats bundleStats = stats.get(bundle != null ? bundle.name : CompileStats.NO_PCH);
+        if (bundleStats != null) {
+            bundleStats.compiles.incrementAndGet();
+            bundleStats.totalCompileMs.addAndGet(compileTimeMs);
+        }
+    }
+
+    public List<CompileStats> stats() {
+        return new ArrayList<>(stats.values());
+    }
+
+    private void build(String toolchainKey, String compilerPath, String flags, String name, List<String> headers) {
+        try {
+            Path dir = pchDir.resolve(name + "-" + hash(toolchainKey));
+            Files.createDirectories(dir);
+            Path header = dir.resolve(name + ".h");
+            StringBuilder content = new StringBuilder();
+            for (String include : headers) {
+                content.append("#include <").append(include).append(">\n");
+            }
+            Files.writeString(header, content.toString());
+
+            List<String> command = new ArrayList<>();
+            command.add(compilerPath);
+            if (!flags.isEmpty()) {
+                command.addAll(Arrays.asList(flags.split("\\s+")));
+            }
+            command.addAll(List.of("-x", "c++-header", header.toString(), "-o", header + ".gch"));
+
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(command)
+                    .directory(dir.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            boolean completed = process.waitFor(2, TimeUnit.MINUTES);
+            long buildTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (!completed) {
+                process.destroyForcibly();
+            }
+
+            CompileStats bundleStats = stats.get(name);
+            if (completed && process.exitValue() == 0 && Files.exists(Path.of(header + ".gch"))) {
+                built.get(toolchainKey).put(name, new BuiltBundle(name, header.toString(), List.copyOf(headers)));
+                bundleStats.buildTimeMs.set(buildTimeMs);
+                bundleStats.builds.incrementAndGet();
+                System.out.println("Built precompiled header '" + name + "' for " + compilerPath + " in " + buildTimeMs + " ms");
+            } else {
+                bundleStats.failedBuilds.incrementAndGet();
+                System.err.println("Failed to build precompiled header '" + name + "' for " + compilerPath);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to build precompiled header '" + name + "': " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the system headers included by the source, or null if a macro definition
+     * or conditional appears before the last include.
+     */
+    static Set<String> systemIncludes(String code) {
+        Set<String> includes = new LinkedHashSet<>();
+        boolean directiveSeen = false;
+        for (String line : code.split("\n")) {
+            Matcher include = SYSTEM_INCLUDE.matcher(line);
+            if (include.find()) {
+                if (directiveSeen) {
+                    return null;
+                }
+                includes.add(include.group(1).trim());
+                continue;
+            }
+            Matcher directive = DIRECTIVE.matcher(line);
+            if (directive.find()) {
+                if (directive.group(1).equals("include")) {
+                    // Quoted include of a local header
+                    return null;
+                }
+                directiveSeen = true;
+            }
+        }
+        return includes;
+    }
+
+    // Parses "name:header,header;name:header" into an ordered map
+    private static Map<String, List<String>> parseBundles(String spec) {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (String bundle : spec.split(";")) {
+            int colon = bundle.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            List<String> headers = new ArrayList<>();
+            for (String header : bundle.substring(colon + 1).split(",")) {
+                if (!header.isBlank()) {
+                    headers.add(header.trim());
+                }
+            }
+            if (!headers.isEmpty()) {
+                result.put(bundle.substring(0, colon).trim(), headers);
+            }
+        }
+        return result;
+    }
+
+    private static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // A bundle whose precompiled header is ready for one compiler and flag combination
+    public static class BuiltBundle {
+        private final String name;
+        private final String headerPath;
+        private final List<String> headers;
+
+        private BuiltBundle(String name, String headerPath, List<String> headers) {
+            this.name = name;
+            this.headerPath = headerPath;
+            this.headers = headers;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Path passed to -include; g++ picks up the .gch next to it
+        public String getHeaderPath() {
+            return headerPath;
+        }
+    }
+
+    // Build and compile-time figures for one bundle, or for compiles without a precompiled header
+    public static class CompileStats {
+        public static final String NO_PCH = "none";
+
+        private final String bundle;
+        private final List<String> headers;
+        private final AtomicLong builds = new AtomicLong();
+        private final AtomicLong failedBuilds = new AtomicLong();
+        private final AtomicLong buildTimeMs = new AtomicLong();
+        private final AtomicLong compiles = new AtomicLong();
+        private final AtomicLong totalCompileMs = new AtomicLong();
+
+        private CompileStats(String bundle, List<String> headers) {
+            this.bundle = bundle;
+            this.headers = headers;
+        }
+
+        public String getBundle() {
+            return bundle;
+        }
+
+        public List<String> getHeaders() {
+            return headers;
+        }
+
+        public long getBuilds() {
+            return builds.get();
+        }
+
+        public long getFailedBuilds() {
+            return failedBuilds.get();
+        }
+
+        // Time taken by the most recent build of this bundle
+        public long getBuildTimeMs() {
+            return buildTimeMs.get();
+        }
+
+        public long getCompiles() {
+            return compiles.get();
+        }
+
+        public long getTotalCompileMs() {
+            return totalCompileMs.get();
+        }
+
+        public double getAverageCompileMs() {
+            long count = compiles.get();
+            return count == 0 ? 0.0 : (double) totalCompileMs.get() / count;
+        }
+    }
+}
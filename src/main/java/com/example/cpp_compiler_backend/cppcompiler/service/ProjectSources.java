@@ -0,0 +1,177 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The files of a multi-file project: translation units plus the headers they include.
+ *
+ * File names are validated as relative paths inside the project. Every translation
+ * unit gets a digest over its own text and the text of each project header it reaches
+ * through its includes, so an edit to one file changes the digest of exactly the
+ * units that can see it. Units compile with -I at the project root, so an angle include
+ * such as {@code #include <util.h>} counts when it names a file at the root. A file with an include the scanner cannot follow, such as
+ * {@code #include MACRO}, makes every header count for the units that reach it.
+ */
+public class ProjectSources {
+
+    private static final Set<String> UNIT_EXTENSIONS = Set.of(".cpp", ".cc", ".cxx", ".c++");
+
+    private static final Pattern QUOTED_INCLUDE = Pattern.compile("^\\s*#\\s*include\\s*\"([^\"]+)\"");
+    private static final Pattern ANGLE_INCLUDE = Pattern.compile("^\\s*#\\s*include\\s*<([^>]+)>");
+    private static final Pattern INCLUDE = Pattern.compile("^\\s*#\\s*include\\b");
+
+    // Sorted by name so digests and link order do not depend on request order
+    private final TreeMap<String, String> files = new TreeMap<>();
+    private final List<String> units = new ArrayList<>();
+
+    /**
+     * Validates the file map. Throws IllegalArgumentException for an empty project,
+     * too many files, a name that escapes the project directory, or no .cpp file.
+     */
+    public ProjectSources(Map<String, String> files, int maxFiles) {
+        if (files == null || files.isEmpty()) {
+            throw new IllegalArgumentException("A project needs at least one file");
+        }
+        if (files.size() > maxFiles) {
+            throw new IllegalArgumentException("A project may contain at most " + maxFiles + " files");
+        }
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            String name = normalize(file.getKey());
+            if (this.files.put(name, file.getValue() != null ? file.getValue() : "") != null) {
+                throw new IllegalArgumentException("Duplicate file name: " + file.getKey());
+            }
+        }
+        for (String name : this.files.keySet()) {
+            if (isUnit(name)) {
+                units.add(name);
+            }
+        }
+        if (units.isEmpty()) {
+            throw new IllegalArgumentException("A project needs at least one .cpp file");
+        }
+    }
+
+    // Every file by normalized name, in name order
+    public Map<String, String> getFiles() {
+        return files;
+    }
+
+    // Translation units in name order, which is also the link order
+    public List<String> getUnits() {
+        return units;
+    }
+
+    /**
+     * Digest of a translation unit and every project header it can include.
+     */
+    public String unitDigest(String unit) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String name : reachableFiles(unit)) {
+                byte[] path = name.getBytes(StandardCharsets.UTF_8);
+                byte[] content = files.get(name).getBytes(StandardCharsets.UTF_8);
+                digest.update(Integer.toString(path.length).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(path);
+                digest.update(Integer.toString(content.length).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(content);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // The unit plus the transitive closure of its includes that resolve to project files
+    private Set<String> reachableFiles(String unit) {
+        Set<String> reached = new TreeSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        reached.add(unit);
+        pending.push(unit);
+        while (!pending.isEmpty()) {
+            String current = pending.pop();
+            for (String line : files.get(current).split("\n")) {
+                Matcher quoted = QUOTED_INCLUDE.matcher(line);
+                Matcher angle = ANGLE_INCLUDE.matcher(line);
+                String target = null;
+                if (quoted.find()) {
+                    target = resolve(current, quoted.group(1));
+                } else if (angle.find()) {
+                    // Angle includes skip the including file's directory; system headers resolve to nothing
+                    target = resolve(null, angle.group(1));
+                } else if (INCLUDE.matcher(line).find()) {
+                    // Computed include: any header in the project may be pulled in
+                    for (String name : files.keySet()) {
+                        if (!isUnit(name)) {
+                            reached.add(name);
+                        }
+                    }
+                }
+                if (target != null && reached.add(target)) {
+                    pending.push(target);
+                }
+            }
+        }
+        return reached;
+    }
+
+    // Same lookup order as g++ with -I at the project root: the including file's directory first,
+    // when there is one
+    private String resolve(String from, String include) {
+        Path parent = from != null ? Path.of(from).getParent() : null;
+        List<String> candidates = new ArrayList<>();
+        try {
+            if (parent != null) {
+                candidates.add(parent.resolve(include).normalize().toString().replace('\\', '/'));
+            }
+            candidates.add(Path.of(include).normalize().toString().replace('\\', '/'));
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        for (String candidate : candidates) {
+            if (files.containsKey(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isUnit(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && UNIT_EXTENSIONS.contains(name.substring(dot).toLowerCase());
+    }
+
+    private static String normalize(String name) {
+        if (name == null || name.isBlank() || name.indexOf('\0') >= 0) {
+            throw new IllegalArgumentException("File names cannot be empty");
+        }
+        Path path;
+        try {
+            path = Path.of(name.replace('\\', '/')).normalize();
+        } catch (InvalidPathException e) {
+            throw new IllegalArgumentException("Invalid file name: " + name);
+        }
+        String normalized = path.toString().replace('\\', '/');
+        if (path.isAbsolute() || normalized.isEmpty() || normalized.equals("..") || normalized.startsWith("../")
+                || normalized.startsWith("/") || normalized.contains(":")) {
+            throw new IllegalArgumentException("File names must be relative paths inside the project: " + name);
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent work with the same key.
+ *
+ * The first caller for a key starts the work; callers arriving while it is still
+ * running join it and receive the same future. Once the work completes the key is
+ * forgotten, so later callers start fresh work. The settle function sees the result
+ * together with the number of callers that shared it, before any of them does.
+ */
+public class RequestCoalescer<V> {
+
+    private final Map<String, Shared<V>> inFlight = new HashMap<>();
+    private final BiFunction<V, Integer, V> settle;
+
+    public RequestCoalescer(BiFunction<V, Integer, V> settle) {
+        this.settle = settle;
+    }
+
+    /**
+     * Joins the work in flight for the key, or starts it with the supplier. Exceptions
+     * thrown by the supplier are rethrown to the caller that started the work and
+     * complete the future of anyone who joined in the meantime.
+     */
+    public CompletableFuture<V> join(String key, Supplier<CompletableFuture<V>> start) {
+        Shared<V> shared;
+        synchronized (this) {
+            shared = inFlight.get(key);
+            if (shared != null) {
+                shared.participants++;
+                return shared.result;
+            }
+            shared = new Shared<>();
+            inFlight.put(key, shared);
+        }
+
+        Shared<V> started = shared;
+        CompletableFuture<V> work;
+        try {
+            work = start.get();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                inFlight.remove(key, started);
+            }
+            started.result.completeExceptionally(e);
+            throw e;
+        }
+        work.whenComplete((value, error) -> {
+            int participants;
+            synchronized (this) {
+                inFlight.remove(key, started);
+                participants = started.participants;
+            }
+            if (error != null) {
+                started.result.completeExceptionally(error);
+            } else {
+                started.result.complete(settle.apply(value, participants));
+            }
+        });
+        return started.result;
+    }
+
+    // Keys with work currently in flight
+    public synchronized int size() {
+        return inFlight.size();
+    }
+
+    private static class Shared<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private int participants = 1;
+    }
+}
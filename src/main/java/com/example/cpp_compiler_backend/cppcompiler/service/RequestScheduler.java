@@ -0,0 +1,459 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission scheduler in front of the compile and run pipeline.
+ *
+ * At most max-concurrent requests are inside the pipeline at once; the rest wait here.
+ * Waiting requests are served by priority class first, interactive before batch, and
+ * within a class by weighted fair queuing on the client key: every request gets a
+ * virtual finish tag of max(class virtual time, client's last tag) + 1 / weight, and
+ * the smallest tag goes next. A client that submits hundreds of requests therefore
+ * only gets its share of the slots. Each client may have a bounded number of requests
+ * waiting, and a request is rejected once it has waited longer than max-wait. A batch
+ * request that has been at the head of its queue for longer than the aging period is
+ * served ahead of interactive work, so batch grading is never starved indefinitely.
+ *
+ * The local share of the slots is not fixed: the AdmissionController lowers it under
+ * host pressure or rising latency and raises it again when the node copes. A request
+ * that cannot be admitted at once and whose estimated wait under the current limit is
+ * longer than the admission max-queue-wait is shed immediately with a
+ * LoadSheddingException instead of queuing towards a timeout.
+ */
+@Component
+public class RequestScheduler {
+
+    // Declaration order is precedence order
+    public enum Priority {
+        INTERACTIVE,
+        BATCH
+    }
+
+    // Weight of the moving average of how long a request holds its slot
+    private static final double SERVICE_TIME_ALPHA = 0.2;
+    private static final int MAX_CLIENT_KEY_LENGTH = 64;
+
+    private final boolean enabled;
+    private final int localCapacity;
+    private final AdmissionController admission;
+    private final CompilerMetrics metrics;
+    // Capacity of healthy worker nodes; requests routed to them also hold a slot here
+    private int remoteCapacity;
+    private final int maxQueuedPerClient;
+    private final Duration maxWait;
+    private final Duration aging;
+    private final Map<String, Double> weights = new HashMap<>();
+
+    private final Map<Priority, TreeSet<Waiter>> queues = new EnumMap<>(Priority.class);
+    private final Map<Priority, Double> virtualTime = new EnumMap<>(Priority.class);
+    private final Map<Priority, Map<String, Double>> lastFinish = new EnumMap<>(Priority.class);
+    private final Map<String, Integer> queuedPerClient = new HashMap<>();
+    private int running;
+    private long sequence;
+    private double averageServiceMs = 1000;
+
+    public RequestScheduler(CompilerMetrics metrics, AdmissionController admission,
+                            @Value("${compiler.scheduler.enabled:true}") boolean enabled,
+                            @Value("${compiler.scheduler.max-concurrent:0}") int maxConcurrent,
+                            @Value("${compiler.scheduler.max-queued-per-client:20}") int maxQueuedPerClient,
+                            @Value("${compiler.scheduler.max-wait:60s}") Duration maxWait,
+                            @Value("${compiler.scheduler.aging:30s}") Duration aging,
+                            @Value("${compiler.scheduler.weights:}") String weights,
+                            @Value("${compiler.pipeline.compile.threads:0}") int compileThreads,
+                            @Value("${compiler.pipeline.run.threads:4}") int runThreads) {
+        this.enabled = enabled;
+        // By default as many requests as the two stages have workers
+        this.localCapacity = maxConcurrent > 0 ? maxConcurrent
+                : (compileThreads > 0 ? compileThreads : Runtime.getRuntime().availableProcessors()) + runThreads;
+        this.admission = admission;
+        this.metrics = metrics;
+        this.maxQueuedPerClient = maxQueuedPerClient;
+        this.maxWait = maxWait;
+        this.aging = aging;
+        parseWeights(weights);
+        Comparator<Waiter> order = Comparator.comparingDouble((Waiter waiter) -> waiter.finishTag)
+                .thenComparingLong(waiter -> waiter.sequence);
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new TreeSet<>(order));
+            virtualTime.put(priority, 0.0);
+            lastFinish.put(priority, new HashMap<>());
+        }
+    }
+
+    // Publishes the scheduler once it is fully constructed
+    @PostConstruct
+    public void start() {
+        metrics.registerScheduler(this);
+        if (enabled) {
+            System.out.println("Request scheduler: " + localCapacity + " requests at once, "
+                    + maxQueuedPerClient + " queued per client, max wait " + maxWait);
+            admission.attach(localCapacity, this::onLimitRaised);
+        }
+    }
+
+    /**
+     * Client key for a request: the X-Client-Key header when present, else the remote address.
+     */
+    public static String clientKey(String header, String remoteAddress) {
+        String key = header != null && !header.isBlank() ? header.trim() : remoteAddress;
+        if (key == null) {
+            return "anonymous";
+        }
+        return key.length() > MAX_CLIENT_KEY_LENGTH ? key.substring(0, MAX_CLIENT_KEY_LENGTH) : key;
+    }
+
+    /**
+     * Queues a request and returns its ticket straight away; {@link Ticket#admitted()}
+     * completes once the request may enter the pipeline. Throws PipelineBusyException
+     * when the client already has too many requests waiting, and LoadSheddingException
+     * when the server would not get to the request within the admission max-queue-wait.
+     */
+    public Ticket enqueue(String clientKey, Priority priority) {
+        Ticket ticket;
+        synchronized (this) {
+            if (!enabled || (running < getMaxConcurrent() && isQueueEmpty())) {
+                running++;
+                ticket = new Ticket(null, 0, 0);
+                ticket.admittedAt = System.nanoTime();
+                ticket.admission.complete(ticket);
+                return ticket;
+            }
+            shedIfOverloaded(priority);
+            int queued = queuedPerClient.getOrDefault(clientKey, 0);
+            if (queued >= maxQueuedPerClient) {
+                throw new PipelineBusyException("scheduler", "Client " + clientKey + " already has " + queued
+                        + " requests waiting, please retry later");
+            }
+            Map<String, Double> tags = lastFinish.get(priority);
+            double start = Math.max(virtualTime.get(priority), tags.getOrDefault(clientKey, 0.0));
+            Waiter waiter = new Waiter(clientKey, priority, start + 1.0 / weight(clientKey), sequence++);
+            tags.put(clientKey, waiter.finishTag);
+            queues.get(priority).add(waiter);
+            queuedPerClient.merge(clientKey, 1, Integer::sum);
+            int position = positionOf(waiter);
+            ticket = new Ticket(waiter, position, estimateWaitMs(position));
+            waiter.ticket = ticket;
+        }
+        CompletableFuture.delayedExecutor(maxWait.toMillis(), TimeUnit.MILLISECONDS).execute(() -> expire(ticket));
+        return ticket;
+    }
+
+    /**
+     * Queues a request and blocks until it is admitted. The ticket must be closed when
+     * the request leaves the pipeline.
+     */
+    public Ticket enter(String clientKey, Priority priority) {
+        Ticket ticket = enqueue(clientKey, priority);
+        try {
+            return ticket.admitted().get();
+        } catch (InterruptedException e) {
+            ticket.close();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting in the request queue", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof PipelineBusyException busy) {
+                throw busy;
+            }
+            throw new IllegalStateException("Request queue failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    // Requests admitted at once, here and on healthy worker nodes together
+    public synchronized int getMaxConcurrent() {
+        return getLocalLimit() + remoteCapacity;
+    }
+
+    // Requests this server admits at once right now, as set by admission control
+    public int getLocalLimit() {
+        // Admission control only adapts the limit of an enabled scheduler
+        return enabled ? admission.getLimit() : localCapacity;
+    }
+
+    // Requests this server admits at once when it has no workers
+    public int getLocalCapacity() {
+        return localCapacity;
+    }
+
+    /**
+     * Updates the capacity contributed by worker nodes, admitting waiting requests
+     * when it grew.
+     */
+    public void setRemoteCapacity(int capacity) {
+        List<Ticket> admitted;
+        synchronized (this) {
+            if (capacity == remoteCapacity) {
+                return;
+            }
+            remoteCapacity = capacity;
+            admitted = dispatch();
+        }
+        admitted.forEach(next -> next.admission.complete(next));
+    }
+
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    public synchronized int getQueued(Priority priority) {
+        return queues.get(priority).size();
+    }
+
+    private void expire(Ticket ticket) {
+        synchronized (this) {
+            if (!dequeue(ticket.waiter)) {
+                return;
+            }
+        }
+        ticket.admission.completeExceptionally(new PipelineBusyException("scheduler",
+                "Waited longer than " + maxWait.toSeconds() + " s in the request queue, please retry later"));
+    }
+
+    private void close(Ticket ticket) {
+        List<Ticket> admitted;
+        synchronized (this) {
+            if (ticket.admittedAt == 0) {
+                // Still waiting, or already expired
+                dequeue(ticket.waiter);
+                admitted = List.of();
+            } else {
+                double heldMs = (System.nanoTime() - ticket.admittedAt) / 1_000_000.0;
+                averageServiceMs += SERVICE_TIME_ALPHA * (heldMs - averageServiceMs);
+                admission.onCompleted(heldMs, running - remoteCapacity);
+                running--;
+                admitted = dispatch();
+            }
+        }
+        if (ticket.waiter != null && !ticket.admission.isDone()) {
+            ticket.admission.completeExceptionally(new CancellationException("Left the request queue"));
+        }
+        admitted.forEach(next -> next.admission.complete(next));
+    }
+
+    private void onLimitRaised() {
+        List<Ticket> admitted;
+        synchronized (this) {
+            admitted = dispatch();
+        }
+        admitted.forEach(next -> next.admission.complete(next));
+    }
+
+    /**
+     * Sheds a request that would join the queue behind more work than the server gets
+     * through within the admission max-queue-wait. Its estimate counts everything that
+     * is served before it, so interactive requests only look at the interactive queue.
+     */
+    private void shedIfOverloaded(Priority priority) {
+        if (!admission.isEnabled()) {
+            return;
+        }
+        int position = 1;
+        for (Priority ahead : Priority.values()) {
+            position += queues.get(ahead).size();
+            if (ahead == priority) {
+                break;
+            }
+        }
+        long waitMs = estimateWaitMs(position);
+        long maxWaitMs = admission.getMaxQueueWait().toMillis();
+        if (waitMs > maxWaitMs) {
+            long retryAfter = Math.min(60, Math.max(1, TimeUnit.MILLISECONDS.toSeconds(waitMs - maxWaitMs) + 1));
+            metrics.recordShed(priority.name().toLowerCase());
+            throw new LoadSheddingException("Server is overloaded: about " + waitMs / 1000 + " s of work is queued"
+                    + " ahead of this request, please retry in " + retryAfter + " s", retryAfter);
+        }
+    }
+
+    // Admits waiting requests while slots are free; completed by the caller outside the lock
+    private List<Ticket> dispatch() {
+        List<Ticket> admitted = new ArrayList<>();
+        while (running < getMaxConcurrent()) {
+            Waiter next = next();
+            if (next == null) {
+                break;
+            }
+            dequeue(next);
+            virtualTime.put(next.priority, Math.max(virtualTime.get(next.priority), next.finishTag));
+            running++;
+            next.ticket.admittedAt = System.nanoTime();
+            admitted.add(next.ticket);
+        }
+        return admitted;
+    }
+
+    private Waiter next() {
+        long now = System.nanoTime();
+        // A lower class whose head has waited past the aging period goes first
+        for (Priority priority : Priority.values()) {
+            TreeSet<Waiter> queue = queues.get(priority);
+            if (priority.ordinal() > 0 && !queue.isEmpty() && now - queue.first().enqueuedAt > aging.toNanos()) {
+                return queue.first();
+            }
+        }
+        for (Priority priority : Priority.values()) {
+            TreeSet<Waiter> queue = queues.get(priority);
+            if (!queue.isEmpty()) {
+                return queue.first();
+            }
+        }
+        return null;
+    }
+
+    // Removes a waiter that has not been admitted yet; false if it already left the queue
+    private boolean dequeue(Waiter waiter) {
+        if (!queues.get(waiter.priority).remove(waiter)) {
+            return false;
+        }
+        int left = queuedPerClient.merge(waiter.clientKey, -1, Integer::sum);
+        if (left <= 0) {
+            queuedPerClient.remove(waiter.clientKey);
+            // Its tags are all behind the virtual time now or will be replaced on the next request
+            Map<String, Double> tags = lastFinish.get(waiter.priority);
+            if (tags.getOrDefault(waiter.clientKey, 0.0) <= virtualTime.get(waiter.priority)) {
+                tags.remove(waiter.clientKey);
+            }
+        }
+        return true;
+    }
+
+    // 1-based position among waiting requests, counting everything that would be served first
+    private int positionOf(Waiter waiter) {
+        int ahead = 0;
+        for (Priority priority : Priority.values()) {
+            if (priority == waiter.priority) {
+                ahead += queues.get(priority).headSet(waiter).size();
+                break;
+            }
+            ahead += queues.get(priority).size();
+        }
+        return ahead + 1;
+    }
+
+    private long estimateWaitMs(int position) {
+        return (long) (Math.ceil((double) position / getMaxConcurrent()) * averageServiceMs);
+    }
+
+    private boolean isQueueEmpty() {
+        return queues.values().stream().allMatch(TreeSet::isEmpty);
+    }
+
+    private double weight(String clientKey) {
+        return weights.getOrDefault(clientKey, 1.0);
+    }
+
+    // "client:weight,client:weight"
+    private void parseWeights(String spec) {
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int colon = entry.lastIndexOf(':');
+            try {
+                double weight = Double.parseDouble(entry.substring(colon + 1).trim());
+                if (colon <= 0 || weight <= 0) {
+                    throw new NumberFormatException();
+                }
+                weights.put(entry.substring(0, colon).trim(), weight);
+            } catch (NumberFormatException e) {
+                System.err.println("Ignoring invalid scheduler weight: " + entry);
+            }
+        }
+    }
+
+    private static class Waiter {
+        private final String clientKey;
+        private final Priority priority;
+        private final double finishTag;
+        private final long sequence;
+        private final long enqueuedAt = System.nanoTime();
+        private Ticket ticket;
+
+        private Waiter(String clientKey, Priority priority, double finishTag, long sequence) {
+            this.clientKey = clientKey;
+            this.priority = priority;
+            this.finishTag = finishTag;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * A request's place in the scheduler. Closing it leaves the queue, or frees the
+     * pipeline slot once admitted; closing more than once has no effect.
+     */
+    public class Ticket implements AutoCloseable {
+        private final Waiter waiter;
+        private final int queuePosition;
+        private final long estimatedWaitMs;
+        private final long createdAt = System.nanoTime();
+        private final CompletableFuture<Ticket> admission = new CompletableFuture<>();
+        private volatile long admittedAt;
+        private boolean closed;
+
+        private Ticket(Waiter waiter, int queuePosition, long estimatedWaitMs) {
+            this.waiter = waiter;
+            this.queuePosition = queuePosition;
+            this.estimatedWaitMs = estimatedWaitMs;
+        }
+
+        public CompletableFuture<Ticket> admitted() {
+            return admission;
+        }
+
+        // Position when the request arrived; 0 if it was admitted straight away
+        public int getQueuePosition() {
+            return queuePosition;
+        }
+
+        // Estimated wait when the request arrived
+        public long getEstimatedWaitMs() {
+            return estimatedWaitMs;
+        }
+
+        // Position right now; 0 once admitted
+        public int currentQueuePosition() {
+            synchronized (RequestScheduler.this) {
+                return waiter != null && queues.get(waiter.priority).contains(waiter) ? positionOf(waiter) : 0;
+            }
+        }
+
+        public long currentEstimatedWaitMs() {
+            synchronized (RequestScheduler.this) {
+                int position = currentQueuePosition();
+                return position == 0 ? 0 : estimateWaitMs(position);
+            }
+        }
+
+        // Time actually spent waiting for admission
+        public long getQueueWaitMs() {
+            long admitted = admittedAt;
+            return TimeUnit.NANOSECONDS.toMillis((admitted != 0 ? admitted : System.nanoTime()) - createdAt);
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            RequestScheduler.this.close(this);
+        }
+    }
+}
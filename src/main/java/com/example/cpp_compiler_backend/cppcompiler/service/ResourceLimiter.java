@@ -0,0 +1,317 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Starts user programs under CPU-time, address-space, process-count and file-size limits
+ * and measures what they actually used.
+ *
+ * On Linux the limits are applied with prlimit. When a delegated cgroup v2 directory is
+ * configured, each run also gets its own child cgroup that caps memory and process count
+ * for the whole process tree and gives exact peak-memory and CPU figures. Otherwise usage
+ * is sampled from /proc while the program runs, and on other platforms from ProcessHandle.
+ */
+@Component
+public class ResourceLimiter {
+
+    private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    // Clock ticks per second used by /proc/<pid>/stat; 100 on every mainstream Linux
+    private static final long CLOCK_TICKS_PER_SECOND = 100;
+
+    private static final boolean IS_LINUX = System.getProperty("os.name").toLowerCase().startsWith("linux");
+
+    private final long cpuSeconds;
+    private final long addressSpaceBytes;
+    private final long maxProcesses;
+    private final long fileSizeBytes;
+    private final String prlimitPath;
+    private final Path cgroupDir;
+
+    public ResourceLimiter(@Value("${compiler.limits.enabled:true}") boolean enabled,
+                           @Value("${compiler.limits.cpu-seconds:10}") long cpuSeconds,
+                           @Value("${compiler.limits.address-space-bytes:536870912}") long addressSpaceBytes,
+                           @Value("${compiler.limits.processes:256}") long maxProcesses,
+                           @Value("${compiler.limits.file-size-bytes:16777216}") long fileSizeBytes,
+                           @Value("${compiler.limits.cgroup-dir:}") String cgroupDir) {
+        this.cpuSeconds = cpuSeconds;
+        this.addressSpaceBytes = addressSpaceBytes;
+        this.maxProcesses = maxProcesses;
+        this.fileSizeBytes = fileSizeBytes;
+        this.prlimitPath = enabled && IS_LINUX ? findPrlimit() : null;
+        this.cgroupDir = enabled && IS_LINUX ? prepareCgroup(cgroupDir) : null;
+
+        if (!enabled) {
+            System.out.println("Resource limits disabled");
+        } else if (prlimitPath == null) {
+            System.out.println("prlimit not available, only the wall-clock timeout applies to user programs");
+        } else {
+            System.out.println("Limiting user programs with " + prlimitPath
+                    + (this.cgroupDir != null ? " and cgroup " + this.cgroupDir : ""));
+        }
+    }
+
+    /**
+     * Starts the command under the configured limits. The builder supplies the working
+     * directory and environment; its command is replaced.
+     */
+    public LimitedProcess start(List<String> command, ProcessBuilder pb) throws IOException {
+        List<String> limited = new ArrayList<>();
+        Path cgroup = null;
+        if (cgroupDir != null) {
+            cgroup = cgroupDir.resolve("run-" + UUID.randomUUID());
+            try {
+                Files.createDirectory(cgroup);
+                Files.writeString(cgroup.resolve("memory.max"), Long.toString(addressSpaceBytes));
+                Files.writeString(cgroup.resolve("memory.swap.max"), "0");
+                Files.writeString(cgroup.resolve("pids.max"), Long.toString(maxProcesses));
+                // The shell moves itself into the cgroup before exec'ing the program, so every child lands there too
+                limited.addAll(List.of("/bin/sh", "-c", "echo $$ > \"$0/cgroup.procs\" && exec \"$@\"", cgroup.toString()));
+            } catch (IOException e) {
+                System.err.println("Failed to create cgroup, falling back to prlimit only: " + e.getMessage());
+                removeCgroup(cgroup);
+                cgroup = null;
+            }
+        }
+        if (prlimitPath != null) {
+            limited.add(prlimitPath);
+            // SIGXCPU at the soft limit, SIGKILL a second later if the program handles it
+            limited.add("--cpu=" + cpuSeconds + ":" + (cpuSeconds + 1));
+            limited.add("--as=" + addressSpaceBytes);
+            limited.add("--nproc=" + maxProcesses);
+            limited.add("--fsize=" + fileSizeBytes);
+            limited.add("--");
+        }
+        limited.addAll(command);
+
+        pb.command(limited);
+        try {
+            return new LimitedProcess(pb.start(), cgroup);
+        } catch (IOException e) {
+            removeCgroup(cgroup);
+            throw e;
+        }
+    }
+
+    // True when the kernel stopped the program for using too much CPU time
+    public boolean isCpuLimitExit(int exitCode, ResourceUsage usage) {
+        if (prlimitPath == null) {
+            return false;
+        }
+        return exitCode == 128 + 24
+                || (exitCode == 128 + 9 && usage.getCpuTimeMs() >= cpuSeconds * 1000 - 100);
+    }
+
+    public long getCpuSeconds() {
+        return cpuSeconds;
+    }
+
+    private static String findPrlimit() {
+        for (String candidate : List.of("/usr/bin/prlimit", "/bin/prlimit", "/usr/local/bin/prlimit")) {
+            if (Files.isExecutable(Path.of(candidate))) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    // Returns the cgroup directory if it is a writable cgroup v2 directory with the controllers we need
+    private static Path prepareCgroup(String configured) {
+        if (configured == null || configured.isBlank()) {
+            return null;
+        }
+        Path dir = Path.of(configured);
+        try {
+            Files.createDirectories(dir);
+            Path controllers = dir.resolve("cgroup.controllers");
+            if (!Files.exists(controllers)) {
+                System.err.println(dir + " is not a cgroup v2 directory, cgroup limits disabled");
+                return null;
+            }
+            String available = Files.readString(controllers);
+            if (!available.contains("memory") || !available.contains("pids")) {
+                System.err.println("memory and pids controllers are not delegated to " + dir + ", cgroup limits disabled");
+                return null;
+            }
+            Files.writeString(dir.resolve("cgroup.subtree_control"), "+memory +pids");
+            return dir;
+        } catch (IOException e) {
+            System.err.println("Cannot use cgroup " + dir + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void removeCgroup(Path cgroup) {
+        if (cgroup == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(cgroup);
+        } catch (IOException e) {
+            System.err.println("Failed to remove cgroup " + cgroup + ": " + e.getMessage());
+        }
+    }
+
+    private static String readQuietly(Path path) {
+        try {
+            return Files.readString(path);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A program started under limits. {@link #waitFor(Duration)} samples resource usage
+     * while waiting; {@link #finish()} must be called once the process is gone.
+     */
+    public static class LimitedProcess {
+        private final Process process;
+        private final Path cgroup;
+        private final ResourceUsage usage = new ResourceUsage();
+        // Every descendant seen while sampling; orphans are no longer found through the process
+        private final Set<ProcessHandle> seen = ConcurrentHashMap.newKeySet();
+
+        private LimitedProcess(Process process, Path cgroup) {
+            this.process = process;
+            this.cgroup = cgroup;
+        }
+
+        public Process getProcess() {
+            return process;
+        }
+
+        public ResourceUsage getUsage() {
+            return usage;
+        }
+
+        // Waits for the process to exit, returning false on timeout
+        public boolean waitFor(Duration timeout) throws InterruptedException {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            while (true) {
+                sample();
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                if (process.waitFor(Math.min(remaining, SAMPLE_INTERVAL_NANOS), TimeUnit.NANOSECONDS)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Kills the process and everything it started that is still alive, including
+         * children that outlived it and were reparented, as far as sampling saw them.
+         */
+        public void destroyTree() {
+            try (Stream<ProcessHandle> descendants = process.descendants()) {
+                descendants.forEach(seen::add);
+            }
+            seen.forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+        }
+
+        // Reads the final figures from the cgroup, if any, and removes it
+        public ResourceUsage finish() {
+            if (cgroup != null) {
+                String peak = readQuietly(cgroup.resolve("memory.peak"));
+                if (peak != null) {
+                    usage.peakMemoryKb = Math.max(usage.peakMemoryKb, Long.parseLong(peak.trim()) / 1024);
+                }
+                String cpuStat = readQuietly(cgroup.resolve("cpu.stat"));
+                if (cpuStat != null) {
+                    for (String line : cpuStat.split("\n")) {
+                        String[] parts = line.trim().split("\\s+");
+                        if (parts.length == 2 && parts[0].equals("user_usec")) {
+                            usage.userCpuMs = Long.parseLong(parts[1]) / 1000;
+                        } else if (parts.length == 2 && parts[0].equals("system_usec")) {
+                            usage.systemCpuMs = Long.parseLong(parts[1]) / 1000;
+                        }
+                    }
+                }
+                removeCgroup(cgroup);
+            }
+            return usage;
+        }
+
+        private void sample() {
+            if (IS_LINUX) {
+                long userTicks = 0;
+                long systemTicks = 0;
+                long rssKb = 0;
+                boolean found = false;
+                List<ProcessHandle> handles = new ArrayList<>();
+                handles.add(process.toHandle());
+                try (Stream<ProcessHandle> descendants = process.descendants()) {
+                    descendants.forEach(handles::add);
+                }
+                seen.addAll(handles.subList(1, handles.size()));
+                for (ProcessHandle handle : handles) {
+                    Path proc = Path.of("/proc", Long.toString(handle.pid()));
+                    String stat = readQuietly(proc.resolve("stat"));
+                    String status = readQuietly(proc.resolve("status"));
+                    if (stat == null || status == null) {
+                        continue;
+                    }
+                    // Fields after the parenthesised command name; utime and stime are fields 14 and 15
+                    String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+                    userTicks += Long.parseLong(fields[11]);
+                    systemTicks += Long.parseLong(fields[12]);
+                    for (String line : status.split("\n")) {
+                        if (line.startsWith("VmHWM:")) {
+                            rssKb += Long.parseLong(line.replaceAll("[^0-9]", ""));
+                        }
+                    }
+                    found = true;
+                }
+                if (found) {
+                    usage.userCpuMs = Math.max(usage.userCpuMs, userTicks * 1000 / CLOCK_TICKS_PER_SECOND);
+                    usage.systemCpuMs = Math.max(usage.systemCpuMs, systemTicks * 1000 / CLOCK_TICKS_PER_SECOND);
+                    usage.peakMemoryKb = Math.max(usage.peakMemoryKb, rssKb);
+                }
+            } else {
+                long cpuMs = process.toHandle().info().totalCpuDuration().map(Duration::toMillis).orElse(0L);
+                usage.userCpuMs = Math.max(usage.userCpuMs, cpuMs);
+            }
+        }
+    }
+
+    /**
+     * Measured usage of one run. Without a cgroup the figures are the last sample taken
+     * before the program exited, so very short runs may report less than they used.
+     */
+    public static class ResourceUsage {
+        private long peakMemoryKb;
+        private long userCpuMs;
+        private long systemCpuMs;
+
+        public long getPeakMemoryKb() {
+            return peakMemoryKb;
+        }
+
+        public long getUserCpuMs() {
+            return userCpuMs;
+        }
+
+        public long getSystemCpuMs() {
+            return systemCpuMs;
+        }
+
+        public long getCpuTimeMs() {
+            return userCpuMs + systemCpuMs;
+        }
+    }
+}
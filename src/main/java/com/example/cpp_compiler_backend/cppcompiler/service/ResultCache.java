@@ -0,0 +1,233 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in in-memory cache of complete compile-and-run results.
+ *
+ * Entries are keyed by a hash of the source, stdin, compiler and flags, so an identical
+ * request is answered without compiling or running anything. The cache is bounded by
+ * entry count and by the approximate size of the cached output, evicts least recently
+ * used entries first and drops entries older than the TTL. Only outcomes that do not
+ * depend on timing are stored; timeouts and internal errors are always recomputed.
+ */
+@Component
+public class ResultCache {
+
+    // Rough per-entry overhead of the key, the map entry and the result object
+    private static final long ENTRY_OVERHEAD_BYTES = 256;
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Duration ttl;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ResultCache(@Value("${compiler.result-cache.enabled:false}") boolean enabled,
+                       @Value("${compiler.result-cache.max-entries:1000}") int maxEntries,
+                       @Value("${compiler.result-cache.max-bytes:67108864}") long maxBytes,
+                       @Value("${compiler.result-cache.ttl:10m}") Duration ttl) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+        if (enabled) {
+            System.out.println("Result cache enabled: " + maxEntries + " entries, " + maxBytes + " bytes, TTL " + ttl);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Builds the cache key for a request: SHA-256 over compiler, flags, source and input.
+     */
+    public static String key(String code, String input, String compilerPath, String flags) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[] {compilerPath, flags, code, input != null ? input : ""}) {
+                byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+                // Length prefix so different splits of the same bytes never collide
+                digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(bytes);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Returns a copy of the cached result marked as cached, or null on a miss.
+     */
+    public CompilerService.CompileResult get(String key) {
+        return lookup(key, true);
+    }
+
+    private synchronized CompilerService.CompileResult lookup(String key, boolean countMiss) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry != null && isExpired(entry)) {
+            remove(key, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            if (countMiss) {
+                misses.incrementAndGet();
+            }
+            return null;
+        }
+        hits.incrementAndGet();
+        CompilerService.CompileResult result = copy(entry.result);
+        result.setCached(true);
+        return result;
+    }
+
+    /**
+     * Like {@link #get(String)}, but a miss is not counted. For a lookup that is followed
+     * by a counted one when it misses, so every request counts once.
+     */
+    public CompilerService.CompileResult peek(String key) {
+        return lookup(key, false);
+    }
+
+    public void put(String key, CompilerService.CompileResult result) {
+        if (!enabled) {
+            return;
+        }
+        String output = result.getOutput() != null ? result.getOutput() : "";
+        long size = ENTRY_OVERHEAD_BYTES + 2L * (key.length() + output.length());
+        if (size > maxBytes) {
+            return;
+        }
+        synchronized (this) {
+            Entry previous = entries.put(key, new Entry(copy(result), size, System.currentTimeMillis()));
+            if (previous != null) {
+                totalBytes -= previous.size;
+            }
+            totalBytes += size;
+            evict();
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.get(), misses.get(), entries.size(), totalBytes, maxEntries, maxBytes);
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next().getValue();
+            boolean overLimit = entries.size() > maxEntries || totalBytes > maxBytes;
+            if (!overLimit && !isExpired(entry)) {
+                continue;
+            }
+            it.remove();
+            totalBytes -= entry.size;
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        entries.remove(key);
+        totalBytes -= entry.size;
+    }
+
+    private boolean isExpired(Entry entry) {
+        return System.currentTimeMillis() - entry.createdAt > ttl.toMillis();
+    }
+
+    private static CompilerService.CompileResult copy(CompilerService.CompileResult source) {
+        CompilerService.CompileResult copy = new CompilerService.CompileResult();
+        copy.setSuccess(source.isSuccess());
+        copy.setOutput(source.getOutput());
+        copy.setToolchain(source.getToolchain());
+        copy.setCompileTimeMs(source.getCompileTimeMs());
+        copy.setRunTimeMs(source.getRunTimeMs());
+        copy.setOutputTruncated(source.isOutputTruncated());
+        copy.setPeakMemoryKb(source.getPeakMemoryKb());
+        copy.setUserCpuMs(source.getUserCpuMs());
+        copy.setSystemCpuMs(source.getSystemCpuMs());
+        return copy;
+    }
+
+    private static class Entry {
+        private final CompilerService.CompileResult result;
+        private final long size;
+        private final long createdAt;
+
+        private Entry(CompilerService.CompileResult result, long size, long createdAt) {
+            this.result = result;
+            this.size = size;
+            this.createdAt = createdAt;
+        }
+    }
+
+    // Snapshot of the cache counters, serialized by /api/cache/results/stats
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final int entries;
+        private final long sizeBytes;
+        private final int maxEntries;
+        private final long maxSizeBytes;
+
+        public Stats(long hits, long misses, int entries, long sizeBytes, int maxEntries, long maxSizeBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.entries = entries;
+            this.sizeBytes = sizeBytes;
+            this.maxEntries = maxEntries;
+            this.maxSizeBytes = maxSizeBytes;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public double getHitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        public int getEntries() {
+            return entries;
+        }
+
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public long getMaxSizeBytes() {
+            return maxSizeBytes;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Pool of reusable sandboxes, each a private scratch directory plus, on POSIX systems,
+ * a pre-forked launcher process already running under the resource limits.
+ *
+ * A launcher is a shell that blocks reading one line from stdin and then execs the
+ * path it was given, so running a program only costs the exec. Everything after the
+ * first line stays in the pipe and becomes the program's stdin.
+ *
+ * Returned sandboxes are reset on a background thread: the directory is emptied and,
+ * when the job used up the launcher, a new one is forked. Compile jobs never touch the
+ * launcher, so it stays with the sandbox for the next program run. Sandboxes are
+ * recycled after a fixed number of jobs, and a periodic health check replaces idle ones
+ * whose directory or launcher has gone bad. When every sandbox is busy and the pool is
+ * at its maximum size, a temporary sandbox is handed out and deleted on release.
+ */
+public class SandboxPool implements AutoCloseable {
+
+    private static final boolean IS_WINDOWS = System.getProperty("os.name").toLowerCase().startsWith("windows");
+
+    // Reads the program path, then replaces itself with the program; the rest of stdin is left unread
+    private static final List<String> LAUNCHER = List.of("/bin/sh", "-c", "IFS= read -r program && exec \"$program\"");
+
+    private final Path rootDir;
+    private final int minSize;
+    private final int maxSize;
+    private final int maxJobs;
+    private final boolean prefork;
+    private final ResourceLimiter resourceLimiter;
+
+    private final Deque<Sandbox> idle = new ArrayDeque<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private int size;
+    private boolean closed;
+
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sandbox-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SandboxPool(Path rootDir, int minSize, int maxSize, int maxJobs, Duration healthCheckInterval,
+                       boolean prefork, ResourceLimiter resourceLimiter) {
+        this.rootDir = rootDir;
+        this.minSize = Math.max(0, minSize);
+        this.maxSize = Math.max(this.minSize, Math.max(1, maxSize));
+        this.maxJobs = Math.max(1, maxJobs);
+        this.prefork = prefork && !IS_WINDOWS;
+        this.resourceLimiter = resourceLimiter;
+
+        try {
+            // Sandboxes from a previous run are never reused
+            if (Files.exists(rootDir)) {
+                deleteRecursively(rootDir);
+            }
+            Files.createDirectories(rootDir);
+        } catch (IOException e) {
+            System.err.println("Failed to prepare sandbox directory: " + e.getMessage());
+        }
+
+        maintenance.execute(this::topUp);
+        long intervalMs = Math.max(1000, healthCheckInterval.toMillis());
+        maintenance.scheduleWithFixedDelay(this::healthCheck, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        System.out.println("Sandbox pool in " + rootDir + " (min " + this.minSize + ", max " + this.maxSize
+                + ", recycled after " + this.maxJobs + " jobs" + (this.prefork ? ", pre-forked launchers" : "") + ")");
+    }
+
+    /**
+     * Hands out an idle sandbox, creating one if needed. Never blocks on busy sandboxes.
+     */
+    public Sandbox lease() throws IOException {
+        boolean temporary;
+        synchronized (this) {
+            Sandbox sandbox = idle.pollFirst();
+            if (sandbox != null) {
+                return sandbox;
+            }
+            temporary = size >= maxSize;
+            if (!temporary) {
+                size++;
+            }
+        }
+        try {
+            return create(temporary);
+        } catch (IOException e) {
+            if (!temporary) {
+                synchronized (this) {
+                    size--;
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a sandbox once its job is over. Cleaning it up happens in the background.
+     */
+    public void release(Sandbox sandbox) {
+        sandbox.jobs++;
+        try {
+            maintenance.execute(() -> reset(sandbox));
+        } catch (Exception e) {
+            // Shutting down
+            destroy(sandbox);
+        }
+    }
+
+    @Override
+    public void close() {
+        List<Sandbox> remaining;
+        synchronized (this) {
+            closed = true;
+            remaining = new ArrayList<>(idle);
+            idle.clear();
+        }
+        maintenance.shutdownNow();
+        remaining.forEach(SandboxPool::destroy);
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    public synchronized int getSize() {
+        return size;
+    }
+
+    private Sandbox create(boolean temporary) throws IOException {
+        Path dir = rootDir.resolve((temporary ? "tmp-" : "sandbox-") + nextId.incrementAndGet());
+        Files.createDirectories(dir);
+        Sandbox sandbox = new Sandbox(dir, temporary);
+        if (prefork && !temporary) {
+            fork(sandbox);
+        }
+        return sandbox;
+    }
+
+    private void fork(Sandbox sandbox) {
+        try {
+            ProcessBuilder pb = new ProcessBuilder().directory(sandbox.dir.toFile());
+            sandbox.launcher = resourceLimiter.start(LAUNCHER, pb);
+        } catch (IOException e) {
+            System.err.println("Failed to pre-fork launcher for " + sandbox.dir + ": " + e.getMessage());
+            sandbox.launcher = null;
+        }
+    }
+
+    // Runs on the maintenance thread
+    private void reset(Sandbox sandbox) {
+        boolean retire = sandbox.temporary || sandbox.jobs >= maxJobs;
+        if (!retire) {
+            try {
+                clean(sandbox.dir);
+            } catch (IOException e) {
+                System.err.println("Failed to reset sandbox " + sandbox.dir + ": " + e.getMessage());
+                retire = true;
+            }
+        }
+        if (retire) {
+            destroy(sandbox);
+            if (!sandbox.temporary) {
+                synchronized (this) {
+                    size--;
+                }
+                topUp();
+            }
+            return;
+        }
+        if (prefork && (sandbox.launcher == null || !sandbox.launcher.getProcess().isAlive())) {
+            discardLauncher(sandbox);
+            fork(sandbox);
+        }
+        synchronized (this) {
+            if (!closed) {
+                idle.addLast(sandbox);
+                return;
+            }
+        }
+        destroy(sandbox);
+    }
+
+    // Creates sandboxes until the pool is back at its minimum size
+    private void topUp() {
+        while (true) {
+            synchronized (this) {
+                if (closed || size >= minSize) {
+                    return;
+                }
+                size++;
+            }
+            try {
+                Sandbox sandbox = create(false);
+                synchronized (this) {
+                    idle.addLast(sandbox);
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    size--;
+                }
+                System.err.println("Failed to create sandbox: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    // Replaces idle sandboxes whose directory is gone or whose launcher has died
+    private void healthCheck() {
+        List<Sandbox> unhealthy = new ArrayList<>();
+        synchronized (this) {
+            idle.removeIf(sandbox -> {
+                boolean healthy = Files.isDirectory(sandbox.dir) && Files.isWritable(sandbox.dir)
+                        && (!prefork || (sandbox.launcher != null && sandbox.launcher.getProcess().isAlive()));
+                if (!healthy) {
+                    unhealthy.add(sandbox);
+                    size--;
+                }
+                return !healthy;
+            });
+        }
+        for (Sandbox sandbox : unhealthy) {
+            System.err.println("Replacing unhealthy sandbox " + sandbox.dir);
+            destroy(sandbox);
+        }
+        topUp();
+    }
+
+    private static void discardLauncher(Sandbox sandbox) {
+        ResourceLimiter.LimitedProcess launcher = sandbox.launcher;
+        sandbox.launcher = null;
+        if (launcher != null) {
+            launcher.getProcess().destroyForcibly();
+            try {
+                launcher.getProcess().waitFor(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            launcher.finish();
+        }
+    }
+
+    private static void destroy(Sandbox sandbox) {
+        discardLauncher(sandbox);
+        try {
+            deleteRecursively(sandbox.dir);
+        } catch (IOException e) {
+            System.err.println("Failed to delete sandbox " + sandbox.dir + ": " + e.getMessage());
+        }
+    }
+
+    // Deletes everything inside the directory but keeps the directory itself
+    private static void clean(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                deleteRecursively(file);
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            List<Path> all = new ArrayList<>(files.toList());
+            Collections.reverse(all);
+            for (Path file : all) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * A scratch directory leased to one job at a time, with an optional launcher ready
+     * to exec a program in it.
+     */
+    public static class Sandbox {
+        private final Path dir;
+        private final boolean temporary;
+        private ResourceLimiter.LimitedProcess launcher;
+        private int jobs;
+
+        private Sandbox(Path dir, boolean temporary) {
+            this.dir = dir;
+            this.temporary = temporary;
+        }
+
+        public Path getDir() {
+            return dir;
+        }
+
+        /**
+         * Starts the program in this sandbox's launcher, or returns null when there is no
+         * live launcher and the caller has to start the program itself. The launcher is
+         * single-use.
+         */
+        public ResourceLimiter.LimitedProcess launch(String executablePath) {
+            ResourceLimiter.LimitedProcess ready = launcher;
+            launcher = null;
+            if (ready == null || !ready.getProcess().isAlive() || executablePath.indexOf('\n') >= 0) {
+                if (ready != null) {
+                    ready.getProcess().destroyForcibly();
+                    ready.finish();
+                }
+                return null;
+            }
+            try {
+                OutputStream stdin = ready.getProcess().getOutputStream();
+                stdin.write((executablePath + "\n").getBytes(StandardCharsets.UTF_8));
+                stdin.flush();
+                return ready;
+            } catch (IOException e) {
+                // The launcher died between the liveness check and the write
+                ready.getProcess().destroyForcibly();
+                ready.finish();
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import org.springframework.stereotype.Service;
+
+import com.example.cpp_compiler_backend.cppcompiler.model.BatchCompileResponse;
+import com.example.cpp_compiler_backend.cppcompiler.model.TestCase;
+import com.example.cpp_compiler_backend.cppcompiler.model.TestCaseResult;
+import com.example.cpp_compiler_backend.cppcompiler.model.Verdict;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Judges one program against many test cases: the source is compiled once and
+ * the cases are run in parallel on the run stage.
+ */
+@Service
+public class TestCaseService {
+
+    private final CompilerService compilerService;
+
+    public TestCaseService(CompilerService compilerService) {
+        this.compilerService = compilerService;
+    }
+
+    public BatchCompileResponse runTestCases(String code, List<TestCase> testCases, boolean stopOnFirstFailure,
+                                             CompileOptions options) {
+        BatchCompileResponse response = new BatchCompileResponse();
+        CompilerService.CompiledProgram program = compilerService.compile(code, options);
+        try {
+            response.setToolchain(program.getToolchainId());
+            response.setCompileTimeMs(program.getCompileTimeMs());
+            if (!program.isSuccess()) {
+                response.setSuccess(false);
+                response.setMessage("Compilation failed");
+                response.setCompileOutput(program.getDiagnostics());
+                response.setResults(new ArrayList<>());
+                return response;
+            }
+
+            TestCaseResult[] results = runAll(program, testCases, stopOnFirstFailure);
+
+            List<TestCaseResult> resultList = new ArrayList<>();
+            int passed = 0;
+            for (int i = 0; i < results.length; i++) {
+                TestCaseResult result = results[i];
+                if (result == null) {
+                    result = new TestCaseResult();
+                    result.setIndex(i);
+                    result.setVerdict(Verdict.SKIPPED);
+                }
+                if (isPass(result.getVerdict())) {
+                    passed++;
+                }
+                resultList.add(result);
+            }
+
+            response.setResults(resultList);
+            response.setPassed(passed);
+            response.setSuccess(passed == testCases.size());
+            response.setMessage(passed + " of " + testCases.size() + " test cases passed");
+            return response;
+        } finally {
+            compilerService.release(program);
+        }
+    }
+
+    // Keeps at most one case per run worker in flight so a large batch never overflows the run queue
+    private TestCaseResult[] runAll(CompilerService.CompiledProgram program, List<TestCase> testCases, boolean stopOnFirstFailure) {
+        int total = testCases.size();
+        int window = Math.max(1, compilerService.getRunParallelism());
+        TestCaseResult[] results = new TestCaseResult[total];
+        Map<Integer, CompletableFuture<CompilerService.RunResult>> running = new HashMap<>();
+        BlockingQueue<Integer> completed = new LinkedBlockingQueue<>();
+        int next = 0;
+        boolean stopped = false;
+
+        try {
+            while (true) {
+                while (!stopped && next < total && running.size() < window) {
+                    int index = next++;
+                    CompletableFuture<CompilerService.RunResult> future =
+                            compilerService.submitRun(program, testCases.get(index).getInput());
+                    running.put(index, future);
+                    future.whenComplete((run, error) -> completed.add(index));
+                }
+                if (running.isEmpty()) {
+                    break;
+                }
+
+                int index = completed.take();
+                CompilerService.RunResult run = running.remove(index).join();
+                results[index] = judge(index, testCases.get(index), run);
+                if (stopOnFirstFailure && !isPass(results[index].getVerdict())) {
+                    stopped = true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running test cases", e);
+        } finally {
+            // The executable is released by the caller, so wait for anything still using it
+            for (CompletableFuture<CompilerService.RunResult> future : running.values()) {
+                try {
+                    future.join();
+                } catch (Exception e) {
+                    // Already failing; the original exception is more useful
+                }
+            }
+        }
+        return results;
+    }
+
+    private static TestCaseResult judge(int index, TestCase testCase, CompilerService.RunResult run) {
+        TestCaseResult result = new TestCaseResult();
+        result.setIndex(index);
+        result.setExitCode(run.getExitCode());
+        result.setWallTimeMs(run.getRunTimeMs());
+        result.setCpuTimeMs(run.getCpuTimeMs());
+        result.setPeakMemoryKb(run.getPeakMemoryKb());
+        result.setOutput(run.getProgramOutput() != null ? run.getProgramOutput() : run.getOutput());
+        result.setOutputTruncated(run.isOutputTruncated());
+
+        if (run.isTimedOut()) {
+            result.setVerdict(Verdict.TIME_LIMIT_EXCEEDED);
+        } else if (run.isOutputTruncated()) {
+            result.setVerdict(Verdict.OUTPUT_LIMIT_EXCEEDED);
+        } else if (!run.isSuccess()) {
+            result.setVerdict(Verdict.RUNTIME_ERROR);
+        } else if (testCase.getExpectedOutput() == null) {
+            result.setVerdict(Verdict.COMPLETED);
+        } else if (normalize(run.getProgramOutput()).equals(normalize(testCase.getExpectedOutput()))) {
+            result.setVerdict(Verdict.ACCEPTED);
+        } else {
+            result.setVerdict(Verdict.WRONG_ANSWER);
+        }
+        return result;
+    }
+
+    private static boolean isPass(Verdict verdict) {
+        return verdict == Verdict.ACCEPTED || verdict == Verdict.COMPLETED;
+    }
+
+    // Ignores line-ending style, trailing spaces on each line and trailing blank lines
+    private static String normalize(String output) {
+        if (output == null) {
+            return "";
+        }
+        String[] lines = output.replace("\r\n", "\n").split("\n");
+        StringBuilder normalized = new StringBuilder();
+        for (String line : lines) {
+            normalized.append(line.stripTrailing()).append("\n");
+        }
+        return normalized.toString().stripTrailing();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import java.util.List;
+
+/**
+ * A C++ compiler found at startup, with the capabilities probed at that time.
+ */
+public class Toolchain {
+
+    public enum Family {
+        GCC,
+        CLANG
+    }
+
+    private final String id;
+    private final Family family;
+    private final String path;
+    private final String version;
+    private final List<String> standards;
+    private final boolean pchSupported;
+
+    public Toolchain(String id, Family family, String path, String version, List<String> standards, boolean pchSupported) {
+        this.id = id;
+        this.family = family;
+        this.path = path;
+        this.version = version;
+        this.standards = List.copyOf(standards);
+        this.pchSupported = pchSupported;
+    }
+
+    // Stable name used in requests, e.g. "gcc-12" or "clang-15"
+    public String getId() {
+        return id;
+    }
+
+    public Family getFamily() {
+        return family;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    // -std levels accepted by this compiler, e.g. "c++17"
+    public List<String> getStandards() {
+        return standards;
+    }
+
+    // Whether .gch precompiled headers built with -x c++-header can be used with -include
+    public boolean isPchSupported() {
+        return pchSupported;
+    }
+
+    /**
+     * Accepts both the ISO ("c++17") and GNU ("gnu++17") spelling of a probed standard.
+     */
+    public boolean supportsStandard(String standard) {
+        String iso = standard.startsWith("gnu++") ? "c++" + standard.substring(5) : standard;
+        return standards.contains(iso);
+    }
+}
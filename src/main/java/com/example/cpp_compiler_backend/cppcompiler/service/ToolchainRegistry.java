@@ -0,0 +1,219 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Discovers C++ compilers once at startup and keeps their capabilities.
+ *
+ * Candidates come from the configured paths, a list of well-known install locations
+ * and every g++/clang++ (optionally versioned, e.g. g++-12) on PATH. Each candidate is
+ * asked for its version and probed for the -std levels it accepts; symlinks to the same
+ * binary are only registered once.
+ */
+@Component
+public class ToolchainRegistry {
+
+    private static final Pattern COMPILER_NAME = Pattern.compile("^(g\\+\\+|clang\\+\\+)(-\\d+(\\.\\d+)*)?(\\.exe)?$");
+    private static final Pattern VERSION = Pattern.compile("(\\d+\\.\\d+(\\.\\d+)?)");
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(30);
+    private static final int MAX_PROBE_OUTPUT_BYTES = 65536;
+    private static final List<String> PROBED_STANDARDS = List.of("c++98", "c++11", "c++14", "c++17", "c++20", "c++23");
+
+    // Well-known install locations, checked in addition to PATH
+    private static final List<String> KNOWN_PATHS = List.of(
+        "/usr/bin/g++",
+        "/usr/local/bin/g++",
+        "/usr/bin/clang++",
+        "C:\\MinGW\\bin\\g++.exe",
+        "C:\\msys64\\ucrt64\\bin\\g++.exe",
+        "C:\\Program Files (x86)\\cpeditor\\mingw64\\bin\\g++.exe",
+        "C:\\Program Files\\mingw-w64\\x86_64-8.1.0-posix-seh-rt_v6-rev0\\mingw64\\bin\\g++.exe"
+    );
+
+    private final Map<String, Toolchain> toolchains = new LinkedHashMap<>();
+    private final Toolchain defaultToolchain;
+
+    public ToolchainRegistry(@Value("${compiler.toolchains.paths:}") String configuredPaths,
+                             @Value("${compiler.toolchains.scan-path:true}") boolean scanPath,
+                             @Value("${compiler.toolchains.default:}") String defaultId) {
+        Set<String> candidates = new LinkedHashSet<>();
+        for (String path : configuredPaths.split(",")) {
+            if (!path.isBlank()) {
+                candidates.add(path.trim());
+            }
+        }
+        candidates.addAll(KNOWN_PATHS);
+        if (scanPath) {
+            candidates.addAll(scanPath());
+        }
+
+        Set<Path> seen = new LinkedHashSet<>();
+        for (String candidate : candidates) {
+            Path path = Path.of(candidate);
+            if (!Files.isExecutable(path)) {
+                continue;
+            }
+            try {
+                if (!seen.add(path.toRealPath())) {
+                    continue;
+                }
+            } catch (IOException e) {
+                continue;
+            }
+            Toolchain toolchain = probe(candidate);
+            if (toolchain != null) {
+                toolchains.put(toolchain.getId(), toolchain);
+                System.out.println("Found toolchain " + toolchain.getId() + " (" + toolchain.getVersion() + ") at "
+                        + toolchain.getPath() + ", standards " + toolchain.getStandards());
+            }
+        }
+
+        Toolchain fallback = toolchains.values().stream()
+                .filter(toolchain -> toolchain.getFamily() == Toolchain.Family.GCC)
+                .findFirst()
+                .orElse(toolchains.values().stream().findFirst().orElse(null));
+        if (!defaultId.isBlank() && !toolchains.containsKey(defaultId.trim())) {
+            // Silently compiling with another compiler than configured would be worse than not starting
+            throw new IllegalStateException("Default toolchain '" + defaultId.trim() + "' was not found, available: "
+                    + toolchains.keySet());
+        }
+        this.defaultToolchain = defaultId.isBlank() ? fallback : toolchains.get(defaultId.trim());
+        if (defaultToolchain == null) {
+            System.err.println("No working C++ compiler found");
+        }
+    }
+
+    public List<Toolchain> getToolchains() {
+        return new ArrayList<>(toolchains.values());
+    }
+
+    // Null when no compiler was found
+    public Toolchain getDefault() {
+        return defaultToolchain;
+    }
+
+    /**
+     * Returns the requested toolchain, or the default one when id is null.
+     * Throws IllegalArgumentException for an unknown id.
+     */
+    public Toolchain resolve(String id) {
+        if (id == null) {
+            return defaultToolchain;
+        }
+        Toolchain toolchain = toolchains.get(id);
+        if (toolchain == null) {
+            throw new IllegalArgumentException("Unknown toolchain '" + id + "', available: " + toolchains.keySet());
+        }
+        return toolchain;
+    }
+
+    private static List<String> scanPath() {
+        List<String> found = new ArrayList<>();
+        String pathVar = System.getenv("PATH");
+        if (pathVar == null) {
+            return found;
+        }
+        for (String dir : pathVar.split(File.pathSeparator)) {
+            Path directory = Path.of(dir);
+            if (!Files.isDirectory(directory)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(file -> COMPILER_NAME.matcher(file.getFileName().toString()).matches())
+                     .sorted()
+                     .forEach(file -> found.add(file.toString()));
+            } catch (IOException e) {
+                // Unreadable PATH entry
+            }
+        }
+        return found;
+    }
+
+    private Toolchain probe(String path) {
+        List<String> versionOutput = execute(List.of(path, "--version"), null);
+        if (versionOutput == null || versionOutput.isEmpty()) {
+            return null;
+        }
+        String firstLine = versionOutput.get(0);
+        Toolchain.Family family = firstLine.contains("clang") ? Toolchain.Family.CLANG : Toolchain.Family.GCC;
+
+        // gcc puts its version last on the first line, clang right after "version"
+        String version = null;
+        Matcher matcher = VERSION.matcher(family == Toolchain.Family.CLANG
+                ? firstLine.substring(Math.max(0, firstLine.indexOf("version"))) : firstLine);
+        while (matcher.find()) {
+            version = matcher.group(1);
+            if (family == Toolchain.Family.CLANG) {
+                break;
+            }
+        }
+        if (version == null) {
+            return null;
+        }
+
+        List<String> standards = new ArrayList<>();
+        for (String standard : PROBED_STANDARDS) {
+            List<String> output = execute(List.of(path, "-std=" + standard, "-x", "c++", "-fsyntax-only", "-"), "");
+            if (output != null) {
+                standards.add(standard);
+            }
+        }
+
+        String baseId = family.name().toLowerCase() + "-" + version.split("\\.")[0];
+        String id = baseId;
+        for (int i = 2; toolchains.containsKey(id); i++) {
+            id = baseId + "-" + i;
+        }
+        return new Toolchain(id, family, path, version, standards, family == Toolchain.Family.GCC);
+    }
+
+    // Runs a short command; returns its output lines, or null if it failed or hung
+    private static List<String> execute(List<String> command, String stdin) {
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            // Output is drained on its own thread, so a hung probe cannot outlast the timeout
+            OutputCapture capture = new OutputCapture(process, MAX_PROBE_OUTPUT_BYTES, false,
+                    ExecutionListener.NONE, "probe", null, false);
+            capture.start();
+            if (stdin != null) {
+                process.getOutputStream().write(stdin.getBytes(StandardCharsets.UTF_8));
+            }
+            process.getOutputStream().close();
+            if (!process.waitFor(PROBE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS) || !capture.await(PROBE_TIMEOUT)) {
+                System.err.println("Toolchain probe timed out: " + String.join(" ", command));
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly();
+                return null;
+            }
+            String output = capture.getStdout();
+            if (process.exitValue() != 0) {
+                return null;
+            }
+            return output.isEmpty() ? Collections.emptyList() : List.of(output.split("\\R"));
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pipeline stage executor that runs every task on its own virtual thread.
+ *
+ * Two semaphores replace the thread pool and its queue. The admission semaphore caps
+ * how many tasks may be in flight, waiting or running; beyond that, new tasks are
+ * rejected. The concurrency semaphore caps how many run at once, so the number of
+ * compilers or user programs started in parallel stays the same as in pool mode while
+ * waiting tasks cost only a parked virtual thread.
+ */
+public class VirtualThreadStageExecutor extends AbstractExecutorService {
+
+    private final String stage;
+    private final int maxConcurrency;
+    private final Semaphore admission;
+    private final Semaphore concurrency;
+    private final ThreadFactory threadFactory;
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private volatile boolean shutdown;
+
+    public VirtualThreadStageExecutor(String stage, int maxConcurrency, int maxInFlight) {
+        this.stage = stage;
+        this.maxConcurrency = maxConcurrency;
+        this.admission = new Semaphore(Math.max(maxConcurrency, maxInFlight));
+        this.concurrency = new Semaphore(maxConcurrency);
+        this.threadFactory = Thread.ofVirtual().name(stage + "-vthread-", 1).factory();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("The " + stage + " stage is shut down");
+        }
+        if (!admission.tryAcquire()) {
+            throw new RejectedExecutionException("The " + stage + " stage has too many tasks in flight");
+        }
+        Thread thread = threadFactory.newThread(() -> {
+            try {
+                concurrency.acquire();
+                try {
+                    task.run();
+                } finally {
+                    concurrency.release();
+                }
+            } catch (InterruptedException e) {
+                // Shut down while waiting for a turn
+                Thread.currentThread().interrupt();
+            } finally {
+                threads.remove(Thread.currentThread());
+                admission.release();
+            }
+        });
+        threads.add(thread);
+        thread.start();
+    }
+
+    // Most tasks of this stage that run at the same time
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    // Tasks admitted and not yet finished
+    public int getInFlight() {
+        return threads.size();
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        threads.forEach(Thread::interrupt);
+        return List.of();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && threads.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isTerminated()) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
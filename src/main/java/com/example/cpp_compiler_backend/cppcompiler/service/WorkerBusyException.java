@@ -0,0 +1,16 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import java.io.IOException;
+
+/**
+ * Thrown by a worker node that is up but turned the request away because it is at
+ * capacity or shedding load. The request runs elsewhere and the node stays in rotation.
+ */
+public class WorkerBusyException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public WorkerBusyException(String message) {
+        super(message);
+    }
+}
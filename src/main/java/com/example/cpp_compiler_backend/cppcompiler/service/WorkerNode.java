@@ -0,0 +1,38 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import com.example.cpp_compiler_backend.cppcompiler.model.CompileRequest;
+import com.example.cpp_compiler_backend.cppcompiler.model.CompileResponse;
+
+import java.io.IOException;
+
+/**
+ * A node that compiles and runs requests on behalf of this server. Implementations
+ * are registered with {@link WorkerRouter}, which picks a node per request and falls
+ * back to local execution when the node fails.
+ */
+public interface WorkerNode {
+
+    // Stable id, used for affinity hashing and in responses
+    String getId();
+
+    /**
+     * Compiles and runs the request on the node. Throws WorkerBusyException when the
+     * node is at capacity and IOException when it cannot be reached or fails, so the
+     * caller can run it elsewhere. Throws IllegalArgumentException when the node
+     * rejects the request as invalid.
+     */
+    CompileResponse execute(CompileRequest request) throws IOException, InterruptedException;
+
+    /**
+     * Refreshes health and capacity. Returns false if the node did not answer.
+     */
+    boolean checkHealth();
+
+    boolean isHealthy();
+
+    // Takes the node out of rotation until its next successful health check
+    void markUnhealthy();
+
+    // Requests the node accepts at once
+    int getCapacity();
+}
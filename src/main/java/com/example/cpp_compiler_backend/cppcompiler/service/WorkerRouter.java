@@ -0,0 +1,270 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.cpp_compiler_backend.cppcompiler.model.CompileRequest;
+import com.example.cpp_compiler_backend.cppcompiler.model.CompileResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads compile-and-run requests over worker nodes.
+ *
+ * Every request is routed by its affinity key (the hash of source, compiler and flags)
+ * with rendezvous hashing, so the same program keeps going to the same node and finds
+ * its executable in that node's binary cache. The preferred node is skipped when it is
+ * full or more than affinity-slack requests busier than the least-loaded candidate;
+ * the least-loaded node is used instead. This server takes part as a candidate unless
+ * include-local is off, and is always the fallback when a worker fails. Workers are
+ * health-checked periodically and their capacity is added to the request scheduler.
+ */
+@Component
+public class WorkerRouter {
+
+    // Candidate id of this server
+    public static final String LOCAL = "local";
+
+    private final RequestScheduler scheduler;
+    private final boolean includeLocal;
+    private final int affinitySlack;
+    private final List<WorkerNode> nodes = new ArrayList<>();
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private final LocalWorkerProcesses localWorkers;
+    private final ScheduledExecutorService healthChecker;
+
+    @Autowired
+    public WorkerRouter(RequestScheduler scheduler,
+                        ObjectMapper mapper,
+                        @Value("${compiler.workers.urls:}") String urls,
+                        @Value("${compiler.workers.local-processes:0}") int localProcesses,
+                        @Value("${compiler.workers.local-base-port:9101}") int localBasePort,
+                        @Value("${compiler.workers.include-local:true}") boolean includeLocal,
+                        @Value("${compiler.workers.affinity-slack:2}") int affinitySlack,
+                        @Value("${compiler.workers.health-check-interval:5s}") Duration healthCheckInterval,
+                        @Value("${compiler.workers.request-timeout:60s}") Duration requestTimeout,
+                        @Value("${compiler.work-dir:}") String workDir) {
+        this.scheduler = scheduler;
+        this.includeLocal = includeLocal;
+        this.affinitySlack = affinitySlack;
+
+        List<String> workerUrls = new ArrayList<>();
+        Arrays.stream(urls.split(",")).map(String::trim).filter(url -> !url.isEmpty()).forEach(workerUrls::add);
+        if (localProcesses > 0) {
+            Path base = Path.of(workDir.isBlank() ? System.getProperty("java.io.tmpdir") : workDir, "workers");
+            localWorkers = new LocalWorkerProcesses(localProcesses, localBasePort, base);
+            workerUrls.addAll(localWorkers.getUrls());
+        } else {
+            localWorkers = null;
+        }
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        for (String url : workerUrls) {
+            nodes.add(new HttpWorkerNode(url, client, mapper, requestTimeout));
+        }
+        inFlight.put(LOCAL, new AtomicInteger());
+        nodes.forEach(node -> inFlight.put(node.getId(), new AtomicInteger()));
+
+        if (nodes.isEmpty()) {
+            healthChecker = null;
+            return;
+        }
+        System.out.println("Routing requests to workers " + workerUrls + (includeLocal ? " and this server" : ""));
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "worker-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, 0, healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Routes over the given nodes as they are, without health checks or local worker processes
+    WorkerRouter(RequestScheduler scheduler, List<WorkerNode> nodes, boolean includeLocal, int affinitySlack) {
+        this.scheduler = scheduler;
+        this.includeLocal = includeLocal;
+        this.affinitySlack = affinitySlack;
+        this.nodes.addAll(nodes);
+        inFlight.put(LOCAL, new AtomicInteger());
+        nodes.forEach(node -> inFlight.put(node.getId(), new AtomicInteger()));
+        localWorkers = null;
+        healthChecker = null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        if (localWorkers != null) {
+            localWorkers.close();
+        }
+    }
+
+    public boolean hasWorkers() {
+        return !nodes.isEmpty();
+    }
+
+    /**
+     * Picks where a request runs and counts it against that candidate until the
+     * route is closed.
+     */
+    public Route route(String affinityKey) {
+        if (nodes.isEmpty()) {
+            return new Route(null);
+        }
+        List<WorkerNode> candidates = new ArrayList<>();
+        for (WorkerNode node : nodes) {
+            if (node.isHealthy()) {
+                candidates.add(node);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return new Route(null);
+        }
+
+        // Rendezvous hashing: every candidate scores the key, the highest score is preferred
+        String preferred = null;
+        long bestScore = Long.MIN_VALUE;
+        String leastLoaded = null;
+        double leastLoad = Double.MAX_VALUE;
+        for (String id : candidateIds(candidates)) {
+            long score = mix(affinityKey, id);
+            if (score > bestScore) {
+                bestScore = score;
+                preferred = id;
+            }
+            double load = (double) inFlight.get(id).get() / capacity(id, candidates);
+            if (load < leastLoad) {
+                leastLoad = load;
+                leastLoaded = id;
+            }
+        }
+        int preferredInFlight = inFlight.get(preferred).get();
+        boolean preferredFull = preferredInFlight >= capacity(preferred, candidates);
+        String chosen = preferredFull || preferredInFlight > inFlight.get(leastLoaded).get() + affinitySlack
+                ? leastLoaded : preferred;
+        return new Route(LOCAL.equals(chosen) ? null : find(chosen, candidates));
+    }
+
+    // Polls every worker and hands the capacity of the healthy ones to the scheduler
+    private void checkHealth() {
+        int remoteCapacity = 0;
+        for (WorkerNode node : nodes) {
+            boolean wasHealthy = node.isHealthy();
+            node.checkHealth();
+            if (node.isHealthy() != wasHealthy) {
+                System.out.println("Worker " + node.getId() + " is " + (node.isHealthy() ? "up" : "down"));
+            }
+            if (node.isHealthy()) {
+                remoteCapacity += node.getCapacity();
+            }
+        }
+        scheduler.setRemoteCapacity(remoteCapacity);
+    }
+
+    private List<String> candidateIds(List<WorkerNode> candidates) {
+        List<String> ids = new ArrayList<>();
+        if (includeLocal) {
+            ids.add(LOCAL);
+        }
+        candidates.forEach(node -> ids.add(node.getId()));
+        return ids;
+    }
+
+    private int capacity(String id, List<WorkerNode> candidates) {
+        if (LOCAL.equals(id)) {
+            return Math.max(1, scheduler.getLocalLimit());
+        }
+        return Math.max(1, find(id, candidates).getCapacity());
+    }
+
+    private static WorkerNode find(String id, List<WorkerNode> candidates) {
+        for (WorkerNode node : candidates) {
+            if (node.getId().equals(id)) {
+                return node;
+            }
+        }
+        throw new IllegalStateException("Unknown worker " + id);
+    }
+
+    // 64-bit mix of key and node id; only the order of the scores matters
+    private static long mix(String key, String id) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : (key + '\0' + id).getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Where one request runs. A null node means this server.
+     */
+    public class Route implements AutoCloseable {
+        private WorkerNode node;
+        private AtomicInteger counter;
+
+        private Route(WorkerNode node) {
+            this.node = node;
+            this.counter = inFlight.get(node != null ? node.getId() : LOCAL);
+            counter.incrementAndGet();
+        }
+
+        public boolean isRemote() {
+            return node != null;
+        }
+
+        public String getWorkerId() {
+            return node != null ? node.getId() : null;
+        }
+
+        /**
+         * Runs the request on the worker. Returns null when the worker was busy or failed
+         * and the route switches to this server; a failed worker is also taken out of
+         * rotation. A request the worker rejects as invalid fails with IllegalArgumentException.
+         */
+        public CompileResponse execute(CompileRequest request) {
+            try {
+                return node.execute(request);
+            } catch (WorkerBusyException e) {
+                System.out.println(e.getMessage() + ", running locally");
+            } catch (IOException e) {
+                System.err.println("Worker " + node.getId() + " failed, running locally: " + e);
+                node.markUnhealthy();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for worker " + node.getId(), e);
+            }
+            counter.decrementAndGet();
+            node = null;
+            counter = inFlight.get(LOCAL);
+            counter.incrementAndGet();
+            return null;
+        }
+
+        @Override
+        public void close() {
+            counter.decrementAndGet();
+        }
+    }
+}
@@ -3,7 +3,11 @@ package com.example.cpp_compiler_backend;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// Keeps the binary cache and precompiled headers out of the developer's data directory
+@SpringBootTest(properties = {
+		"compiler.data-dir=${java.io.tmpdir}/cpp-compiler-test",
+		"compiler.startup.warmup=false"
+})
 class CppCompilerBackendApplicationTests {
 
 	@Test
@@ -0,0 +1,175 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AdmissionControllerTest {
+
+	private static final long GIGABYTE = 1L << 30;
+
+	private final AtomicInteger raised = new AtomicInteger();
+	private AdmissionController admission;
+
+	@AfterEach
+	void shutdown() {
+		if (admission != null) {
+			admission.shutdown();
+		}
+	}
+
+	@Test
+	void startsAtTheSchedulerCapacity() {
+		admission = attached(true, 16);
+		assertThat(admission.getLimit()).isEqualTo(16);
+	}
+
+	@Test
+	void backsOffUnderCpuPressureDownToTheMinimum() {
+		admission = attached(true, 10);
+
+		admission.adjust(5.0, -1, -1, 8 * GIGABYTE);
+		assertThat(admission.getLimit()).isEqualTo(8);
+		for (int i = 0; i < 20; i++) {
+			admission.adjust(5.0, -1, -1, 8 * GIGABYTE);
+		}
+		assertThat(admission.getLimit()).isEqualTo(2);
+	}
+
+	@Test
+	void backsOffWhenMemoryRunsLow() {
+		admission = attached(true, 10);
+
+		admission.adjust(0.5, -1, -1, 100L << 20);
+		assertThat(admission.getLimit()).isEqualTo(8);
+	}
+
+	@Test
+	void shrinksWhenLatencyRisesAboveTheBaseline() {
+		admission = attached(true, 20);
+		complete(100, 20);
+		admission.adjust(0.5, -1, -1, 8 * GIGABYTE);
+		assertThat(admission.getLimit()).isEqualTo(20);
+
+		for (int i = 0; i < 5; i++) {
+			complete(600, 20);
+			admission.adjust(0.5, -1, -1, 8 * GIGABYTE);
+		}
+		assertThat(admission.getLimit()).isLessThan(20);
+	}
+
+	@Test
+	void growsBackOnceTheLimitIsFullyUsed() {
+		admission = attached(true, 20);
+		for (int i = 0; i < 10; i++) {
+			admission.adjust(5.0, -1, -1, 8 * GIGABYTE);
+		}
+		int lowered = admission.getLimit();
+		for (int i = 0; i < 10; i++) {
+			admission.adjust(0.5, -1, -1, 8 * GIGABYTE);
+		}
+		assertThat(admission.getLimit()).as("an idle node keeps its limit").isEqualTo(lowered);
+
+		for (int i = 0; i < 20; i++) {
+			complete(100, admission.getLimit());
+			admission.adjust(0.5, -1, -1, 8 * GIGABYTE);
+		}
+		assertThat(admission.getLimit()).isGreaterThan(lowered);
+		assertThat(raised.get()).isPositive();
+	}
+
+	@Test
+	void disabledControllerKeepsTheFullCapacity() {
+		admission = attached(false, 10);
+
+		admission.adjust(5.0, -1, -1, 0);
+		assertThat(admission.getLimit()).isEqualTo(10);
+	}
+
+	@Test
+	void cgroupCpuStallsCountInsteadOfHostLoad() {
+		admission = attached(true, 10);
+
+		// A calm cgroup keeps its limit, whatever the rest of the host is doing
+		for (int i = 0; i < 5; i++) {
+			admission.adjust(-1, 3.0, 0.0, 8 * GIGABYTE);
+		}
+		assertThat(admission.getLimit()).isEqualTo(10);
+
+		admission.adjust(-1, 35.0, 0.0, 8 * GIGABYTE);
+		assertThat(admission.getLimit()).isEqualTo(8);
+	}
+
+	@Test
+	void cgroupMemoryStallsBackOff() {
+		admission = attached(true, 10);
+
+		admission.adjust(-1, 0.0, 25.0, 8 * GIGABYTE);
+		assertThat(admission.getLimit()).isEqualTo(8);
+	}
+
+	@Test
+	void findsTheCgroupV2DirectoryOfTheProcess(@TempDir Path dir) throws IOException {
+		Path root = Files.createDirectories(dir.resolve("cgroup"));
+		Path service = Files.createDirectories(root.resolve("system.slice/compiler.service"));
+		Path proc = dir.resolve("proc-cgroup");
+
+		Files.writeString(proc, "0::/system.slice/compiler.service\n");
+		assertThat(AdmissionController.findCgroup(proc, root)).as("no unified hierarchy mounted").isNull();
+
+		Files.writeString(root.resolve("cgroup.controllers"), "cpu memory pids\n");
+		assertThat(AdmissionController.findCgroup(proc, root)).isEqualTo(service);
+
+		Files.writeString(proc, "0::/\n");
+		assertThat(AdmissionController.findCgroup(proc, root)).isEqualTo(root);
+
+		Files.writeString(proc, "4:memory:/docker/abc\n1:cpu:/\n");
+		assertThat(AdmissionController.findCgroup(proc, root)).as("cgroup v1 only").isNull();
+	}
+
+	@Test
+	void readsPressureStallInformation(@TempDir Path dir) throws IOException {
+		Path pressure = dir.resolve("cpu.pressure");
+		Files.writeString(pressure, "some avg10=12.50 avg60=3.00 avg300=1.00 total=123456\n"
+				+ "full avg10=0.00 avg60=0.00 avg300=0.00 total=0\n");
+
+		assertThat(AdmissionController.readStallPercent(pressure)).isEqualTo(12.5);
+		assertThat(AdmissionController.readStallPercent(dir.resolve("memory.pressure"))).isEqualTo(-1);
+	}
+
+	@Test
+	void availableMemoryFollowsTheCgroupLimit(@TempDir Path dir) throws IOException {
+		Files.writeString(dir.resolve("memory.max"), (1L << 30) + "\n");
+		Files.writeString(dir.resolve("memory.current"), (768L << 20) + "\n");
+		Files.writeString(dir.resolve("memory.stat"), "anon 1000\ninactive_file " + (100L << 20) + "\nactive_file 5\n");
+
+		assertThat(AdmissionController.readCgroupAvailableMemory(dir)).isEqualTo(356L << 20);
+
+		Files.writeString(dir.resolve("memory.max"), "max\n");
+		assertThat(AdmissionController.readCgroupAvailableMemory(dir)).isEqualTo(-1);
+	}
+
+	private AdmissionController attached(boolean enabled, int capacity) {
+		// The sampler never fires during a test; adjust() is called with fixed readings
+		AdmissionController controller = new AdmissionController(new CompilerMetrics(new SimpleMeterRegistry()),
+				enabled, 2, 2.0, 20, 10, 256L << 20, 1.5, 0.8, Duration.ofSeconds(10), Duration.ofHours(1));
+		controller.attach(capacity, raised::incrementAndGet);
+		return controller;
+	}
+
+	private void complete(double heldMs, int running) {
+		for (int i = 0; i < running; i++) {
+			admission.onCompleted(heldMs, running);
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ArtifactIndexTest {
+
+	private static final long FINGERPRINT = 42;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void recordsSurviveReopening() throws IOException {
+		Path file = dir.resolve("index");
+		try (ArtifactIndex index = new ArtifactIndex(file, FINGERPRINT)) {
+			index.append(key(1), false, 100, 1000);
+			int slot = index.append(key(2), true, 200, 2000);
+			index.touch(slot, 3000);
+		}
+
+		try (ArtifactIndex index = new ArtifactIndex(file, FINGERPRINT)) {
+			assertThat(index.wasReset()).isFalse();
+			assertThat(index.records()).containsExactly(
+					new ArtifactIndex.Record(0, key(1), false, 100, 1000, 1000),
+					new ArtifactIndex.Record(1, key(2), true, 200, 2000, 3000));
+		}
+	}
+
+	@Test
+	void removedRecordsAreSkipped() throws IOException {
+		Path file = dir.resolve("index");
+		try (ArtifactIndex index = new ArtifactIndex(file, FINGERPRINT)) {
+			index.append(key(1), false, 100, 1000);
+			index.remove(index.append(key(2), false, 200, 2000));
+		}
+
+		try (ArtifactIndex index = new ArtifactIndex(file, FINGERPRINT)) {
+			assertThat(index.records()).extracting(ArtifactIndex.Record::key).containsExactly(key(1));
+			assertThat(index.getRemovedCount()).isEqualTo(1);
+		}
+	}
+
+	@Test
+	void recordWithABadChecksumIsDropped() throws IOException {
+		Path file = dir.resolve("index");
+		try (ArtifactIndex index = new ArtifactIndex(file, FINGERPRINT)) {
+			index.append(key(1), false, 100, 1000);
+			index.append(key(2), false, 200, 2000);
+		}
+		// Corrupt the size of the second record
+		writeLong(file, ArtifactIndex.HEADER_BYTES + ArtifactIndex.RECORD_BYTES + 40, 999);
+
+		try (ArtifactIndex index = new ArtifactIndex(file, FINGERPRINT)) {
+			assertThat(index.records()).extracting(ArtifactIndex.Record::key).containsExactly(key(1));
+			assertThat(index.getRemovedCount()).isEqualTo(1);
+		}
+		try (ArtifactIndex index = new ArtifactIndex(file, FINGERPRINT)) {
+			assertThat(index.records()).hasSize(1);
+		}
+	}
+
+	@Test
+	void recordWrittenBeforeACrashIsIgnored() throws IOException {
+		Path file = dir.resolve("index");
+		try (ArtifactIndex index = new ArtifactIndex(file, FINGERPRINT)) {
+			index.append(key(1), false, 100, 1000);
+			index.append(key(2), false, 200, 2000);
+		}
+		// The second record is on disk, but the crash came before the slot count was raised
+		writeInt(file, 24, 1);
+
+		try (ArtifactIndex index = new ArtifactIndex(file, FINGERPRINT)) {
+			assertThat(index.records()).extracting(ArtifactIndex.Record::key).containsExactly(key(1));
+			assertThat(index.append(key(3), false, 300, 3000)).isEqualTo(1);
+		}
+	}
+
+	@Test
+	void otherToolchainsResetTheIndex() throws IOException {
+		Path file = dir.resolve("index");
+		try (ArtifactIndex index = new ArtifactIndex(file, FINGERPRINT)) {
+			index.append(key(1), false, 100, 1000);
+		}
+
+		try (ArtifactIndex index = new ArtifactIndex(file, FINGERPRINT + 1)) {
+			assertThat(index.wasReset()).isTrue();
+			assertThat(index.records()).isEmpty();
+		}
+	}
+
+	@Test
+	void headerThatDoesNotFitTheFileResetsTheIndex() throws IOException {
+		Path file = dir.resolve("index");
+		try (ArtifactIndex index = new ArtifactIndex(file, FINGERPRINT)) {
+			index.append(key(1), false, 100, 1000);
+		}
+		writeInt(file, 24, Integer.MAX_VALUE);
+
+		try (ArtifactIndex index = new ArtifactIndex(file, FINGERPRINT)) {
+			assertThat(index.wasReset()).isTrue();
+			assertThat(index.records()).isEmpty();
+		}
+	}
+
+	@Test
+	void rewriteCompactsTheSlots() throws IOException {
+		Path file = dir.resolve("index");
+		try (ArtifactIndex index = new ArtifactIndex(file, FINGERPRINT)) {
+			for (int i = 0; i < 5; i++) {
+				index.append(key(i), false, i, i);
+			}
+			index.remove(1);
+			index.remove(3);
+			List<ArtifactIndex.Record> live = index.records();
+
+			index.rewrite(live);
+			assertThat(index.getSlotCount()).isEqualTo(3);
+			assertThat(index.getRemovedCount()).isZero();
+			assertThat(index.records()).extracting(ArtifactIndex.Record::slot).containsExactly(0, 1, 2);
+			assertThat(index.append(key(9), false, 9, 9)).isEqualTo(3);
+		}
+
+		try (ArtifactIndex index = new ArtifactIndex(file, FINGERPRINT)) {
+			assertThat(index.records()).extracting(ArtifactIndex.Record::key)
+					.containsExactly(key(0), key(2), key(4), key(9));
+		}
+	}
+
+	@Test
+	void growsPastTheInitialSlots() throws IOException {
+		Path file = dir.resolve("index");
+		try (ArtifactIndex index = new ArtifactIndex(file, FINGERPRINT)) {
+			for (int i = 0; i < 1500; i++) {
+				index.append(key(i), false, i, i);
+			}
+		}
+
+		try (ArtifactIndex index = new ArtifactIndex(file, FINGERPRINT)) {
+			assertThat(index.records()).hasSize(1500);
+		}
+	}
+
+	private static String key(int n) {
+		return "%064x".formatted(n);
+	}
+
+	private static void writeInt(Path file, long position, int value) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.allocate(4).putInt(value).flip(), position);
+		}
+	}
+
+	private static void writeLong(Path file, long position, long value) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.allocate(8).putLong(value).flip(), position);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BinaryCacheTest {
+
+	private static final long FINGERPRINT = 7;
+
+	@TempDir
+	Path cacheDir;
+
+	@TempDir
+	Path workDir;
+
+	private final List<BinaryCache> caches = new ArrayList<>();
+
+	@AfterEach
+	void shutdown() {
+		caches.forEach(BinaryCache::shutdown);
+	}
+
+	@Test
+	void storedExecutableIsLeasedOnAHit() throws IOException {
+		BinaryCache cache = cache(1 << 20, Duration.ofHours(1));
+		Path executable = executable("a", 100);
+
+		Path cached = cache.store(key("a"), executable);
+		assertThat(cached).startsWith(cacheDir).exists();
+		assertThat(executable).doesNotExist();
+
+		assertThat(cache.acquire(key("a"))).isEqualTo(cached);
+		cache.release(key("a"));
+		assertThat(cache.acquire(key("b"))).isNull();
+		assertThat(cache.stats().getHits()).isEqualTo(1);
+		assertThat(cache.stats().getMisses()).isEqualTo(1);
+	}
+
+	@Test
+	void leastRecentlyUsedIsEvictedOverTheQuota() throws IOException {
+		BinaryCache cache = cache(250, Duration.ofHours(1));
+		Path a = cache.store(key("a"), executable("a", 100));
+		Path b = cache.store(key("b"), executable("b", 100));
+		cache.acquire(key("a"));
+		cache.release(key("a"));
+
+		cache.store(key("c"), executable("c", 100));
+		assertThat(a).exists();
+		assertThat(b).doesNotExist();
+		assertThat(cache.acquire(key("b"))).isNull();
+		assertThat(cache.stats().getEntries()).isEqualTo(2);
+	}
+
+	@Test
+	void leasedExecutableOutlivesEviction() throws IOException {
+		BinaryCache cache = cache(250, Duration.ofHours(1));
+		Path a = cache.store(key("a"), executable("a", 100), true);
+		cache.store(key("b"), executable("b", 100));
+
+		cache.store(key("c"), executable("c", 100));
+		assertThat(a).exists();
+		assertThat(cache.acquire(key("b"))).isNull();
+
+		// Once released it ages out like any other entry
+		cache.release(key("a"));
+		cache.store(key("d"), executable("d", 100));
+		cache.store(key("e"), executable("e", 100));
+		assertThat(a).doesNotExist();
+	}
+
+	@Test
+	void executableLargerThanTheQuotaIsNotCached() throws IOException {
+		BinaryCache cache = cache(50, Duration.ofHours(1));
+		Path executable = executable("a", 100);
+
+		assertThat(cache.store(key("a"), executable)).isEqualTo(executable);
+		assertThat(executable).exists();
+		assertThat(cache.stats().getEntries()).isZero();
+	}
+
+	@Test
+	void expiredExecutableIsAMiss() throws Exception {
+		BinaryCache cache = cache(1 << 20, Duration.ofMillis(1));
+		Path cached = cache.store(key("a"), executable("a", 100));
+		Thread.sleep(20);
+
+		assertThat(cache.acquire(key("a"))).isNull();
+		assertThat(cached).doesNotExist();
+	}
+
+	@Test
+	void entriesSurviveARestartWithTheSameToolchains() throws IOException {
+		BinaryCache first = cache(1 << 20, Duration.ofHours(1));
+		Path cached = first.store(key("a"), executable("a", 100));
+		first.shutdown();
+
+		BinaryCache second = cache(1 << 20, Duration.ofHours(1));
+		assertThat(second.acquire(key("a"))).isEqualTo(cached);
+		second.release(key("a"));
+		second.shutdown();
+
+		BinaryCache upgraded = cache(() -> FINGERPRINT + 1, 1 << 20);
+		assertThat(upgraded.acquire(key("a"))).isNull();
+		assertThat(cached).doesNotExist();
+	}
+
+	@Test
+	void secondInstanceOnTheSameDirectoryRunsWithoutTheCache() throws IOException {
+		BinaryCache first = cache(1 << 20, Duration.ofHours(1));
+		BinaryCache second = cache(1 << 20, Duration.ofHours(1));
+		assertThat(first.isEnabled()).isTrue();
+		assertThat(second.isEnabled()).isFalse();
+
+		Path executable = executable("a", 100);
+		assertThat(second.store(key("a"), executable)).isEqualTo(executable);
+	}
+
+	@Test
+	void toolchainsAreOnlyFingerprintedOnFirstUse() {
+		AtomicInteger calls = new AtomicInteger();
+		BinaryCache cache = cache(() -> {
+			calls.incrementAndGet();
+			return FINGERPRINT;
+		}, 1 << 20);
+		assertThat(calls).hasValue(0);
+
+		cache.acquire(key("a"));
+		cache.acquire(key("b"));
+		assertThat(calls).hasValue(1);
+	}
+
+	private BinaryCache cache(long maxSizeBytes, Duration ttl) {
+		BinaryCache cache = new BinaryCache(() -> FINGERPRINT, true, cacheDir.toString(), maxSizeBytes, ttl,
+				Duration.ofHours(1));
+		caches.add(cache);
+		return cache;
+	}
+
+	private BinaryCache cache(LongSupplier fingerprint, long maxSizeBytes) {
+		BinaryCache cache = new BinaryCache(fingerprint, true, cacheDir.toString(), maxSizeBytes, Duration.ofHours(1),
+				Duration.ofHours(1));
+		caches.add(cache);
+		return cache;
+	}
+
+	private Path executable(String name, int size) throws IOException {
+		return Files.write(workDir.resolve(name), new byte[size]);
+	}
+
+	private static String key(String name) {
+		return BinaryCache.key(name, "g++", "");
+	}
+}
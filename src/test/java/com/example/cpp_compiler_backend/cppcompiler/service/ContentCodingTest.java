@@ -0,0 +1,80 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class ContentCodingTest {
+
+	@ParameterizedTest
+	@EnumSource(ContentCoding.class)
+	void roundTripsWithinTheLimit(ContentCoding coding) throws IOException {
+		byte[] body = "int main() { return 0; }\n".repeat(100).getBytes(StandardCharsets.UTF_8);
+
+		try (InputStream in = coding.decode(new ByteArrayInputStream(encode(coding, body)), body.length)) {
+			assertThat(in.readAllBytes()).isEqualTo(body);
+		}
+	}
+
+	@ParameterizedTest
+	@EnumSource(ContentCoding.class)
+	void failsOnceTheDecodedBodyExceedsTheLimit(ContentCoding coding) throws IOException {
+		byte[] body = new byte[1 << 20];
+
+		try (InputStream in = coding.decode(new ByteArrayInputStream(encode(coding, body)), body.length - 1)) {
+			assertThatThrownBy(in::readAllBytes)
+					.isInstanceOf(IOException.class)
+					.hasMessageContaining("exceeds");
+		}
+	}
+
+	@Test
+	void smallUploadCannotExpandWithoutBound() throws IOException {
+		byte[] bomb = encode(ContentCoding.GZIP, new byte[64 << 20]);
+		assertThat(bomb.length).isLessThan(1 << 20);
+
+		try (InputStream in = ContentCoding.GZIP.decode(new ByteArrayInputStream(bomb), 1 << 20)) {
+			assertThatThrownBy(() -> in.transferTo(OutputStream.nullOutputStream())).isInstanceOf(IOException.class);
+		}
+	}
+
+	@Test
+	void parsesHeadersAndParts() {
+		assertThat(ContentCoding.fromHeader(null)).isEqualTo(ContentCoding.IDENTITY);
+		assertThat(ContentCoding.fromHeader(" GZIP ")).isEqualTo(ContentCoding.GZIP);
+		assertThat(ContentCoding.fromHeader("x-gzip")).isEqualTo(ContentCoding.GZIP);
+		assertThat(ContentCoding.fromHeader("zstd")).isEqualTo(ContentCoding.ZSTD);
+		assertThatThrownBy(() -> ContentCoding.fromHeader("br")).isInstanceOf(IllegalArgumentException.class);
+
+		assertThat(ContentCoding.fromPart(null, "tests.zip.gz")).isEqualTo(ContentCoding.GZIP);
+		assertThat(ContentCoding.fromPart("application/zstd", "tests")).isEqualTo(ContentCoding.ZSTD);
+		assertThat(ContentCoding.fromPart("application/zip", "tests.zip")).isEqualTo(ContentCoding.IDENTITY);
+	}
+
+	@Test
+	void negotiatesThePreferredCoding() {
+		assertThat(ContentCoding.negotiate(null)).isEqualTo(ContentCoding.IDENTITY);
+		assertThat(ContentCoding.negotiate("gzip, deflate")).isEqualTo(ContentCoding.GZIP);
+		assertThat(ContentCoding.negotiate("gzip, zstd")).isEqualTo(ContentCoding.ZSTD);
+		assertThat(ContentCoding.negotiate("zstd;q=0, gzip;q=0.5")).isEqualTo(ContentCoding.GZIP);
+		assertThat(ContentCoding.negotiate("br")).isEqualTo(ContentCoding.IDENTITY);
+	}
+
+	private static byte[] encode(ContentCoding coding, byte[] body) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (OutputStream encoded = coding.encode(out)) {
+			encoded.write(body);
+		}
+		return out.toByteArray();
+	}
+}
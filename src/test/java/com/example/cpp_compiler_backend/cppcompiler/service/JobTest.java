@@ -0,0 +1,149 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.cpp_compiler_backend.cppcompiler.model.CompileResponse;
+import com.example.cpp_compiler_backend.cppcompiler.model.JobStatus;
+
+class JobTest {
+
+	private final CountDownLatch unblock = new CountDownLatch(1);
+
+	@AfterEach
+	void release() {
+		unblock.countDown();
+	}
+
+	@Test
+	void lateSubscriberGetsTheWholeStream() throws Exception {
+		Job job = new Job("job", 100, 100);
+		job.setStatus(JobStatus.RUNNING);
+		job.onOutput("stdout", "hello");
+		job.finish(success());
+
+		RecordingEmitter late = new RecordingEmitter(null);
+		job.subscribe(late);
+		assertThat(late.completed.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(late.events()).containsExactly("status", "stdout", "status", "result");
+	}
+
+	@Test
+	void liveSubscriberIsCompletedAfterTheResult() throws Exception {
+		Job job = new Job("job", 100, 100);
+		RecordingEmitter live = new RecordingEmitter(null);
+		job.subscribe(live);
+
+		job.setStatus(JobStatus.RUNNING);
+		for (int i = 0; i < 10; i++) {
+			job.onOutput("stdout", "line " + i);
+		}
+		job.finish(success());
+
+		assertThat(live.completed.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(live.events()).hasSize(13).endsWith("status", "result");
+		assertThat(job.getSubscriberCount()).isZero();
+	}
+
+	@Test
+	void stalledSubscriberDoesNotHoldUpOutputOrOtherSubscribers() throws Exception {
+		Job job = new Job("job", 10_000, 50);
+		RecordingEmitter stalled = new RecordingEmitter(unblock);
+		RecordingEmitter fast = new RecordingEmitter(null);
+		job.subscribe(stalled);
+		job.subscribe(fast);
+
+		assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+			for (int i = 0; i < 200; i++) {
+				job.onOutput("stdout", "line " + i);
+				if (i % 10 == 9) {
+					// Output arrives in pipe reads; a client that keeps up is never far behind
+					Thread.sleep(5);
+				}
+			}
+			job.finish(success());
+		});
+
+		assertThat(fast.completed.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(fast.events()).hasSize(202);
+		// The stalled client fell too far behind and was dropped
+		assertThat(job.getSubscriberCount()).isZero();
+		unblock.countDown();
+		assertThat(stalled.failed.await(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	void jobStoreStaysResponsiveWhileAJobStreamsToAStalledClient() {
+		JobStore store = new JobStore(10, 10_000, 1000, Duration.ofMinutes(10));
+		Job job = store.create();
+		job.subscribe(new RecordingEmitter(unblock));
+
+		assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+			job.setStatus(JobStatus.RUNNING);
+			for (int i = 0; i < 100; i++) {
+				job.onOutput("stdout", "line " + i);
+				assertThat(store.get(job.getId())).isSameAs(job);
+			}
+			assertThat(store.create()).isNotNull();
+			assertThat(job.getStatus()).isEqualTo(JobStatus.RUNNING);
+		});
+	}
+
+	private static CompileResponse success() {
+		CompileResponse response = new CompileResponse();
+		response.setSuccess(true);
+		return response;
+	}
+
+	// Records the event names it is sent; with a latch, every send blocks until the latch opens
+	private static class RecordingEmitter extends SseEmitter {
+		private final CountDownLatch gate;
+		private final List<String> sent = new CopyOnWriteArrayList<>();
+		private final CountDownLatch completed = new CountDownLatch(1);
+		private final CountDownLatch failed = new CountDownLatch(1);
+
+		private RecordingEmitter(CountDownLatch gate) {
+			this.gate = gate;
+		}
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			if (gate != null) {
+				try {
+					gate.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+			String text = builder.build().stream().map(part -> String.valueOf(part.getData()))
+					.collect(Collectors.joining());
+			sent.add(text.substring("event:".length(), text.indexOf('\n')));
+		}
+
+		@Override
+		public void complete() {
+			completed.countDown();
+		}
+
+		@Override
+		public void completeWithError(Throwable ex) {
+			failed.countDown();
+		}
+
+		private List<String> events() {
+			return sent;
+		}
+	}
+}
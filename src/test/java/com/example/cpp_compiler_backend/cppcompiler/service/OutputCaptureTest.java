@@ -0,0 +1,115 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+@DisabledOnOs(OS.WINDOWS)
+class OutputCaptureTest {
+
+	private static Process shell(String script) throws Exception {
+		return new ProcessBuilder("sh", "-c", script).start();
+	}
+
+	private static OutputCapture capture(Process process, long maxBytes, boolean killOnLimit) {
+		OutputCapture capture = new OutputCapture(process, maxBytes, killOnLimit, ExecutionListener.NONE,
+				ExecutionListener.STREAM_STDOUT, ExecutionListener.STREAM_STDERR, false);
+		capture.start();
+		return capture;
+	}
+
+	@Test
+	void keepsOutputWithinTheLimit() throws Exception {
+		Process process = shell("printf hello; printf oops >&2");
+		OutputCapture capture = capture(process, 1024, true);
+
+		assertThat(capture.await(Duration.ofSeconds(10))).isTrue();
+		assertThat(capture.getStdout()).isEqualTo("hello");
+		assertThat(capture.getStderr()).isEqualTo("oops");
+		assertThat(capture.getCapturedBytes()).isEqualTo(9);
+		assertThat(capture.isTruncated()).isFalse();
+	}
+
+	@Test
+	void truncatesAtTheSharedBudgetAndKillsTheProcess() throws Exception {
+		Process process = shell("while true; do echo 0123456789; done");
+		OutputCapture capture = capture(process, 100, true);
+
+		assertThat(capture.await(Duration.ofSeconds(10))).isTrue();
+		assertThat(process.waitFor(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(capture.isTruncated()).isTrue();
+		assertThat(capture.getStdout()).hasSize(100);
+	}
+
+	@Test
+	void readsToTheEndWithoutKillingWhenAskedTo() throws Exception {
+		Process process = shell("i=0; while [ $i -lt 100 ]; do echo 0123456789; i=$((i+1)); done; exit 3");
+		OutputCapture capture = capture(process, 50, false);
+
+		assertThat(capture.await(Duration.ofSeconds(10))).isTrue();
+		assertThat(process.waitFor()).isEqualTo(3);
+		assertThat(capture.isTruncated()).isTrue();
+		assertThat(capture.getStdout()).hasSize(50);
+	}
+
+	@Test
+	void keepsTheHeadOfTheOutputAndDropsTheTail() throws Exception {
+		Process process = shell("echo first; i=0; while [ $i -lt 100 ]; do echo 0123456789; i=$((i+1)); done; echo last");
+		OutputCapture capture = capture(process, 50, false);
+
+		assertThat(capture.await(Duration.ofSeconds(10))).isTrue();
+		assertThat(process.waitFor(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(capture.getStdout()).startsWith("first\n0123456789\n").doesNotContain("last");
+	}
+
+	@Test
+	void streamsStdoutToTheSinkWithoutBuffering() throws Exception {
+		ByteArrayOutputStream sink = new ByteArrayOutputStream();
+		Process process = shell("printf streamed");
+		OutputCapture capture = new OutputCapture(process, 1024, true, ExecutionListener.NONE,
+				ExecutionListener.STREAM_STDOUT, ExecutionListener.STREAM_STDERR, false, sink, 1024);
+		capture.start();
+
+		assertThat(capture.await(Duration.ofSeconds(10))).isTrue();
+		assertThat(sink.toString()).isEqualTo("streamed");
+		assertThat(capture.getStdout()).isEmpty();
+		assertThat(capture.getCapturedBytes()).isEqualTo(8);
+	}
+
+	@Test
+	void stderrKeepsItsOwnCapWhileStdoutStreams() throws Exception {
+		ByteArrayOutputStream sink = new ByteArrayOutputStream();
+		Process process = shell("printf streamed; while true; do echo 0123456789 >&2; done");
+		OutputCapture capture = new OutputCapture(process, 1 << 20, true, ExecutionListener.NONE,
+				ExecutionListener.STREAM_STDOUT, ExecutionListener.STREAM_STDERR, false, sink, 100);
+		capture.start();
+
+		assertThat(capture.await(Duration.ofSeconds(10))).isTrue();
+		assertThat(process.waitFor(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(sink.toString()).isEqualTo("streamed");
+		assertThat(capture.getStderr()).hasSize(100);
+		assertThat(capture.isTruncated()).isTrue();
+	}
+
+	@Test
+	void awaitGivesUpWhenABackgroundChildHoldsTheStreamOpen() throws Exception {
+		// The shell lingers so the drain is blocked reading before it exits; a pipe still unread when the
+		// process exits is drained and closed by the JDK, which would end the capture early
+		Process process = shell("sleep 30 & echo $!; sleep 0.5");
+		OutputCapture capture = capture(process, 1024, true);
+		assertThat(process.waitFor()).isZero();
+		try {
+			assertThat(capture.await(Duration.ofMillis(300))).isFalse();
+		} finally {
+			// The shell is gone, so the orphaned child is only found by its pid
+			ProcessHandle.of(Long.parseLong(capture.getStdout().trim())).ifPresent(ProcessHandle::destroyForcibly);
+		}
+		assertThat(capture.await(Duration.ofSeconds(10))).isTrue();
+	}
+}
@@ -0,0 +1,62 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PrecompiledHeaderManagerTest {
+
+	@Test
+	void collectsSystemIncludesInOrder() {
+		String code = "#include <vector>\n"
+				+ "  #  include <iostream>\n"
+				+ "#include < string >\n"
+				+ "#include <vector>\n"
+				+ "int main() { return 0; }\n";
+
+		assertThat(PrecompiledHeaderManager.systemIncludes(code))
+				.containsExactly("vector", "iostream", "string");
+	}
+
+	@Test
+	void directivesAfterTheIncludesAreFine() {
+		String code = "#include <cstdio>\n#define N 10\n#pragma once\nint main() { return N; }\n";
+
+		assertThat(PrecompiledHeaderManager.systemIncludes(code)).containsExactly("cstdio");
+	}
+
+	@Test
+	void macroBeforeAnIncludeRulesOutAPrecompiledHeader() {
+		assertThat(PrecompiledHeaderManager.systemIncludes("#define _GLIBCXX_DEBUG\n#include <vector>\n")).isNull();
+		assertThat(PrecompiledHeaderManager.systemIncludes("#ifdef X\n#include <map>\n#endif\n")).isNull();
+	}
+
+	@Test
+	void quotedIncludeRulesOutAPrecompiledHeader() {
+		assertThat(PrecompiledHeaderManager.systemIncludes("#include <vector>\n#include \"util.h\"\n")).isNull();
+	}
+
+	@Test
+	void sourceWithoutIncludesHasNone() {
+		assertThat(PrecompiledHeaderManager.systemIncludes("int main() { return 0; }\n")).isEmpty();
+	}
+
+	@Test
+	void bundleOnlyAppliesWhenItStartsTheIncludes() {
+		List<String> bundle = List.of("iostream", "vector", "cmath");
+
+		assertThat(PrecompiledHeaderManager.startsWith(
+				PrecompiledHeaderManager.systemIncludes("#include <iostream>\n#include <vector>\n#include <cmath>\n"),
+				bundle)).isTrue();
+		assertThat(PrecompiledHeaderManager.startsWith(PrecompiledHeaderManager.systemIncludes(
+				"#include <iostream>\n#include <vector>\n#include <cmath>\n#include <map>\n"), bundle)).isTrue();
+		// A subset would pull in headers the source never asked for
+		assertThat(PrecompiledHeaderManager.startsWith(
+				PrecompiledHeaderManager.systemIncludes("#include <vector>\n"), bundle)).isFalse();
+		assertThat(PrecompiledHeaderManager.startsWith(
+				PrecompiledHeaderManager.systemIncludes("#include <vector>\n#include <iostream>\n#include <cmath>\n"),
+				bundle)).isFalse();
+	}
+}
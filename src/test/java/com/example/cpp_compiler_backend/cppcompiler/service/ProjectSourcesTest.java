@@ -0,0 +1,94 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class ProjectSourcesTest {
+
+	@Test
+	void normalizesNamesAndOrdersUnits() {
+		ProjectSources sources = new ProjectSources(Map.of(
+				"src/./b.cpp", "",
+				"a.cc", "",
+				"lib\\util.h", "",
+				"src/../main.cpp", ""), 10);
+
+		assertThat(sources.getFiles()).containsOnlyKeys("a.cc", "lib/util.h", "main.cpp", "src/b.cpp");
+		assertThat(sources.getUnits()).containsExactly("a.cc", "main.cpp", "src/b.cpp");
+	}
+
+	@Test
+	void rejectsNamesOutsideTheProject() {
+		for (String name : new String[] {"../evil.cpp", "/etc/passwd.cpp", "a/../../b.cpp", "C:/x.cpp", " "}) {
+			assertThatThrownBy(() -> new ProjectSources(Map.of(name, "", "main.cpp", ""), 10))
+					.as(name)
+					.isInstanceOf(IllegalArgumentException.class);
+		}
+	}
+
+	@Test
+	void rejectsDuplicatesEmptyProjectsAndHeaderOnlyProjects() {
+		assertThatThrownBy(() -> new ProjectSources(Map.of("main.cpp", "", "./main.cpp", ""), 10))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Duplicate");
+		assertThatThrownBy(() -> new ProjectSources(Map.of(), 10)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new ProjectSources(Map.of("a.h", ""), 10)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new ProjectSources(Map.of("a.cpp", "", "b.cpp", ""), 1))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void digestFollowsQuotedIncludesTransitively() {
+		Map<String, String> files = new HashMap<>();
+		files.put("main.cpp", "#include \"lib/a.h\"\nint main() {}\n");
+		files.put("other.cpp", "int other() { return 1; }\n");
+		files.put("lib/a.h", "#include \"b.h\"\n");
+		files.put("lib/b.h", "int b();\n");
+		String main = new ProjectSources(files, 10).unitDigest("main.cpp");
+		String other = new ProjectSources(files, 10).unitDigest("other.cpp");
+
+		files.put("lib/b.h", "int b(int);\n");
+		ProjectSources edited = new ProjectSources(files, 10);
+		assertThat(edited.unitDigest("main.cpp")).isNotEqualTo(main);
+		assertThat(edited.unitDigest("other.cpp")).isEqualTo(other);
+	}
+
+	@Test
+	void digestFollowsAngleIncludesOfProjectHeaders() {
+		Map<String, String> files = new HashMap<>();
+		files.put("main.cpp", "#include <vector>\n#include <util.h>\nint main() {}\n");
+		files.put("util.h", "int util();\n");
+		String before = new ProjectSources(files, 10).unitDigest("main.cpp");
+
+		files.put("util.h", "long util();\n");
+		assertThat(new ProjectSources(files, 10).unitDigest("main.cpp")).isNotEqualTo(before);
+	}
+
+	@Test
+	void angleIncludesOnlySearchTheProjectRoot() {
+		Map<String, String> files = new HashMap<>();
+		files.put("src/main.cpp", "#include <util.h>\nint main() {}\n");
+		files.put("src/util.h", "int util();\n");
+		String before = new ProjectSources(files, 10).unitDigest("src/main.cpp");
+
+		files.put("src/util.h", "long util();\n");
+		assertThat(new ProjectSources(files, 10).unitDigest("src/main.cpp")).isEqualTo(before);
+	}
+
+	@Test
+	void computedIncludeCountsEveryHeader() {
+		Map<String, String> files = new HashMap<>();
+		files.put("main.cpp", "#define HEADER \"a.h\"\n#include HEADER\nint main() {}\n");
+		files.put("a.h", "");
+		files.put("unrelated.h", "int x;\n");
+		String before = new ProjectSources(files, 10).unitDigest("main.cpp");
+
+		files.put("unrelated.h", "int y;\n");
+		assertThat(new ProjectSources(files, 10).unitDigest("main.cpp")).isNotEqualTo(before);
+	}
+}
@@ -0,0 +1,75 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class RequestCoalescerTest {
+
+	@Test
+	void concurrentCallersShareOneRun() {
+		RequestCoalescer<String> coalescer = new RequestCoalescer<>((value, participants) -> value + "/" + participants);
+		CompletableFuture<String> work = new CompletableFuture<>();
+		AtomicInteger started = new AtomicInteger();
+
+		CompletableFuture<String> first = coalescer.join("k", () -> {
+			started.incrementAndGet();
+			return work;
+		});
+		CompletableFuture<String> second = coalescer.join("k", () -> {
+			started.incrementAndGet();
+			return new CompletableFuture<>();
+		});
+		assertThat(second).isSameAs(first);
+		assertThat(coalescer.size()).isEqualTo(1);
+
+		work.complete("done");
+		assertThat(first.join()).isEqualTo("done/2");
+		assertThat(started).hasValue(1);
+		assertThat(coalescer.size()).isZero();
+	}
+
+	@Test
+	void differentKeysAndLaterCallersRunSeparately() {
+		RequestCoalescer<String> coalescer = new RequestCoalescer<>((value, participants) -> value);
+
+		CompletableFuture<String> a = coalescer.join("a", () -> CompletableFuture.completedFuture("a"));
+		CompletableFuture<String> b = coalescer.join("b", () -> CompletableFuture.completedFuture("b"));
+		CompletableFuture<String> again = coalescer.join("a", () -> CompletableFuture.completedFuture("a2"));
+
+		assertThat(a.join()).isEqualTo("a");
+		assertThat(b.join()).isEqualTo("b");
+		assertThat(again.join()).isEqualTo("a2");
+		assertThat(coalescer.size()).isZero();
+	}
+
+	@Test
+	void failedWorkFailsEveryParticipant() {
+		RequestCoalescer<String> coalescer = new RequestCoalescer<>((value, participants) -> value);
+		CompletableFuture<String> work = new CompletableFuture<>();
+
+		CompletableFuture<String> first = coalescer.join("k", () -> work);
+		CompletableFuture<String> second = coalescer.join("k", CompletableFuture::new);
+		work.completeExceptionally(new IllegalStateException("boom"));
+
+		assertThatThrownBy(first::join).isInstanceOf(CompletionException.class).hasRootCauseMessage("boom");
+		assertThatThrownBy(second::join).isInstanceOf(CompletionException.class).hasRootCauseMessage("boom");
+		assertThat(coalescer.size()).isZero();
+	}
+
+	@Test
+	void supplierThatThrowsIsRethrownAndForgotten() {
+		RequestCoalescer<String> coalescer = new RequestCoalescer<>((value, participants) -> value);
+
+		assertThatThrownBy(() -> coalescer.join("k", () -> {
+			throw new IllegalArgumentException("bad request");
+		})).isInstanceOf(IllegalArgumentException.class);
+		assertThat(coalescer.size()).isZero();
+		assertThat(coalescer.join("k", () -> CompletableFuture.completedFuture("ok")).join()).isEqualTo("ok");
+	}
+}
@@ -0,0 +1,177 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RequestSchedulerTest {
+
+	private final CompilerMetrics metrics = new CompilerMetrics(new SimpleMeterRegistry());
+
+	@Test
+	void admitsUpToCapacityAtOnce() {
+		RequestScheduler scheduler = scheduler(2, 20, Duration.ofMinutes(1), Duration.ofMinutes(1), "");
+
+		RequestScheduler.Ticket first = scheduler.enqueue("a", RequestScheduler.Priority.INTERACTIVE);
+		RequestScheduler.Ticket second = scheduler.enqueue("a", RequestScheduler.Priority.INTERACTIVE);
+		RequestScheduler.Ticket third = scheduler.enqueue("a", RequestScheduler.Priority.INTERACTIVE);
+
+		assertThat(first.admitted()).isDone();
+		assertThat(second.admitted()).isDone();
+		assertThat(third.admitted()).isNotDone();
+		assertThat(third.getQueuePosition()).isEqualTo(1);
+
+		first.close();
+		assertThat(third.admitted()).isDone();
+		assertThat(scheduler.getRunning()).isEqualTo(2);
+	}
+
+	@Test
+	void fairQueuingInterleavesClients() {
+		RequestScheduler scheduler = scheduler(1, 20, Duration.ofMinutes(1), Duration.ofMinutes(1), "");
+		RequestScheduler.Ticket holder = scheduler.enqueue("holder", RequestScheduler.Priority.INTERACTIVE);
+
+		Map<RequestScheduler.Ticket, String> tickets = new HashMap<>();
+		String[] clients = {"hog", "hog", "hog", "light"};
+		for (String client : clients) {
+			tickets.put(scheduler.enqueue(client, RequestScheduler.Priority.INTERACTIVE), client);
+		}
+
+		List<String> order = serveInOrder(holder, tickets);
+		assertThat(order).containsExactly("hog", "light", "hog", "hog");
+	}
+
+	@Test
+	void weightedClientGetsMoreTurns() {
+		RequestScheduler scheduler = scheduler(1, 20, Duration.ofMinutes(1), Duration.ofMinutes(1), "heavy:2");
+		RequestScheduler.Ticket holder = scheduler.enqueue("holder", RequestScheduler.Priority.INTERACTIVE);
+
+		Map<RequestScheduler.Ticket, String> tickets = new HashMap<>();
+		String[] clients = {"normal", "normal", "heavy", "heavy", "heavy", "heavy"};
+		for (String client : clients) {
+			tickets.put(scheduler.enqueue(client, RequestScheduler.Priority.INTERACTIVE), client);
+		}
+
+		List<String> order = serveInOrder(holder, tickets);
+		assertThat(order).containsExactly("heavy", "normal", "heavy", "heavy", "normal", "heavy");
+	}
+
+	@Test
+	void interactiveGoesAheadOfBatch() {
+		RequestScheduler scheduler = scheduler(1, 20, Duration.ofMinutes(1), Duration.ofMinutes(1), "");
+		RequestScheduler.Ticket holder = scheduler.enqueue("holder", RequestScheduler.Priority.INTERACTIVE);
+		RequestScheduler.Ticket batch = scheduler.enqueue("grader", RequestScheduler.Priority.BATCH);
+		RequestScheduler.Ticket interactive = scheduler.enqueue("student", RequestScheduler.Priority.INTERACTIVE);
+
+		holder.close();
+		assertThat(interactive.admitted()).isDone();
+		assertThat(batch.admitted()).isNotDone();
+	}
+
+	@Test
+	void agedBatchRequestGoesFirst() throws InterruptedException {
+		RequestScheduler scheduler = scheduler(1, 20, Duration.ofMinutes(1), Duration.ofMillis(50), "");
+		RequestScheduler.Ticket holder = scheduler.enqueue("holder", RequestScheduler.Priority.INTERACTIVE);
+		RequestScheduler.Ticket batch = scheduler.enqueue("grader", RequestScheduler.Priority.BATCH);
+		Thread.sleep(100);
+		RequestScheduler.Ticket interactive = scheduler.enqueue("student", RequestScheduler.Priority.INTERACTIVE);
+
+		holder.close();
+		assertThat(batch.admitted()).isDone();
+		assertThat(interactive.admitted()).isNotDone();
+	}
+
+	@Test
+	void rejectsClientsWithTooManyWaitingRequests() {
+		RequestScheduler scheduler = scheduler(1, 2, Duration.ofMinutes(1), Duration.ofMinutes(1), "");
+		scheduler.enqueue("holder", RequestScheduler.Priority.INTERACTIVE);
+		scheduler.enqueue("busy", RequestScheduler.Priority.INTERACTIVE);
+		scheduler.enqueue("busy", RequestScheduler.Priority.INTERACTIVE);
+
+		assertThatThrownBy(() -> scheduler.enqueue("busy", RequestScheduler.Priority.INTERACTIVE))
+				.isExactlyInstanceOf(PipelineBusyException.class);
+		assertThat(scheduler.enqueue("other", RequestScheduler.Priority.INTERACTIVE).admitted()).isNotDone();
+	}
+
+	@Test
+	void rejectsRequestsThatWaitTooLong() {
+		RequestScheduler scheduler = scheduler(1, 20, Duration.ofMillis(50), Duration.ofMinutes(1), "");
+		scheduler.enqueue("holder", RequestScheduler.Priority.INTERACTIVE);
+		RequestScheduler.Ticket waiting = scheduler.enqueue("late", RequestScheduler.Priority.INTERACTIVE);
+
+		assertThatThrownBy(() -> waiting.admitted().get(5, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(PipelineBusyException.class);
+		assertThat(scheduler.getQueued(RequestScheduler.Priority.INTERACTIVE)).isZero();
+	}
+
+	@Test
+	void shedsWhenTheEstimatedWaitIsTooLong() {
+		AdmissionController admission = new AdmissionController(metrics, true, 1, 2.0, 20, 10, 0, 1.5, 0.8,
+				Duration.ZERO, Duration.ofHours(1));
+		RequestScheduler scheduler = new RequestScheduler(metrics, admission, true, 1, 20, Duration.ofMinutes(1),
+				Duration.ofMinutes(1), "", 1, 1);
+		scheduler.start();
+		try {
+			scheduler.enqueue("holder", RequestScheduler.Priority.INTERACTIVE);
+
+			assertThatThrownBy(() -> scheduler.enqueue("late", RequestScheduler.Priority.INTERACTIVE))
+					.isInstanceOfSatisfying(LoadSheddingException.class,
+							e -> assertThat(e.getRetryAfterSeconds()).isPositive());
+		} finally {
+			admission.shutdown();
+		}
+	}
+
+	@Test
+	void disabledSchedulerReportsItsCapacity() {
+		AdmissionController admission = new AdmissionController(metrics, true, 1, 2.0, 20, 10, 0, 1.5, 0.8,
+				Duration.ofSeconds(10), Duration.ofHours(1));
+		RequestScheduler scheduler = new RequestScheduler(metrics, admission, false, 3, 20, Duration.ofMinutes(1),
+				Duration.ofMinutes(1), "", 1, 1);
+		scheduler.start();
+		scheduler.setRemoteCapacity(4);
+
+		assertThat(scheduler.getLocalLimit()).isEqualTo(3);
+		assertThat(scheduler.getMaxConcurrent()).isEqualTo(7);
+		for (int i = 0; i < 10; i++) {
+			assertThat(scheduler.enqueue("a", RequestScheduler.Priority.INTERACTIVE).admitted()).isDone();
+		}
+	}
+
+	// Finishes each admitted request in turn and returns the clients in admission order
+	private static List<String> serveInOrder(RequestScheduler.Ticket holder, Map<RequestScheduler.Ticket, String> tickets) {
+		List<String> order = new ArrayList<>();
+		RequestScheduler.Ticket current = holder;
+		while (current != null) {
+			current.close();
+			tickets.remove(current);
+			current = tickets.keySet().stream().filter(ticket -> ticket.admitted().isDone()).findFirst().orElse(null);
+			if (current != null) {
+				order.add(tickets.get(current));
+			}
+		}
+		return order;
+	}
+
+	private RequestScheduler scheduler(int capacity, int maxQueuedPerClient, Duration maxWait, Duration aging,
+									   String weights) {
+		AdmissionController admission = new AdmissionController(metrics, false, 1, 2.0, 20, 10, 0, 1.5, 0.8,
+				Duration.ofSeconds(10), Duration.ofSeconds(1));
+		RequestScheduler scheduler = new RequestScheduler(metrics, admission, true, capacity, maxQueuedPerClient,
+				maxWait, aging, weights, 1, 1);
+		scheduler.start();
+		return scheduler;
+	}
+}
@@ -0,0 +1,105 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class ResultCacheTest {
+
+	@Test
+	void hitReturnsACopyMarkedCached() {
+		ResultCache cache = new ResultCache(true, 10, 1 << 20, Duration.ofMinutes(10));
+		String key = ResultCache.key("int main() {}", "", "/usr/bin/g++", "-O2");
+		cache.put(key, result("hello"));
+
+		CompilerService.CompileResult hit = cache.get(key);
+		assertThat(hit.getOutput()).isEqualTo("hello");
+		assertThat(hit.isCached()).isTrue();
+		hit.setOutput("changed");
+		assertThat(cache.get(key).getOutput()).isEqualTo("hello");
+
+		assertThat(cache.get("missing")).isNull();
+		ResultCache.Stats stats = cache.stats();
+		assertThat(stats.getHits()).isEqualTo(2);
+		assertThat(stats.getMisses()).isEqualTo(1);
+	}
+
+	@Test
+	void peekCountsHitsButNotMisses() {
+		ResultCache cache = new ResultCache(true, 10, 1 << 20, Duration.ofMinutes(10));
+		cache.put("a", result("a"));
+
+		assertThat(cache.peek("a").isCached()).isTrue();
+		assertThat(cache.peek("b")).isNull();
+		assertThat(cache.get("b")).isNull();
+		ResultCache.Stats stats = cache.stats();
+		assertThat(stats.getHits()).isEqualTo(1);
+		assertThat(stats.getMisses()).isEqualTo(1);
+	}
+
+	@Test
+	void keyCoversEveryPartWithoutAmbiguity() {
+		String key = ResultCache.key("ab", "c", "g++", "-O2");
+		assertThat(ResultCache.key("ab", "c", "g++", "-O2")).isEqualTo(key);
+		assertThat(ResultCache.key("a", "bc", "g++", "-O2")).isNotEqualTo(key);
+		assertThat(ResultCache.key("ab", "c", "g++", "-O0")).isNotEqualTo(key);
+		assertThat(ResultCache.key("ab", null, "g++", "-O2")).isEqualTo(ResultCache.key("ab", "", "g++", "-O2"));
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedBeyondMaxEntries() {
+		ResultCache cache = new ResultCache(true, 2, 1 << 20, Duration.ofMinutes(10));
+		cache.put("a", result("a"));
+		cache.put("b", result("b"));
+		cache.get("a");
+		cache.put("c", result("c"));
+
+		assertThat(cache.get("a")).isNotNull();
+		assertThat(cache.get("b")).isNull();
+		assertThat(cache.get("c")).isNotNull();
+		assertThat(cache.stats().getEntries()).isEqualTo(2);
+	}
+
+	@Test
+	void staysWithinMaxBytes() {
+		ResultCache cache = new ResultCache(true, 100, 2000, Duration.ofMinutes(10));
+		for (int i = 0; i < 10; i++) {
+			cache.put("key" + i, result("x".repeat(300)));
+		}
+		assertThat(cache.stats().getSizeBytes()).isLessThanOrEqualTo(2000);
+		assertThat(cache.get("key9")).isNotNull();
+		assertThat(cache.get("key0")).isNull();
+
+		cache.put("huge", result("x".repeat(5000)));
+		assertThat(cache.get("huge")).isNull();
+	}
+
+	@Test
+	void expiredEntriesAreMisses() throws InterruptedException {
+		ResultCache cache = new ResultCache(true, 10, 1 << 20, Duration.ofMillis(20));
+		cache.put("a", result("a"));
+		Thread.sleep(50);
+
+		assertThat(cache.get("a")).isNull();
+		assertThat(cache.stats().getEntries()).isZero();
+		assertThat(cache.stats().getSizeBytes()).isZero();
+	}
+
+	@Test
+	void disabledCacheStoresNothing() {
+		ResultCache cache = new ResultCache(false, 10, 1 << 20, Duration.ofMinutes(10));
+		cache.put("a", result("a"));
+
+		assertThat(cache.get("a")).isNull();
+		assertThat(cache.stats().getEntries()).isZero();
+	}
+
+	private static CompilerService.CompileResult result(String output) {
+		CompilerService.CompileResult result = new CompilerService.CompileResult();
+		result.setSuccess(true);
+		result.setOutput(output);
+		return result;
+	}
+}
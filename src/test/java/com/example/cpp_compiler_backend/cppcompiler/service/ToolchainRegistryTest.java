@@ -0,0 +1,15 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class ToolchainRegistryTest {
+
+	@Test
+	void unknownDefaultToolchainFailsStartup() {
+		assertThatThrownBy(() -> new ToolchainRegistry("", false, "no-such-compiler"))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("no-such-compiler");
+	}
+}
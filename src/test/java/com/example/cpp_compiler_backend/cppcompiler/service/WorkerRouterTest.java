@@ -0,0 +1,219 @@
+package com.example.cpp_compiler_backend.cppcompiler.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.cpp_compiler_backend.cppcompiler.model.CompileRequest;
+import com.example.cpp_compiler_backend.cppcompiler.model.CompileResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class WorkerRouterTest {
+
+	@Test
+	void sameKeyKeepsGoingToTheSameNode() {
+		WorkerRouter router = router(2, node("a"), node("b"), node("c"));
+		for (int i = 0; i < 50; i++) {
+			assertThat(routeTo(router, "key" + i)).isEqualTo(routeTo(router, "key" + i));
+		}
+	}
+
+	@Test
+	void keysSpreadOverAllNodes() {
+		WorkerRouter router = router(2, node("a"), node("b"), node("c"));
+		Map<String, Integer> counts = new HashMap<>();
+		for (int i = 0; i < 300; i++) {
+			counts.merge(routeTo(router, "key" + i), 1, Integer::sum);
+		}
+		assertThat(counts).containsOnlyKeys("a", "b", "c");
+		assertThat(counts.values()).allSatisfy(count -> assertThat(count).isGreaterThan(50));
+	}
+
+	@Test
+	void losingANodeOnlyMovesItsOwnKeys() {
+		FakeNode b = node("b");
+		WorkerRouter router = router(2, node("a"), b, node("c"));
+		Map<String, String> before = new HashMap<>();
+		for (int i = 0; i < 200; i++) {
+			before.put("key" + i, routeTo(router, "key" + i));
+		}
+
+		b.markUnhealthy();
+		before.forEach((key, node) -> {
+			String after = routeTo(router, key);
+			if (node.equals("b")) {
+				assertThat(after).isIn("a", "c");
+			} else {
+				assertThat(after).isEqualTo(node);
+			}
+		});
+	}
+
+	@Test
+	void busyPreferredNodeSpillsToTheLeastLoaded() {
+		WorkerRouter router = router(2, node("a"), node("b"), node("c"));
+		String preferred = routeTo(router, "hot");
+
+		WorkerRouter.Route first = router.route("hot");
+		WorkerRouter.Route second = router.route("hot");
+		WorkerRouter.Route third = router.route("hot");
+		WorkerRouter.Route fourth = router.route("hot");
+		assertThat(List.of(first.getWorkerId(), second.getWorkerId(), third.getWorkerId())).containsOnly(preferred);
+		assertThat(fourth.getWorkerId()).isNotEqualTo(preferred);
+		List.of(first, second, third, fourth).forEach(WorkerRouter.Route::close);
+	}
+
+	@Test
+	void fullNodeIsSkipped() {
+		FakeNode small = node("small");
+		small.capacity = 1;
+		WorkerRouter router = router(10, small, node("big"));
+		String key = null;
+		for (int i = 0; key == null; i++) {
+			if (routeTo(router, "key" + i).equals("small")) {
+				key = "key" + i;
+			}
+		}
+
+		try (WorkerRouter.Route held = router.route(key); WorkerRouter.Route next = router.route(key)) {
+			assertThat(held.getWorkerId()).isEqualTo("small");
+			assertThat(next.getWorkerId()).isEqualTo("big");
+		}
+	}
+
+	@Test
+	void busyWorkerFallsBackLocallyAndStaysInRotation() {
+		FakeNode busy = node("busy");
+		busy.failure = new WorkerBusyException("Worker busy is busy (status 503)");
+		WorkerRouter router = router(2, busy);
+
+		try (WorkerRouter.Route route = router.route("key")) {
+			assertThat(route.execute(new CompileRequest("int main() {}", ""))).isNull();
+			assertThat(route.isRemote()).isFalse();
+		}
+		assertThat(busy.isHealthy()).isTrue();
+	}
+
+	@Test
+	void failedWorkerLeavesRotation() {
+		FakeNode broken = node("broken");
+		broken.failure = new IOException("Connection refused");
+		WorkerRouter router = router(2, broken);
+
+		try (WorkerRouter.Route route = router.route("key")) {
+			assertThat(route.execute(new CompileRequest("int main() {}", ""))).isNull();
+		}
+		assertThat(broken.isHealthy()).isFalse();
+		try (WorkerRouter.Route route = router.route("key")) {
+			assertThat(route.isRemote()).isFalse();
+		}
+	}
+
+	@Test
+	void rejectedRequestReachesTheCaller() {
+		FakeNode strict = node("strict");
+		strict.rejection = new IllegalArgumentException("Unknown toolchain 'x'");
+		WorkerRouter router = router(2, strict);
+
+		try (WorkerRouter.Route route = router.route("key")) {
+			assertThatThrownBy(() -> route.execute(new CompileRequest("int main() {}", "")))
+					.isInstanceOf(IllegalArgumentException.class)
+					.hasMessageContaining("Unknown toolchain");
+		}
+		assertThat(strict.isHealthy()).isTrue();
+	}
+
+	@Test
+	void localCapacityIsFiniteWithTheSchedulerDisabled() {
+		CompilerMetrics metrics = new CompilerMetrics(new SimpleMeterRegistry());
+		AdmissionController admission = new AdmissionController(metrics, true, 1, 2.0, 20, 10, 0, 1.5, 0.8,
+				Duration.ofSeconds(10), Duration.ofHours(1));
+		RequestScheduler scheduler = new RequestScheduler(metrics, admission, false, 2, 20, Duration.ofMinutes(1),
+				Duration.ofMinutes(1), "", 1, 1);
+		scheduler.start();
+		WorkerRouter router = new WorkerRouter(scheduler, List.of(node("remote")), true, 10);
+		String key = null;
+		for (int i = 0; key == null; i++) {
+			if (routeTo(router, "key" + i) == null) {
+				key = "key" + i;
+			}
+		}
+
+		try (WorkerRouter.Route first = router.route(key); WorkerRouter.Route second = router.route(key);
+			 WorkerRouter.Route third = router.route(key)) {
+			assertThat(first.isRemote()).isFalse();
+			assertThat(second.isRemote()).isFalse();
+			assertThat(third.getWorkerId()).isEqualTo("remote");
+		}
+	}
+
+	private static WorkerRouter router(int affinitySlack, WorkerNode... nodes) {
+		return new WorkerRouter(null, List.of(nodes), false, affinitySlack);
+	}
+
+	private static String routeTo(WorkerRouter router, String key) {
+		try (WorkerRouter.Route route = router.route(key)) {
+			return route.getWorkerId();
+		}
+	}
+
+	private static FakeNode node(String id) {
+		return new FakeNode(id);
+	}
+
+	private static class FakeNode implements WorkerNode {
+		private final String id;
+		private int capacity = 10;
+		private boolean healthy = true;
+		private IOException failure;
+		private RuntimeException rejection;
+
+		private FakeNode(String id) {
+			this.id = id;
+		}
+
+		@Override
+		public String getId() {
+			return id;
+		}
+
+		@Override
+		public CompileResponse execute(CompileRequest request) throws IOException {
+			if (failure != null) {
+				throw failure;
+			}
+			if (rejection != null) {
+				throw rejection;
+			}
+			return new CompileResponse();
+		}
+
+		@Override
+		public boolean checkHealth() {
+			return healthy;
+		}
+
+		@Override
+		public boolean isHealthy() {
+			return healthy;
+		}
+
+		@Override
+		public void markUnhealthy() {
+			healthy = false;
+		}
+
+		@Override
+		public int getCapacity() {
+			return capacity;
+		}
+	}
+}